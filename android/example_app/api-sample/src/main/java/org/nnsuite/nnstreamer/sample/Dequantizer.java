@@ -0,0 +1,136 @@
+package org.nnsuite.nnstreamer.sample;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Converts the uint8 quantized tensor to float values.
+ *
+ * The real value of quantized data is (q - zero_point) * scale.
+ * Since uint8 has only 256 values, the converter keeps a lookup table for all of them
+ * and the conversion of each element is a single table access.
+ *
+ * Note that the instance keeps a scratch buffer, do not share it between the threads.
+ */
+public final class Dequantizer {
+    private final float[] table = new float[256];
+    private final float[] expTable = new float[256];
+    private byte[] scratch = new byte[0];
+
+    /**
+     * Creates new converter with quantization parameters of the tensor.
+     *
+     * NNStreamer API does not provide the quantization parameters in {@link org.nnsuite.nnstreamer.TensorsInfo}.
+     * The application should set these values from the model.
+     * (e.g., mobilenet_v1_1.0_224_quant.tflite, output scale 0.00390625 and zero point 0)
+     *
+     * @param scale     The scale of quantized tensor
+     * @param zeroPoint The zero point of quantized tensor
+     */
+    public Dequantizer(float scale, int zeroPoint) {
+        if (scale <= 0.0f || zeroPoint < 0 || zeroPoint > 255) {
+            throw new IllegalArgumentException("Given parameter is invalid");
+        }
+
+        for (int q = 0; q < 256; q++) {
+            table[q] = (q - zeroPoint) * scale;
+        }
+    }
+
+    /**
+     * Gets the real value of the quantized value.
+     */
+    public float get(int q) {
+        return table[q & 0xFF];
+    }
+
+    /**
+     * Converts the quantized data to float values.
+     * The position of given buffer is not changed.
+     *
+     * @param data The quantized data
+     * @param out  The reusable buffer to be filled, new array is allocated if it is null or too small
+     *
+     * @return The array filled with the real values
+     */
+    public float[] dequantize(ByteBuffer data, float[] out) {
+        int size = read(data);
+
+        out = prepare(out, size);
+        for (int i = 0; i < size; i++) {
+            out[i] = table[scratch[i] & 0xFF];
+        }
+
+        return out;
+    }
+
+    /**
+     * Converts the quantized data and applies softmax.
+     * The position of given buffer is not changed.
+     *
+     * Since the scale is positive, the largest quantized value is the largest real value.
+     * The exponential is computed once for each of 256 quantized values, not for each element.
+     *
+     * @param data The quantized data
+     * @param out  The reusable buffer to be filled, new array is allocated if it is null or too small
+     *
+     * @return The array filled with the probabilities
+     */
+    public float[] softmax(ByteBuffer data, float[] out) {
+        int size = read(data);
+        int max = 0;
+        float sum = 0.0f;
+
+        out = prepare(out, size);
+        if (size == 0) {
+            return out;
+        }
+
+        for (int i = 0; i < size; i++) {
+            int q = scratch[i] & 0xFF;
+
+            if (q > max) {
+                max = q;
+            }
+        }
+
+        for (int q = 0; q <= max; q++) {
+            expTable[q] = (float) Math.exp(table[q] - table[max]);
+        }
+
+        for (int i = 0; i < size; i++) {
+            float value = expTable[scratch[i] & 0xFF];
+
+            out[i] = value;
+            sum += value;
+        }
+
+        for (int i = 0; i < size; i++) {
+            out[i] /= sum;
+        }
+
+        return out;
+    }
+
+    /**
+     * Copies the quantized data into the scratch buffer.
+     */
+    private int read(ByteBuffer data) {
+        ByteBuffer src = data.duplicate();
+        int size = src.remaining();
+
+        if (scratch.length < size) {
+            scratch = new byte[size];
+        }
+
+        src.get(scratch, 0, size);
+        return size;
+    }
+
+    private static float[] prepare(float[] out, int size) {
+        if (out == null || out.length < size) {
+            out = new float[size];
+        }
+
+        return out;
+    }
+}
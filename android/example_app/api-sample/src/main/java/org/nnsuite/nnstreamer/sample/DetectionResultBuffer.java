@@ -0,0 +1,180 @@
+package org.nnsuite.nnstreamer.sample;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Triple buffer to pass the detection result from the sink callback to the renderer.
+ *
+ * The producer (e.g., sink callback) fills the back buffer and publishes it with an atomic swap.
+ * The consumer (e.g., renderer) takes the latest published buffer with another atomic swap.
+ * Both sides never wait for each other, and no buffer is allocated after creating this.
+ *
+ * This supports one producer thread and one consumer thread.
+ */
+public final class DetectionResultBuffer {
+    /* the index of the middle buffer, and the flag that it has new result */
+    private static final int FRESH = 0x4;
+    private static final int INDEX_MASK = 0x3;
+
+    private final Snapshot[] buffers = new Snapshot[3];
+    private final AtomicInteger middle = new AtomicInteger(1);
+    private int back = 0;  /* owned by producer */
+    private int front = 2; /* owned by consumer */
+    private long sequence = 0;
+
+    /**
+     * Result of a frame.
+     * The consumer should not modify the snapshot, and should not keep it after next {@link #acquire()}.
+     */
+    public static final class Snapshot {
+        private final float[] x;
+        private final float[] y;
+        private final float[] width;
+        private final float[] height;
+        private final int[] classId;
+        private final float[] score;
+        private int count = 0;
+        private long timestamp = 0;
+        private long sequence = 0;
+
+        private Snapshot(int capacity) {
+            x = new float[capacity];
+            y = new float[capacity];
+            width = new float[capacity];
+            height = new float[capacity];
+            classId = new int[capacity];
+            score = new float[capacity];
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        /**
+         * Gets the sequence number of the result, 0 if no result is published.
+         */
+        public long getSequence() {
+            return sequence;
+        }
+
+        public float getX(int n) {
+            return x[n];
+        }
+
+        public float getY(int n) {
+            return y[n];
+        }
+
+        public float getWidth(int n) {
+            return width[n];
+        }
+
+        public float getHeight(int n) {
+            return height[n];
+        }
+
+        public int getClassId(int n) {
+            return classId[n];
+        }
+
+        public float getScore(int n) {
+            return score[n];
+        }
+    }
+
+    /**
+     * Creates new buffer.
+     *
+     * @param capacity The max number of objects in a frame
+     */
+    public DetectionResultBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Given parameter is invalid");
+        }
+
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = new Snapshot(capacity);
+        }
+    }
+
+    /**
+     * Clears the back buffer to write new result.
+     * Called from producer.
+     */
+    public void clear() {
+        buffers[back].count = 0;
+    }
+
+    /**
+     * Adds an object to the back buffer.
+     * Called from producer.
+     *
+     * @return false if the buffer is full
+     */
+    public boolean add(float x, float y, float width, float height, int classId, float score) {
+        Snapshot s = buffers[back];
+        int n = s.count;
+
+        if (n >= s.x.length) {
+            return false;
+        }
+
+        s.x[n] = x;
+        s.y[n] = y;
+        s.width[n] = width;
+        s.height[n] = height;
+        s.classId[n] = classId;
+        s.score[n] = score;
+        s.count = n + 1;
+        return true;
+    }
+
+    /**
+     * Publishes the back buffer.
+     * Called from producer.
+     *
+     * @param timestamp The timestamp of the frame
+     */
+    public void publish(long timestamp) {
+        Snapshot s = buffers[back];
+
+        s.timestamp = timestamp;
+        s.sequence = ++sequence;
+
+        back = middle.getAndSet(back | FRESH) & INDEX_MASK;
+    }
+
+    /**
+     * Publishes the result of SSD decoder.
+     * Called from producer.
+     */
+    public void publish(SsdDecoder decoder, long timestamp) {
+        int count = decoder.getCount();
+
+        clear();
+        for (int n = 0; n < count; n++) {
+            if (!add(decoder.getX(n), decoder.getY(n), decoder.getWidth(n), decoder.getHeight(n),
+                    decoder.getClassId(n), decoder.getScore(n))) {
+                break;
+            }
+        }
+
+        publish(timestamp);
+    }
+
+    /**
+     * Gets the latest result.
+     * Called from consumer. Returns the same snapshot as before if no new result is published.
+     */
+    public Snapshot acquire() {
+        if ((middle.get() & FRESH) != 0) {
+            front = middle.getAndSet(front) & INDEX_MASK;
+        }
+
+        return buffers[front];
+    }
+}
@@ -0,0 +1,72 @@
+package org.nnsuite.nnstreamer.sample;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.util.AttributeSet;
+import android.view.View;
+
+/**
+ * View to draw the detected objects.
+ *
+ * The sink callback publishes the result into {@link DetectionResultBuffer} and calls {@link #postInvalidate()}.
+ * This view takes the latest result when it is drawn, so the streaming thread never waits for the renderer.
+ */
+public class DetectionView extends View {
+    /* max objects in a frame, same as the output of NMS in the SSD decoder */
+    public static final int MAX_OBJECTS = 100;
+
+    private final DetectionResultBuffer results = new DetectionResultBuffer(MAX_OBJECTS);
+    private final Paint boxPaint = new Paint();
+
+    public DetectionView(Context context) {
+        this(context, null);
+    }
+
+    public DetectionView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+
+        boxPaint.setColor(Color.RED);
+        boxPaint.setStyle(Paint.Style.STROKE);
+        boxPaint.setStrokeWidth(3.0f);
+    }
+
+    /**
+     * Gets the buffer to publish the result.
+     * One thread at a time can publish the result, e.g., the sink callback of the running pipeline.
+     */
+    public DetectionResultBuffer getResultBuffer() {
+        return results;
+    }
+
+    /**
+     * Clears the boxes on the view.
+     * Call this after the pipeline is closed, the caller becomes the producer of the buffer.
+     */
+    public void clear() {
+        results.clear();
+        results.publish(0);
+        postInvalidate();
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+
+        DetectionResultBuffer.Snapshot snapshot = results.acquire();
+        int count = snapshot.getCount();
+
+        /* the boxes are in the coordinates of the model input */
+        float scaleX = (float) getWidth() / SsdDecoder.MODEL_WIDTH;
+        float scaleY = (float) getHeight() / SsdDecoder.MODEL_HEIGHT;
+
+        for (int n = 0; n < count; n++) {
+            float x = snapshot.getX(n) * scaleX;
+            float y = snapshot.getY(n) * scaleY;
+
+            canvas.drawRect(x, y, x + snapshot.getWidth(n) * scaleX,
+                    y + snapshot.getHeight(n) * scaleY, boxPaint);
+        }
+    }
+}
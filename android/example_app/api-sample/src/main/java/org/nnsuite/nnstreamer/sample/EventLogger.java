@@ -0,0 +1,282 @@
+package org.nnsuite.nnstreamer.sample;
+
+import android.util.Log;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Sampled event logger for the callbacks running on the streaming thread.
+ *
+ * Each call site is registered once with a format string and a sampling rate.
+ * When an event is sampled in, its arguments are copied into a preallocated binary ring buffer,
+ * and a background thread formats and prints the events later.
+ * Logging an event never builds a string and never allocates in the caller's thread.
+ *
+ * The ring buffer is lock-free. A producer claims a record with an atomic tail, writes it,
+ * and marks the record published with its sequence number. The flusher owns the head,
+ * copies the published records in order, and then moves the head to free the records.
+ * The producers never wait for the flusher, and the event is dropped if the ring buffer is full.
+ */
+public final class EventLogger {
+    private static final String TAG = "NNStreamer-Sample";
+
+    /**
+     * The maximum number of integer arguments for an event.
+     */
+    public static final int MAX_ARGS = 6;
+
+    /* record layout: timestamp (8 bytes), site (4 bytes), arguments (4 bytes each) */
+    private static final int RECORD_SIZE = 8 + 4 + (4 * MAX_ARGS);
+    private static final int MAX_SITES = 32;
+
+    private final ByteBuffer ring;
+    private final int capacity;
+    private final long flushInterval;
+
+    private final String[] formats = new String[MAX_SITES];
+    private final AtomicIntegerArray sampleRates = new AtomicIntegerArray(MAX_SITES);
+    private final AtomicIntegerArray counters = new AtomicIntegerArray(MAX_SITES);
+    private volatile int sites = 0;
+
+    /* guards the registration and the flusher thread */
+    private final Object lock = new Object();
+
+    private volatile long head = 0; /* next record to be flushed, written by the flusher only */
+    private final AtomicLong tail = new AtomicLong(); /* next record to be claimed */
+    private final AtomicLongArray published; /* sequence + 1 of the record written in each slot */
+    private final AtomicLong dropped = new AtomicLong();
+
+    /* scratch arrays to copy the records out of the ring buffer, guarded by flushLock */
+    private final Object flushLock = new Object();
+    private final long[] scratchTimes;
+    private final int[] scratchValues;
+
+    private Thread flusher = null;
+    private volatile boolean running = false;
+
+    /**
+     * Creates new logger.
+     *
+     * @param records       The number of records in the ring buffer
+     * @param flushInterval The interval (milliseconds) to flush the events
+     */
+    public EventLogger(int records, long flushInterval) {
+        if (records <= 0 || flushInterval <= 0) {
+            throw new IllegalArgumentException("Given parameter is invalid");
+        }
+
+        this.capacity = records;
+        this.flushInterval = flushInterval;
+        this.ring = ByteBuffer.allocateDirect(records * RECORD_SIZE).order(ByteOrder.nativeOrder());
+        this.published = new AtomicLongArray(records);
+        this.scratchTimes = new long[records];
+        this.scratchValues = new int[records * (1 + MAX_ARGS)];
+    }
+
+    /**
+     * Registers new call site.
+     *
+     * @param format     The format string to print the event, with '%d' for each argument
+     * @param sampleRate Log one event out of this number of events (1 to log every event)
+     *
+     * @return The id of the call site
+     */
+    public int registerSite(String format, int sampleRate) {
+        if (format == null || sampleRate <= 0) {
+            throw new IllegalArgumentException("Given parameter is invalid");
+        }
+
+        synchronized (lock) {
+            if (sites >= MAX_SITES) {
+                throw new IllegalStateException("Cannot register more call sites");
+            }
+
+            int site = sites;
+
+            formats[site] = format;
+            sampleRates.set(site, sampleRate);
+            sites = site + 1;
+            return site;
+        }
+    }
+
+    /**
+     * Changes the sampling rate of the call site.
+     */
+    public void setSampleRate(int site, int sampleRate) {
+        if (site < 0 || site >= sites || sampleRate <= 0) {
+            throw new IllegalArgumentException("Given parameter is invalid");
+        }
+
+        sampleRates.set(site, sampleRate);
+    }
+
+    /**
+     * Checks the event of the call site will be logged.
+     * The caller may skip collecting the arguments if this returns false.
+     */
+    public boolean isSampled(int site) {
+        return (counters.getAndIncrement(site) % sampleRates.get(site)) == 0;
+    }
+
+    public void log(int site, int a0) {
+        log(site, a0, 0, 0, 0, 0, 0);
+    }
+
+    public void log(int site, int a0, int a1) {
+        log(site, a0, a1, 0, 0, 0, 0);
+    }
+
+    /**
+     * Logs an event of the call site, if the event is sampled in.
+     */
+    public void log(int site, int a0, int a1, int a2, int a3, int a4, int a5) {
+        if (isSampled(site)) {
+            write(site, a0, a1, a2, a3, a4, a5);
+        }
+    }
+
+    /**
+     * Writes an event into the ring buffer without sampling.
+     * Use this with {@link #isSampled(int)} when several events should be logged together.
+     */
+    public void write(int site, int a0, int a1, int a2, int a3, int a4, int a5) {
+        long seq;
+
+        do {
+            seq = tail.get();
+
+            if (seq - head >= capacity) {
+                /* ring buffer is full, drop the event */
+                dropped.incrementAndGet();
+                return;
+            }
+        } while (!tail.compareAndSet(seq, seq + 1));
+
+        int slot = (int) (seq % capacity);
+        int pos = slot * RECORD_SIZE;
+
+        ring.putLong(pos, System.nanoTime());
+        ring.putInt(pos + 8, site);
+        ring.putInt(pos + 12, a0);
+        ring.putInt(pos + 16, a1);
+        ring.putInt(pos + 20, a2);
+        ring.putInt(pos + 24, a3);
+        ring.putInt(pos + 28, a4);
+        ring.putInt(pos + 32, a5);
+
+        /* ordered store, the flusher reads the record after it sees the sequence */
+        published.lazySet(slot, seq + 1);
+    }
+
+    /**
+     * Starts the background thread to flush the events.
+     */
+    public void start() {
+        synchronized (lock) {
+            if (running) {
+                return;
+            }
+
+            running = true;
+            flusher = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    while (running) {
+                        try {
+                            Thread.sleep(flushInterval);
+                        } catch (InterruptedException e) {
+                            break;
+                        }
+
+                        flush();
+                    }
+                }
+            }, "EventLogger");
+            flusher.setDaemon(true);
+            flusher.start();
+        }
+    }
+
+    /**
+     * Stops the background thread and prints the remaining events.
+     */
+    public void stop() {
+        Thread thread;
+
+        synchronized (lock) {
+            running = false;
+            thread = flusher;
+            flusher = null;
+        }
+
+        if (thread != null) {
+            thread.interrupt();
+
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        flush();
+    }
+
+    /**
+     * Prints all pending events.
+     * The published records are copied into the scratch arrays, and the head is moved after copying them.
+     * A record claimed but not written yet stops the copy, and it is printed in next flush.
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            int count = 0;
+            long next = head;
+            long lost;
+
+            while (count < capacity) {
+                int slot = (int) (next % capacity);
+
+                if (published.get(slot) != next + 1) {
+                    break;
+                }
+
+                int pos = slot * RECORD_SIZE;
+                int base = count * (1 + MAX_ARGS);
+
+                scratchTimes[count] = ring.getLong(pos);
+                for (int i = 0; i <= MAX_ARGS; i++) {
+                    /* site and arguments */
+                    scratchValues[base + i] = ring.getInt(pos + 8 + (4 * i));
+                }
+
+                count++;
+                next++;
+            }
+
+            /* free the records for the producers */
+            head = next;
+            lost = dropped.getAndSet(0);
+
+            for (int n = 0; n < count; n++) {
+                int base = n * (1 + MAX_ARGS);
+                Object[] args = new Object[MAX_ARGS];
+
+                for (int i = 0; i < MAX_ARGS; i++) {
+                    args[i] = scratchValues[base + 1 + i];
+                }
+
+                Log.d(TAG, "[" + (scratchTimes[n] / 1000000L) + "] " +
+                        String.format(formats[scratchValues[base]], args));
+            }
+
+            if (lost > 0) {
+                Log.w(TAG, "Dropped " + lost + " events, ring buffer is full");
+            }
+        }
+    }
+}
@@ -19,6 +19,7 @@ import org.nnsuite.nnstreamer.TensorsInfo;
 
 import java.io.File;
 import java.nio.ByteBuffer;
+import java.util.Random;
 
 /**
  * Sample code to run the application with nnstreamer-api.
@@ -28,6 +29,14 @@ public class MainActivity extends Activity {
     private static final String TAG = "NNStreamer-Sample";
 
     private static final int PERMISSION_REQUEST_CODE = 3;
+
+    /* quantization parameters of the output tensor in image classification model */
+    private static final float MODEL_OUTPUT_SCALE = 0.00390625f;
+    private static final int MODEL_OUTPUT_ZERO_POINT = 0;
+
+    /* labels of object detection model (coco) */
+    private static final int DETECTION_LABEL_SIZE = 91;
+    private static final long DETECTION_RUN_TIME = 3000;
     private static final String[] requiredPermissions = new String[] {
             Manifest.permission.READ_EXTERNAL_STORAGE
     };
@@ -36,12 +45,28 @@ public class MainActivity extends Activity {
     private boolean isFailed = false;
     private CountDownTimer exampleTimer = null;
     private int exampleRun = 0;
+    private DetectionView detectionView;
+    private Pipeline detectionPipe = null;
+
+    /* sampled event logger for sink callbacks */
+    private EventLogger eventLogger = new EventLogger(1024, 500);
+    private int siteReceived;
+    private int siteTensorsInfo;
+    private int siteTensorsData;
+    private int siteTopK;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
 
         setContentView(R.layout.activity_main);
+        detectionView = (DetectionView) findViewById(R.id.detection_view);
+
+        /* register call sites (log every callback, tensors info once and tensors data of every 5th callback) */
+        siteReceived = eventLogger.registerSite("Received new data callback at sink%d %d", 1);
+        siteTensorsInfo = eventLogger.registerSite("Info index %d type: %d dim: %d:%d:%d:%d", 1);
+        siteTensorsData = eventLogger.registerSite("Data index %d received %d", 5);
+        siteTopK = eventLogger.registerSite("Top-1 class %d score %d/1000", 1);
 
         /* check permissions */
         for (String permission : requiredPermissions) {
@@ -63,6 +88,7 @@ public class MainActivity extends Activity {
             /* set timer to run examples */
             exampleRun = 0;
             isFailed = false;
+            eventLogger.start();
             setExampleTimer(200);
         }
     }
@@ -72,6 +98,8 @@ public class MainActivity extends Activity {
         super.onPause();
 
         stopExampleTimer();
+        stopPipeDetection();
+        eventLogger.stop();
     }
 
     /**
@@ -136,8 +164,12 @@ public class MainActivity extends Activity {
 
             @Override
             public void onFinish() {
+                long next = 500;
+
+                stopPipeDetection();
+
                 /* run the examples repeatedly */
-                if (exampleRun > 5) {
+                if (exampleRun > 8) {
                     Log.d(TAG, "Stop timer to run example");
 
                     if (isFailed) {
@@ -147,7 +179,7 @@ public class MainActivity extends Activity {
                     return;
                 }
 
-                int option = (exampleRun % 6);
+                int option = (exampleRun % 9);
 
                 if (option == 1) {
                     Log.d(TAG, "==== Run pipeline example with state callback ====");
@@ -164,13 +196,23 @@ public class MainActivity extends Activity {
                 } else if (option == 5) {
                     Log.d(TAG, "==== Run pipeline example with custom filter ====");
                     runPipeCustomFilter();
+                } else if (option == 6) {
+                    Log.d(TAG, "==== Run decoder benchmark ====");
+                    runDecoderBenchmark();
+                } else if (option == 7) {
+                    Log.d(TAG, "==== Run pipeline example with shared preprocessing ====");
+                    runPipeSharedPreprocess();
+                } else if (option == 8) {
+                    Log.d(TAG, "==== Run pipeline example with object detection ====");
+                    runPipeDetection();
+                    next = DETECTION_RUN_TIME;
                 } else {
                     Log.d(TAG, "==== Run single-shot example ====");
                     runSingle();
                 }
 
                 exampleRun++;
-                setExampleTimer(500);
+                setExampleTimer(next);
             }
         };
 
@@ -195,6 +237,14 @@ public class MainActivity extends Activity {
         return new File(root + "/nnstreamer/tflite_model_img/mobilenet_v1_1.0_224_quant.tflite");
     }
 
+    /**
+     * Get the label table of image classification tf-lite model.
+     */
+    private String[] getExampleLabels() {
+        String root = Environment.getExternalStorageDirectory().getAbsolutePath();
+        return TopKDecoder.loadLabels(new File(root + "/nnstreamer/tflite_model_img/labels.txt"));
+    }
+
     /**
      * Print tensors info.
      *
@@ -246,6 +296,40 @@ public class MainActivity extends Activity {
         }
     }
 
+    /**
+     * Log tensors info and data in the sink callback.
+     *
+     * Unlike {@link #printTensorsInfo(TensorsInfo)} and {@link #printTensorsData(TensorsData)},
+     * this does not build the log string in the streaming thread.
+     * The events are sampled and printed later by {@link EventLogger}.
+     *
+     * The tensors info of the sink is not changed while the pipeline is running,
+     * so it is logged with the first callback only (getting the dimension allocates an array).
+     *
+     * @param received The number of the callbacks of the sink, including this one
+     */
+    private void logTensors(TensorsInfo info, TensorsData data, int received) {
+        if (received == 1) {
+            int num = info.getTensorsCount();
+
+            for (int i = 0; i < num; i++) {
+                int[] dim = info.getTensorDimension(i);
+
+                eventLogger.write(siteTensorsInfo, i, info.getTensorType(i),
+                        dim[0], dim[1], dim[2], dim[3]);
+            }
+        }
+
+        if (!eventLogger.isSampled(siteTensorsData)) {
+            return;
+        }
+
+        int num = data.getTensorsCount();
+        for (int i = 0; i < num; i++) {
+            eventLogger.write(siteTensorsData, i, data.getTensorData(i).capacity(), 0, 0, 0, 0);
+        }
+    }
+
     /**
      * Example to run single-shot.
      */
@@ -272,6 +356,11 @@ public class MainActivity extends Activity {
             /* set timeout (1 second) */
             single.setTimeout(1000);
 
+            /* converter for quantized output, reuse the buffer for each invoke */
+            Dequantizer dequantizer = new Dequantizer(MODEL_OUTPUT_SCALE, MODEL_OUTPUT_ZERO_POINT);
+            float[] scores = null;
+            TopKDecoder topK = new TopKDecoder(3, getExampleLabels());
+
             /* single-shot invoke */
             for (int i = 0; i < 15; i++) {
                 /* dummy input */
@@ -282,6 +371,12 @@ public class MainActivity extends Activity {
                 TensorsData out = single.invoke(in);
                 printTensorsData(out);
 
+                scores = dequantizer.softmax(out.getTensorData(0), scores);
+
+                if (topK.decode(scores, scores.length) > 0) {
+                    Log.d(TAG, "Top-1 label: " + topK.getLabel(0) + " score: " + topK.getScore(0));
+                }
+
                 Thread.sleep(50);
             }
 
@@ -332,16 +427,23 @@ public class MainActivity extends Activity {
 
             Pipeline pipe = new Pipeline(desc, stateCb);
 
+            /* decoder in streaming mode, smoothing the scores across the frames */
+            final TopKDecoder topK = new TopKDecoder(3, getExampleLabels());
+            topK.setDequantizer(new Dequantizer(MODEL_OUTPUT_SCALE, MODEL_OUTPUT_ZERO_POINT));
+            topK.setSmoothing(1001, 0.5f);
+
             /* register sink callback */
             pipe.setSinkCallback("sinkx", new Pipeline.NewDataCallback() {
                 int received = 0;
 
                 @Override
                 public void onNewDataReceived(TensorsData data, TensorsInfo info) {
-                    Log.d(TAG, "Received new data callback " + (++received));
+                    eventLogger.log(siteReceived, 0, ++received);
+                    logTensors(info, data, received);
 
-                    printTensorsInfo(info);
-                    printTensorsData(data);
+                    if (topK.decode(data.getTensorData(0)) > 0) {
+                        eventLogger.log(siteTopK, topK.getIndex(0), (int) (topK.getScore(0) * 1000));
+                    }
                 }
             });
 
@@ -391,10 +493,8 @@ public class MainActivity extends Activity {
 
                 @Override
                 public void onNewDataReceived(TensorsData data, TensorsInfo info) {
-                    Log.d(TAG, "Received new data callback at sink1 " + (++received));
-
-                    printTensorsInfo(info);
-                    printTensorsData(data);
+                    eventLogger.log(siteReceived, 1, ++received);
+                    logTensors(info, data, received);
                 }
             });
 
@@ -403,10 +503,8 @@ public class MainActivity extends Activity {
 
                 @Override
                 public void onNewDataReceived(TensorsData data, TensorsInfo info) {
-                    Log.d(TAG, "Received new data callback at sink2 " + (++received));
-
-                    printTensorsInfo(info);
-                    printTensorsData(data);
+                    eventLogger.log(siteReceived, 2, ++received);
+                    logTensors(info, data, received);
                 }
             });
 
@@ -438,6 +536,88 @@ public class MainActivity extends Activity {
         }
     }
 
+    /**
+     * Example to run pipeline with multiple models, built with {@link PipelineGraphBuilder}.
+     * The classification model and the raw tensor sink have same input size,
+     * so the frame is scaled and converted once and shared with tee.
+     */
+    private void runPipeSharedPreprocess() {
+        File model = getExampleModel();
+
+        if (!model.exists()) {
+            Log.w(TAG, "Cannot find the model file");
+            return;
+        }
+
+        try {
+            PipelineGraphBuilder builder = new PipelineGraphBuilder();
+            String[] preprocess224 = new String[] {
+                    "videoconvert", "videoscale",
+                    "video/x-raw,format=RGB,width=224,height=224", "tensor_converter"
+            };
+            String[] preprocess100 = new String[] {
+                    "videoconvert", "videoscale",
+                    "video/x-raw,format=RGB,width=100,height=100", "tensor_converter"
+            };
+
+            builder.setSource("appsrc name=srcx ! " +
+                    "video/x-raw,format=RGB,width=320,height=240,framerate=(fraction)0/1");
+
+            int classify = builder.addModel("classification", preprocess224,
+                    new String[] { "tensor_filter framework=tensorflow-lite model=" + model.getAbsolutePath() },
+                    "tensor_sink name=sink1");
+            int raw = builder.addModel("raw", preprocess224,
+                    new String[] { "tensor_transform mode=typecast option=float32" },
+                    "tensor_sink name=sink2");
+            int small = builder.addModel("small", preprocess100,
+                    new String[] { "tensor_transform mode=typecast option=float32" },
+                    "tensor_sink name=sink3");
+
+            int option = (1 << classify) | (1 << raw) | (1 << small);
+            String desc = builder.build(option);
+
+            Log.d(TAG, "Pipeline with " + builder.getPreprocessCount(option) + " preprocessing chains: " + desc);
+
+            Pipeline pipe = new Pipeline(desc);
+
+            /* register sink callback */
+            for (int i = 1; i <= 3; i++) {
+                final int index = i;
+
+                pipe.setSinkCallback("sink" + index, new Pipeline.NewDataCallback() {
+                    int received = 0;
+
+                    @Override
+                    public void onNewDataReceived(TensorsData data, TensorsInfo info) {
+                        eventLogger.log(siteReceived, index, ++received);
+                        logTensors(info, data, received);
+                    }
+                });
+            }
+
+            /* start pipeline */
+            pipe.start();
+
+            /* push input buffer */
+            for (int i = 0; i < 15; i++) {
+                /* dummy input */
+                TensorsData in = new TensorsData();
+                in.addTensorData(TensorsData.allocateByteBuffer(3 * 320 * 240));
+
+                Log.d(TAG, "Push input data " + (i + 1));
+
+                pipe.inputData("srcx", in);
+                Thread.sleep(50);
+            }
+
+            pipe.close();
+        } catch (Exception e) {
+            e.printStackTrace();
+            Log.e(TAG, e.getMessage());
+            isFailed = true;
+        }
+    }
+
     /**
      * Example to run pipeline with output-selector.
      */
@@ -463,10 +643,8 @@ public class MainActivity extends Activity {
 
                 @Override
                 public void onNewDataReceived(TensorsData data, TensorsInfo info) {
-                    Log.d(TAG, "Received new data callback at sink1 " + (++received));
-
-                    printTensorsInfo(info);
-                    printTensorsData(data);
+                    eventLogger.log(siteReceived, 1, ++received);
+                    logTensors(info, data, received);
                 }
             });
 
@@ -475,10 +653,8 @@ public class MainActivity extends Activity {
 
                 @Override
                 public void onNewDataReceived(TensorsData data, TensorsInfo info) {
-                    Log.d(TAG, "Received new data callback at sink2 " + (++received));
-
-                    printTensorsInfo(info);
-                    printTensorsData(data);
+                    eventLogger.log(siteReceived, 2, ++received);
+                    logTensors(info, data, received);
                 }
             });
 
@@ -616,10 +792,8 @@ public class MainActivity extends Activity {
 
                 @Override
                 public void onNewDataReceived(TensorsData data, TensorsInfo info) {
-                    Log.d(TAG, "Received new data callback at sinkx " + (++received));
-
-                    printTensorsInfo(info);
-                    printTensorsData(data);
+                    eventLogger.log(siteReceived, 0, ++received);
+                    logTensors(info, data, received);
 
                     ByteBuffer output = data.getTensorData(0);
 
@@ -659,4 +833,144 @@ public class MainActivity extends Activity {
             isFailed = true;
         }
     }
+
+    /**
+     * Example to run object detection and draw the result.
+     *
+     * The sink callback decodes the result in the streaming thread and publishes it to {@link DetectionView},
+     * and the view takes the latest result when it is drawn. The pipeline runs until next example starts.
+     */
+    private void runPipeDetection() {
+        String root = Environment.getExternalStorageDirectory().getAbsolutePath();
+        File model = new File(root + "/nnstreamer/tflite_model/ssd_mobilenet_v2_coco.tflite");
+        File boxPriors = new File(root + "/nnstreamer/tflite_model/box_priors.txt");
+
+        if (!model.exists() || !boxPriors.exists()) {
+            Log.w(TAG, "Cannot find the model file");
+            return;
+        }
+
+        float[] priors = SsdDecoder.loadBoxPriors(boxPriors);
+        if (priors == null) {
+            isFailed = true;
+            return;
+        }
+
+        try {
+            String desc = "videotestsrc is-live=true pattern=ball ! videoconvert ! videoscale ! " +
+                    "video/x-raw,format=RGB,width=" + SsdDecoder.MODEL_WIDTH + ",height=" + SsdDecoder.MODEL_HEIGHT +
+                    ",framerate=(fraction)15/1 ! tensor_converter ! " +
+                    "tensor_transform mode=arithmetic option=typecast:float32,add:-127.5,div:127.5 ! " +
+                    "tensor_filter framework=tensorflow-lite model=" + model.getAbsolutePath() + " ! " +
+                    "tensor_sink name=sinkx";
+
+            final SsdDecoder decoder = new SsdDecoder(priors, DETECTION_LABEL_SIZE, 2000);
+            final DetectionResultBuffer results = detectionView.getResultBuffer();
+
+            detectionPipe = new Pipeline(desc);
+
+            /* register sink callback */
+            detectionPipe.setSinkCallback("sinkx", new Pipeline.NewDataCallback() {
+                int received = 0;
+
+                @Override
+                public void onNewDataReceived(TensorsData data, TensorsInfo info) {
+                    eventLogger.log(siteReceived, 0, ++received);
+
+                    decoder.decode(data);
+                    results.publish(decoder, System.nanoTime());
+                    detectionView.postInvalidate();
+                }
+            });
+
+            /* start pipeline */
+            detectionPipe.start();
+        } catch (Exception e) {
+            e.printStackTrace();
+            Log.e(TAG, e.getMessage());
+            isFailed = true;
+            stopPipeDetection();
+        }
+    }
+
+    /**
+     * Close the pipeline of object detection example, and clear the result on the view.
+     */
+    private void stopPipeDetection() {
+        if (detectionPipe != null) {
+            detectionPipe.close();
+            detectionPipe = null;
+            detectionView.clear();
+        }
+    }
+
+    /**
+     * Example to measure the time to decode the output of SSD and pose estimation model.
+     *
+     * This runs the decoders with random box priors, scores (object detection, 91 labels)
+     * and heatmaps, so it does not need the model file. It prints the average time per frame.
+     */
+    private void runDecoderBenchmark() {
+        final int labelSize = 91;
+        final int warmup = 20;
+        final int iterations = 100;
+
+        Random random = new Random(1);
+
+        /* box priors (ycenter, xcenter, height, width) */
+        float[] priors = new float[SsdDecoder.BOX_SIZE * SsdDecoder.DETECTION_MAX];
+        for (int i = 0; i < priors.length; i++) {
+            priors[i] = (i < 2 * SsdDecoder.DETECTION_MAX) ?
+                    random.nextFloat() : (0.05f + 0.3f * random.nextFloat());
+        }
+
+        ByteBuffer boxes = TensorsData.allocateByteBuffer(4 * SsdDecoder.BOX_SIZE * SsdDecoder.DETECTION_MAX);
+        for (int i = 0; i < SsdDecoder.BOX_SIZE * SsdDecoder.DETECTION_MAX; i++) {
+            boxes.putFloat(i * 4, (float) random.nextGaussian());
+        }
+
+        /* most anchors are background, few scores pass the threshold */
+        ByteBuffer detections = TensorsData.allocateByteBuffer(4 * labelSize * SsdDecoder.DETECTION_MAX);
+        for (int i = 0; i < labelSize * SsdDecoder.DETECTION_MAX; i++) {
+            float logit = (random.nextInt(500) == 0) ? 2.0f : -4.0f;
+            detections.putFloat(i * 4, logit + (float) random.nextGaussian());
+        }
+
+        SsdDecoder decoder = new SsdDecoder(priors, labelSize, 2000);
+
+        for (int i = 0; i < warmup; i++) {
+            decoder.decode(boxes, detections);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            decoder.decode(boxes, detections);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        Log.d(TAG, "SSD decoder: " + (elapsed / iterations / 1000) + " us per frame, " +
+                decoder.getCandidateCount() + " candidates, " + decoder.getCount() + " objects");
+
+        /* heatmaps of pose estimation */
+        int heatmapSize = PoseDecoder.POSE_SIZE * PoseDecoder.POSE_OUT_W * PoseDecoder.POSE_OUT_H;
+        ByteBuffer heatmap = TensorsData.allocateByteBuffer(4 * heatmapSize);
+        for (int i = 0; i < heatmapSize; i++) {
+            heatmap.putFloat(i * 4, random.nextFloat());
+        }
+
+        PoseDecoder pose = new PoseDecoder();
+        pose.setRefinement(true);
+
+        for (int i = 0; i < warmup; i++) {
+            pose.decode(heatmap);
+        }
+
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            pose.decode(heatmap);
+        }
+        elapsed = System.nanoTime() - start;
+
+        Log.d(TAG, "Pose decoder: " + (elapsed / iterations / 1000) + " us per frame");
+    }
 }
@@ -0,0 +1,309 @@
+package org.nnsuite.nnstreamer.sample;
+
+/**
+ * NMS (non-maximum suppression) for the detected boxes.
+ *
+ * The engine works on the primitive arrays of candidates and keeps all buffers preallocated.
+ * To bound the cost regardless of the number of candidates,
+ * 1. only the best candidates (max candidates) are selected and sorted,
+ * 2. the kept boxes are registered into a spatial grid, and a candidate is compared with
+ *    the kept boxes in the cells it overlaps,
+ * 3. the loop stops when the number of kept boxes reaches max output.
+ *
+ * By default, the boxes with different class are not compared (class-aware NMS).
+ *
+ * Note that the instance keeps the buffers, do not share it between the threads.
+ */
+public final class NmsEngine {
+    private final int capacity;
+    private final int maxCandidates;
+    private final int maxOutput;
+    private final int gridSize;
+    private final float cellWidth;
+    private final float cellHeight;
+
+    private float thresholdIou = 0.5f;
+    private boolean classAware = true;
+    private float softSigma = 0.0f;
+    private float softThreshold = 0.0f;
+
+    /* indices of candidates sorted by score */
+    private final int[] order;
+
+    /* grid, linked list of kept boxes for each cell */
+    private final int[] cellHead;
+    private final int[] entryNext;
+    private final int[] entryBox;
+    private int entries = 0;
+
+    /* to check each kept box once for a candidate */
+    private final int[] visited;
+    private int stamp = 0;
+
+    /**
+     * Creates new engine.
+     *
+     * @param capacity      The max number of candidates
+     * @param maxCandidates The number of best candidates to be processed
+     * @param maxOutput     The max number of boxes to be kept
+     * @param width         The width of the area that contains the boxes
+     * @param height        The height of the area that contains the boxes
+     * @param gridSize      The number of cells in each direction
+     */
+    public NmsEngine(int capacity, int maxCandidates, int maxOutput,
+            float width, float height, int gridSize) {
+        if (capacity <= 0 || maxCandidates <= 0 || maxOutput <= 0 ||
+                width <= 0.0f || height <= 0.0f || gridSize <= 0) {
+            throw new IllegalArgumentException("Given parameter is invalid");
+        }
+
+        this.capacity = capacity;
+        this.maxCandidates = Math.min(maxCandidates, capacity);
+        this.maxOutput = maxOutput;
+        this.gridSize = gridSize;
+        this.cellWidth = width / gridSize;
+        this.cellHeight = height / gridSize;
+
+        order = new int[capacity];
+        cellHead = new int[gridSize * gridSize];
+        entryNext = new int[maxOutput * gridSize * gridSize];
+        entryBox = new int[maxOutput * gridSize * gridSize];
+        visited = new int[capacity];
+    }
+
+    /**
+     * Sets the IoU threshold, the candidate overlapped more than this is suppressed.
+     */
+    public void setIouThreshold(float threshold) {
+        if (threshold <= 0.0f || threshold > 1.0f) {
+            throw new IllegalArgumentException("Given parameter is invalid");
+        }
+
+        thresholdIou = threshold;
+    }
+
+    /**
+     * Sets whether the boxes with different class are compared.
+     */
+    public void setClassAware(boolean aware) {
+        classAware = aware;
+    }
+
+    /**
+     * Enables soft-NMS (gaussian).
+     * Instead of suppressing the overlapped candidate, its score is decayed by exp(-iou^2 / sigma)
+     * for each kept box, and the candidate is dropped if the score is less than the threshold.
+     * The candidates are visited in order of the original score.
+     *
+     * @param sigma     The parameter of gaussian decay, 0 to disable soft-NMS
+     * @param threshold The min score of the candidate to be kept
+     */
+    public void setSoftNms(float sigma, float threshold) {
+        if (sigma < 0.0f || threshold < 0.0f) {
+            throw new IllegalArgumentException("Given parameter is invalid");
+        }
+
+        softSigma = sigma;
+        softThreshold = threshold;
+    }
+
+    /**
+     * Runs NMS.
+     * With soft-NMS, the scores of the kept boxes are updated in given array.
+     *
+     * @param x     The x position of the boxes
+     * @param y     The y position of the boxes
+     * @param w     The width of the boxes
+     * @param h     The height of the boxes
+     * @param cls   The class id of the boxes
+     * @param score The score of the boxes
+     * @param count The number of the boxes
+     * @param keep  The array to be filled with the indices of kept boxes, sorted by score
+     *
+     * @return The number of kept boxes
+     */
+    public int run(float[] x, float[] y, float[] w, float[] h, int[] cls, float[] score,
+            int count, int[] keep) {
+        int selected, kept = 0;
+
+        if (count > capacity) {
+            throw new IllegalArgumentException("The number of boxes exceeds the capacity");
+        }
+
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+            visited[i] = 0;
+        }
+        stamp = 0;
+
+        /* select the best candidates, and sort them only */
+        selected = count;
+        if (count > maxCandidates) {
+            select(score, 0, count - 1, maxCandidates);
+            selected = maxCandidates;
+        }
+
+        sort(score, 0, selected - 1);
+
+        for (int i = 0; i < gridSize * gridSize; i++) {
+            cellHead[i] = -1;
+        }
+        entries = 0;
+
+        for (int i = 0; i < selected && kept < maxOutput && kept < keep.length; i++) {
+            int a = order[i];
+            int c0 = cell(x[a], cellWidth);
+            int c1 = cell(x[a] + w[a], cellWidth);
+            int r0 = cell(y[a], cellHeight);
+            int r1 = cell(y[a] + h[a], cellHeight);
+            float decayed = score[a];
+            boolean suppressed = false;
+
+            stamp++;
+
+            for (int r = r0; r <= r1 && !suppressed; r++) {
+                for (int c = c0; c <= c1 && !suppressed; c++) {
+                    for (int e = cellHead[r * gridSize + c]; e >= 0; e = entryNext[e]) {
+                        int b = entryBox[e];
+
+                        if (visited[b] == stamp) {
+                            continue;
+                        }
+                        visited[b] = stamp;
+
+                        if (classAware && cls[a] != cls[b]) {
+                            continue;
+                        }
+
+                        float o = iou(x, y, w, h, a, b);
+
+                        if (softSigma > 0.0f) {
+                            decayed *= (float) Math.exp(-(o * o) / softSigma);
+
+                            if (decayed < softThreshold) {
+                                suppressed = true;
+                                break;
+                            }
+                        } else if (o > thresholdIou) {
+                            suppressed = true;
+                            break;
+                        }
+                    }
+                }
+            }
+
+            if (suppressed) {
+                continue;
+            }
+
+            score[a] = decayed;
+            keep[kept++] = a;
+
+            /* register the kept box into the cells */
+            for (int r = r0; r <= r1; r++) {
+                for (int c = c0; c <= c1; c++) {
+                    int index = r * gridSize + c;
+
+                    entryBox[entries] = a;
+                    entryNext[entries] = cellHead[index];
+                    cellHead[index] = entries++;
+                }
+            }
+        }
+
+        return kept;
+    }
+
+    private int cell(float pos, float size) {
+        int index = (int) (pos / size);
+
+        if (index < 0) {
+            return 0;
+        }
+
+        return (index >= gridSize) ? (gridSize - 1) : index;
+    }
+
+    /**
+     * Intersection over union
+     */
+    private static float iou(float[] x, float[] y, float[] w, float[] h, int a, int b) {
+        float x1 = Math.max(x[a], x[b]);
+        float y1 = Math.max(y[a], y[b]);
+        float x2 = Math.min(x[a] + w[a], x[b] + w[b]);
+        float y2 = Math.min(y[a] + h[a], y[b] + h[b]);
+        float iw = Math.max(0.0f, x2 - x1);
+        float ih = Math.max(0.0f, y2 - y1);
+        float inter = iw * ih;
+        float union = w[a] * h[a] + w[b] * h[b] - inter;
+
+        return (union > 0.0f) ? (inter / union) : 0.0f;
+    }
+
+    /**
+     * Partially sorts the index array, so that the first n elements have the highest scores (quickselect).
+     */
+    private void select(float[] score, int left, int right, int n) {
+        while (left < right) {
+            int p = partition(score, left, right);
+
+            if (p == n) {
+                return;
+            } else if (p < n) {
+                left = p + 1;
+            } else {
+                right = p - 1;
+            }
+        }
+    }
+
+    private int partition(float[] score, int left, int right) {
+        int mid = (left + right) >>> 1;
+        float pivot = score[order[mid]];
+        int store = left;
+
+        swap(mid, right);
+        for (int i = left; i < right; i++) {
+            if (score[order[i]] > pivot) {
+                swap(i, store++);
+            }
+        }
+        swap(store, right);
+
+        return store;
+    }
+
+    /**
+     * Sorts the index array by score in descending order (quicksort).
+     */
+    private void sort(float[] score, int left, int right) {
+        while (left < right) {
+            float pivot = score[order[(left + right) >>> 1]];
+            int i = left, j = right;
+
+            while (i <= j) {
+                while (score[order[i]] > pivot) i++;
+                while (score[order[j]] < pivot) j--;
+
+                if (i <= j) {
+                    swap(i++, j--);
+                }
+            }
+
+            /* recurse into the smaller part */
+            if (j - left < right - i) {
+                sort(score, left, j);
+                left = i;
+            } else {
+                sort(score, i, right);
+                right = j;
+            }
+        }
+    }
+
+    private void swap(int i, int j) {
+        int tmp = order[i];
+        order[i] = order[j];
+        order[j] = tmp;
+    }
+}
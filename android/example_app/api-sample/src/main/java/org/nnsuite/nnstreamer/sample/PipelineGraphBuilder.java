@@ -0,0 +1,239 @@
+package org.nnsuite.nnstreamer.sample;
+
+import android.util.SparseArray;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builder of the pipeline description with multiple models.
+ *
+ * Each model is given with its preprocessing chain (e.g., videoscale ! tensor_converter),
+ * the inference chain (e.g., tensor_filter) and the sink.
+ * The models with identical preprocessing chain share one branch, which feeds a tee,
+ * so the input frame is converted once for the models with same input size.
+ *
+ * The description is built for the set of selected models (bit mask of the model index),
+ * and kept for the same selection until the graph is changed.
+ */
+public final class PipelineGraphBuilder {
+    private static final String TEE_SOURCE = "t_src";
+    private static final String TEE_PREPROCESS = "t_pre";
+
+    /**
+     * Model in the graph.
+     */
+    private static class ModelNode {
+        final String name;
+        final List<String> preprocess;
+        final List<String> inference;
+        final String sink;
+
+        ModelNode(String name, List<String> preprocess, List<String> inference, String sink) {
+            this.name = name;
+            this.preprocess = preprocess;
+            this.inference = inference;
+            this.sink = sink;
+        }
+
+        /**
+         * The key to compare the preprocessing chain, ignoring the whitespaces around the elements.
+         */
+        String getPreprocessKey() {
+            return join(preprocess);
+        }
+    }
+
+    private String source = null;
+    private final List<ModelNode> models = new ArrayList<>();
+    private final SparseArray<String> descriptions = new SparseArray<>();
+
+    /**
+     * Sets the source chain, e.g., "appsrc name=srcx ! video/x-raw,format=RGB,width=640,height=480".
+     */
+    public synchronized PipelineGraphBuilder setSource(String source) {
+        if (source == null || source.trim().isEmpty()) {
+            throw new IllegalArgumentException("Given source is invalid");
+        }
+
+        this.source = source.trim();
+        descriptions.clear();
+        return this;
+    }
+
+    /**
+     * Adds the model into the graph.
+     *
+     * @param name      The name of the model
+     * @param preprocess The elements to convert the source to the input tensor of the model
+     * @param inference The elements to run the model (tensor_filter and decoder)
+     * @param sink      The sink element
+     * @return The index of the model, to select the model with bit mask (1 << index).
+     */
+    public synchronized int addModel(String name, String[] preprocess, String[] inference, String sink) {
+        if (name == null || inference == null || inference.length == 0 ||
+                sink == null || sink.trim().isEmpty()) {
+            throw new IllegalArgumentException("Given model is invalid");
+        }
+
+        if (models.size() >= Integer.SIZE - 1) {
+            throw new IllegalArgumentException("Too many models");
+        }
+
+        for (ModelNode model : models) {
+            if (model.name.equals(name)) {
+                throw new IllegalArgumentException("The model " + name + " is already added");
+            }
+        }
+
+        models.add(new ModelNode(name, normalize(preprocess), normalize(inference), sink.trim()));
+        descriptions.clear();
+        return models.size() - 1;
+    }
+
+    /**
+     * Gets the description with all models.
+     */
+    public synchronized String build() {
+        return build((1 << models.size()) - 1);
+    }
+
+    /**
+     * Gets the description with the selected models.
+     *
+     * @param option The bit mask of the model index
+     */
+    public synchronized String build(int option) {
+        if (source == null) {
+            throw new IllegalStateException("Source is not set");
+        }
+
+        String desc = descriptions.get(option);
+
+        if (desc == null) {
+            desc = buildDescription(option);
+            descriptions.put(option, desc);
+        }
+
+        return desc;
+    }
+
+    /**
+     * Gets the number of the preprocessing chains in the description with the selected models.
+     */
+    public synchronized int getPreprocessCount(int option) {
+        return groupModels(option).size();
+    }
+
+    private String buildDescription(int option) {
+        Map<String, List<ModelNode>> groups = groupModels(option);
+
+        if (groups.isEmpty()) {
+            throw new IllegalArgumentException("No model is selected");
+        }
+
+        StringBuilder desc = new StringBuilder(source);
+
+        if (groups.size() == 1) {
+            /* single preprocessing chain, link it to the source directly */
+            List<ModelNode> group = groups.values().iterator().next();
+
+            appendPreprocess(desc, " ! ", group, TEE_PREPROCESS + "0");
+            return desc.toString();
+        }
+
+        desc.append(" ! tee name=").append(TEE_SOURCE);
+
+        int index = 0;
+        for (List<ModelNode> group : groups.values()) {
+            appendPreprocess(desc, " " + TEE_SOURCE + ". ! queue ! ", group, TEE_PREPROCESS + index);
+            index++;
+        }
+
+        return desc.toString();
+    }
+
+    /**
+     * Appends the preprocessing chain and the models sharing it.
+     */
+    private static void appendPreprocess(StringBuilder desc, String head, List<ModelNode> group, String tee) {
+        String preprocess = group.get(0).getPreprocessKey();
+
+        desc.append(head);
+        if (!preprocess.isEmpty()) {
+            desc.append(preprocess).append(" ! ");
+        }
+
+        if (group.size() == 1) {
+            appendModel(desc, group.get(0));
+            return;
+        }
+
+        desc.append("tee name=").append(tee);
+        for (ModelNode model : group) {
+            desc.append(' ').append(tee).append(". ! queue ! ");
+            appendModel(desc, model);
+        }
+    }
+
+    private static void appendModel(StringBuilder desc, ModelNode model) {
+        desc.append(join(model.inference)).append(" ! ").append(model.sink);
+    }
+
+    /**
+     * Groups the selected models with identical preprocessing chain, in order of the models added.
+     */
+    private Map<String, List<ModelNode>> groupModels(int option) {
+        Map<String, List<ModelNode>> groups = new LinkedHashMap<>();
+
+        for (int i = 0; i < models.size(); i++) {
+            if ((option & (1 << i)) == 0) {
+                continue;
+            }
+
+            ModelNode model = models.get(i);
+            String key = model.getPreprocessKey();
+            List<ModelNode> group = groups.get(key);
+
+            if (group == null) {
+                group = new ArrayList<>();
+                groups.put(key, group);
+            }
+
+            group.add(model);
+        }
+
+        return groups;
+    }
+
+    private static List<String> normalize(String[] elements) {
+        List<String> list = new ArrayList<>();
+
+        if (elements != null) {
+            for (String element : elements) {
+                String trimmed = element.trim().replaceAll("\\s+", " ");
+
+                if (!trimmed.isEmpty()) {
+                    list.add(trimmed);
+                }
+            }
+        }
+
+        return list;
+    }
+
+    private static String join(List<String> elements) {
+        StringBuilder builder = new StringBuilder();
+
+        for (String element : elements) {
+            if (builder.length() > 0) {
+                builder.append(" ! ");
+            }
+            builder.append(element);
+        }
+
+        return builder.toString();
+    }
+}
@@ -0,0 +1,170 @@
+package org.nnsuite.nnstreamer.sample;
+
+import org.nnsuite.nnstreamer.TensorsData;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Decoder for the output of pose estimation model.
+ *
+ * The tensor from pose estimation model:
+ * output[0] float32 [14:96:96:1] (POSE_SIZE:POSE_OUT_W:POSE_OUT_H:1)
+ *
+ * The heatmaps of all keypoints are interleaved, so the decoder finds the max of each keypoint
+ * in one sequential pass over the buffer, instead of scanning the tensor for each keypoint.
+ * Optionally, the position is refined with quadratic interpolation of the neighbor values.
+ *
+ * Note that the instance keeps the result, do not share it between the threads.
+ */
+public final class PoseDecoder {
+    public static final int POSE_SIZE = 14;
+    public static final int POSE_OUT_W = 96;
+    public static final int POSE_OUT_H = 96;
+
+    private static final float THRESHOLD_SCORE = 0.5f;
+
+    private final int[] maxIndex = new int[POSE_SIZE];
+    private final float[] maxValue = new float[POSE_SIZE];
+
+    private final float[] posX = new float[POSE_SIZE];
+    private final float[] posY = new float[POSE_SIZE];
+    private final boolean[] valid = new boolean[POSE_SIZE];
+
+    private float threshold = THRESHOLD_SCORE;
+    private boolean refine = false;
+
+    /**
+     * Sets the min score of the keypoint to be valid (default 0.5).
+     */
+    public void setThreshold(float threshold) {
+        this.threshold = threshold;
+    }
+
+    /**
+     * Enables sub-pixel refinement of the keypoint position.
+     */
+    public void setRefinement(boolean refine) {
+        this.refine = refine;
+    }
+
+    /**
+     * Decodes the output of pose estimation model.
+     *
+     * @return The number of valid keypoints
+     */
+    public int decode(TensorsData data) {
+        if (data.getTensorsCount() != 1) {
+            throw new IllegalArgumentException("Invalid result, the number of tensors is different");
+        }
+
+        return decode(data.getTensorData(0));
+    }
+
+    /**
+     * Decodes the output of pose estimation model.
+     *
+     * @return The number of valid keypoints
+     */
+    public int decode(ByteBuffer heatmap) {
+        final int pixels = POSE_OUT_W * POSE_OUT_H;
+        int found = 0;
+
+        if (heatmap.capacity() < 4 * POSE_SIZE * pixels) {
+            throw new IllegalArgumentException("Invalid result, the size of tensor is different");
+        }
+
+        /* tensors data is native byte order */
+        heatmap.order(ByteOrder.nativeOrder());
+
+        for (int k = 0; k < POSE_SIZE; k++) {
+            maxIndex[k] = 0;
+            maxValue[k] = Float.NEGATIVE_INFINITY;
+        }
+
+        /* one pass, the keypoint index is the innermost dimension */
+        for (int p = 0, offset = 0; p < pixels; p++) {
+            for (int k = 0; k < POSE_SIZE; k++, offset += 4) {
+                float value = heatmap.getFloat(offset);
+
+                if (value > maxValue[k]) {
+                    maxValue[k] = value;
+                    maxIndex[k] = p;
+                }
+            }
+        }
+
+        for (int k = 0; k < POSE_SIZE; k++) {
+            int x = maxIndex[k] % POSE_OUT_W;
+            int y = maxIndex[k] / POSE_OUT_W;
+
+            valid[k] = (maxValue[k] > threshold);
+            posX[k] = x;
+            posY[k] = y;
+
+            if (!valid[k]) {
+                continue;
+            }
+
+            found++;
+
+            if (refine) {
+                if (x > 0 && x < POSE_OUT_W - 1) {
+                    posX[k] += offset(value(heatmap, x - 1, y, k), maxValue[k],
+                            value(heatmap, x + 1, y, k));
+                }
+
+                if (y > 0 && y < POSE_OUT_H - 1) {
+                    posY[k] += offset(value(heatmap, x, y - 1, k), maxValue[k],
+                            value(heatmap, x, y + 1, k));
+                }
+            }
+        }
+
+        return found;
+    }
+
+    /**
+     * Gets the x position of the keypoint in the heatmap (0 to POSE_OUT_W).
+     */
+    public float getX(int k) {
+        return posX[k];
+    }
+
+    /**
+     * Gets the y position of the keypoint in the heatmap (0 to POSE_OUT_H).
+     */
+    public float getY(int k) {
+        return posY[k];
+    }
+
+    public float getScore(int k) {
+        return maxValue[k];
+    }
+
+    /**
+     * Checks the score of the keypoint is higher than the threshold.
+     */
+    public boolean isValid(int k) {
+        return valid[k];
+    }
+
+    private static float value(ByteBuffer heatmap, int x, int y, int k) {
+        return heatmap.getFloat(4 * ((y * POSE_OUT_W + x) * POSE_SIZE + k));
+    }
+
+    /**
+     * Gets the offset of the peak from the parabola fitted with three values.
+     */
+    private static float offset(float prev, float center, float next) {
+        float denominator = prev - 2.0f * center + next;
+
+        if (denominator >= 0.0f) {
+            /* not a peak */
+            return 0.0f;
+        }
+
+        float delta = 0.5f * (prev - next) / denominator;
+        return Math.max(-0.5f, Math.min(0.5f, delta));
+    }
+}
@@ -0,0 +1,332 @@
+package org.nnsuite.nnstreamer.sample;
+
+import android.util.Log;
+
+import org.nnsuite.nnstreamer.TensorsData;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Decoder for the output of SSD (single shot multibox detector) model.
+ *
+ * This is the same as the decoding in the native examples (nnstreamer-ssd),
+ * so the application can decode the result of {@link org.nnsuite.nnstreamer.SingleShot}.
+ *
+ * The tensors from SSD model:
+ * output[0] float32 [4:1:1917:1] (SSD_BOX_SIZE:1:SSD_DETECTION_MAX:1)
+ * output[1] float32 [LABEL_SIZE:1917:1:1] (LABEL_SIZE:SSD_DETECTION_MAX:1:1)
+ *
+ * The box priors are kept in a flat array (structure of arrays), and all buffers for candidates
+ * are allocated when creating the decoder. Decoding a frame does not allocate.
+ *
+ * Note that the instance keeps the result, do not share it between the threads.
+ */
+public final class SsdDecoder {
+    private static final String TAG = "NNStreamer-Sample";
+
+    public static final int BOX_SIZE = 4;
+    public static final int DETECTION_MAX = 1917;
+
+    public static final int MODEL_WIDTH = 300;
+    public static final int MODEL_HEIGHT = 300;
+
+    private static final float Y_SCALE = 10.0f;
+    private static final float X_SCALE = 10.0f;
+    private static final float H_SCALE = 5.0f;
+    private static final float W_SCALE = 5.0f;
+
+    private static final float THRESHOLD_SCORE = 0.5f;
+    private static final float THRESHOLD_IOU = 0.5f;
+
+    private static final int NMS_MAX_CANDIDATES = 300;
+    private static final int NMS_MAX_OUTPUT = 100;
+    private static final int NMS_GRID_SIZE = 8;
+
+    /* box priors, [ycenter x 1917][xcenter x 1917][height x 1917][width x 1917] */
+    private final float[] priors;
+    private final int labelSize;
+
+    /* score threshold of each class in logit space */
+    private final float[] thresholdLogit;
+
+    /* candidates (before NMS) */
+    private final int capacity;
+    private final float[] candX;
+    private final float[] candY;
+    private final float[] candW;
+    private final float[] candH;
+    private final int[] candClass;
+    private final float[] candScore;
+    private int candidates = 0;
+    private int overflow = 0;
+
+    /* result (after NMS), indices of candidates sorted by score */
+    private final NmsEngine nms;
+    private final int[] result;
+    private int resultSize = 0;
+
+    /**
+     * Creates new decoder.
+     *
+     * @param priors    The box priors (4 x 1917), see {@link #loadBoxPriors(File)}
+     * @param labelSize The number of labels (e.g., 91 for coco labels)
+     * @param capacity  The max number of candidates in a frame
+     */
+    public SsdDecoder(float[] priors, int labelSize, int capacity) {
+        if (priors == null || priors.length != BOX_SIZE * DETECTION_MAX ||
+                labelSize < 2 || capacity <= 0) {
+            throw new IllegalArgumentException("Given parameter is invalid");
+        }
+
+        this.priors = priors;
+        this.labelSize = labelSize;
+        this.capacity = capacity;
+
+        thresholdLogit = new float[labelSize];
+        setThreshold(THRESHOLD_SCORE);
+
+        candX = new float[capacity];
+        candY = new float[capacity];
+        candW = new float[capacity];
+        candH = new float[capacity];
+        candClass = new int[capacity];
+        candScore = new float[capacity];
+
+        nms = new NmsEngine(capacity, NMS_MAX_CANDIDATES, NMS_MAX_OUTPUT,
+                MODEL_WIDTH, MODEL_HEIGHT, NMS_GRID_SIZE);
+        nms.setIouThreshold(THRESHOLD_IOU);
+        result = new int[NMS_MAX_OUTPUT];
+    }
+
+    /**
+     * Loads the box priors from the text file (box_priors.txt).
+     * The file has 4 lines, and each line has 1917 values separated by space.
+     *
+     * @return The flat array of box priors, null if failed to read the file
+     */
+    public static float[] loadBoxPriors(File file) {
+        float[] priors = new float[BOX_SIZE * DETECTION_MAX];
+        BufferedReader reader = null;
+
+        try {
+            reader = new BufferedReader(new FileReader(file));
+
+            for (int row = 0; row < BOX_SIZE; row++) {
+                String line = reader.readLine();
+
+                if (line == null) {
+                    Log.e(TAG, "Invalid box priors, the number of rows is " + row);
+                    return null;
+                }
+
+                String[] values = line.trim().split("\\s+");
+                if (values.length < DETECTION_MAX) {
+                    Log.e(TAG, "Invalid box priors, the number of values is " + values.length);
+                    return null;
+                }
+
+                for (int d = 0; d < DETECTION_MAX; d++) {
+                    priors[row * DETECTION_MAX + d] = Float.parseFloat(values[d]);
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            Log.e(TAG, "Failed to load box priors " + e.getMessage());
+            return null;
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+
+        return priors;
+    }
+
+    /**
+     * Sets the score threshold for all classes.
+     *
+     * @param score The probability threshold (0 < score < 1), default 0.5
+     */
+    public void setThreshold(float score) {
+        float logit = toLogit(score);
+
+        for (int c = 0; c < labelSize; c++) {
+            thresholdLogit[c] = logit;
+        }
+    }
+
+    /**
+     * Sets the score threshold of each class.
+     *
+     * @param scores The probability thresholds, indexed by class id
+     */
+    public void setClassThresholds(float[] scores) {
+        if (scores == null || scores.length != labelSize) {
+            throw new IllegalArgumentException("Given parameter is invalid");
+        }
+
+        for (int c = 0; c < labelSize; c++) {
+            thresholdLogit[c] = toLogit(scores[c]);
+        }
+    }
+
+    /**
+     * Converts the probability to logit, the inverse of sigmoid.
+     * Since sigmoid is monotonic, (sigmoid(x) >= p) is the same as (x >= logit(p)).
+     */
+    private static float toLogit(float score) {
+        if (score <= 0.0f || score >= 1.0f) {
+            throw new IllegalArgumentException("Given threshold is invalid");
+        }
+
+        return (float) Math.log(score / (1.0f - score));
+    }
+
+    /**
+     * Decodes the output of SSD model.
+     *
+     * @return The number of detected objects
+     */
+    public int decode(TensorsData data) {
+        if (data.getTensorsCount() != 2) {
+            throw new IllegalArgumentException("Invalid result, the number of tensors is different");
+        }
+
+        return decode(data.getTensorData(0), data.getTensorData(1));
+    }
+
+    /**
+     * Decodes the output of SSD model.
+     *
+     * @param boxes      The buffer of boxes (output[0])
+     * @param detections The buffer of scores (output[1])
+     *
+     * @return The number of detected objects
+     */
+    public int decode(ByteBuffer boxes, ByteBuffer detections) {
+        if (boxes.capacity() < 4 * BOX_SIZE * DETECTION_MAX ||
+                detections.capacity() < 4 * labelSize * DETECTION_MAX) {
+            throw new IllegalArgumentException("Invalid result, the size of tensor is different");
+        }
+
+        /* tensors data is native byte order, read it with local views to keep the caller's buffers unchanged */
+        boxes = boxes.duplicate().order(ByteOrder.nativeOrder());
+        detections = detections.duplicate().order(ByteOrder.nativeOrder());
+
+        candidates = 0;
+        overflow = 0;
+
+        for (int d = 0; d < DETECTION_MAX; d++) {
+            int detect = 4 * labelSize * d;
+            boolean decoded = false;
+            float x = 0.0f, y = 0.0f, width = 0.0f, height = 0.0f;
+
+            for (int c = 1; c < labelSize; c++) {
+                float logit = detections.getFloat(detect + 4 * c);
+
+                /**
+                 * This score cutoff is taken from Tensorflow's demo app.
+                 * There are quite a lot of nodes to be run to convert it to the useful possibility
+                 * scores. As a result of that, this cutoff will cause it to lose good detections in
+                 * some scenarios and generate too much noise in other scenario.
+                 *
+                 * The threshold is compared in logit space, so the sigmoid is computed
+                 * only for the scores which pass the threshold.
+                 */
+                if (logit < thresholdLogit[c]) {
+                    continue;
+                }
+
+                if (candidates >= capacity) {
+                    overflow++;
+                    continue;
+                }
+
+                /* decode the box only if the anchor has a candidate */
+                if (!decoded) {
+                    int box = 4 * BOX_SIZE * d;
+                    float ycenter = boxes.getFloat(box) / Y_SCALE * priors[2 * DETECTION_MAX + d] +
+                            priors[d];
+                    float xcenter = boxes.getFloat(box + 4) / X_SCALE * priors[3 * DETECTION_MAX + d] +
+                            priors[DETECTION_MAX + d];
+                    float h = (float) Math.exp(boxes.getFloat(box + 8) / H_SCALE) * priors[2 * DETECTION_MAX + d];
+                    float w = (float) Math.exp(boxes.getFloat(box + 12) / W_SCALE) * priors[3 * DETECTION_MAX + d];
+
+                    x = (xcenter - w / 2.0f) * MODEL_WIDTH;
+                    y = (ycenter - h / 2.0f) * MODEL_HEIGHT;
+                    width = w * MODEL_WIDTH;
+                    height = h * MODEL_HEIGHT;
+                    decoded = true;
+                }
+
+                candX[candidates] = x;
+                candY[candidates] = y;
+                candW[candidates] = width;
+                candH[candidates] = height;
+                candClass[candidates] = c;
+                candScore[candidates] = 1.0f / (1.0f + (float) Math.exp(-logit));
+                candidates++;
+            }
+        }
+
+        if (overflow > 0) {
+            Log.w(TAG, "Too many candidates, dropped " + overflow);
+        }
+
+        resultSize = nms.run(candX, candY, candW, candH, candClass, candScore, candidates, result);
+        return resultSize;
+    }
+
+    /**
+     * Gets the NMS engine, to change the options such as soft-NMS.
+     */
+    public NmsEngine getNmsEngine() {
+        return nms;
+    }
+
+    /**
+     * Gets the number of detected objects.
+     */
+    public int getCount() {
+        return resultSize;
+    }
+
+    /**
+     * Gets the number of candidates before NMS in last frame.
+     */
+    public int getCandidateCount() {
+        return candidates;
+    }
+
+    public float getX(int n) {
+        return candX[result[n]];
+    }
+
+    public float getY(int n) {
+        return candY[result[n]];
+    }
+
+    public float getWidth(int n) {
+        return candW[result[n]];
+    }
+
+    public float getHeight(int n) {
+        return candH[result[n]];
+    }
+
+    public int getClassId(int n) {
+        return candClass[result[n]];
+    }
+
+    public float getScore(int n) {
+        return candScore[result[n]];
+    }
+}
@@ -0,0 +1,298 @@
+package org.nnsuite.nnstreamer.sample;
+
+import android.util.Log;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Decoder to get top-K classes from the output of image classification model.
+ *
+ * The decoder keeps a bounded min-heap of K entries, so it does not sort all classes.
+ * All buffers are allocated when creating the decoder, decoding a frame does not allocate.
+ *
+ * In streaming mode, the decoder keeps an exponential moving average of the scores
+ * to smooth the result across the frames.
+ *
+ * Note that the instance keeps the result, do not share it between the threads.
+ */
+public final class TopKDecoder {
+    private static final String TAG = "NNStreamer-Sample";
+
+    /* label tables loaded once and shared with all decoders */
+    private static final HashMap<String, String[]> labelCache = new HashMap<>();
+
+    private final int k;
+    private final String[] labels;
+
+    /* min-heap of K entries, the root is the smallest score */
+    private final int[] heapIndex;
+    private final float[] heapScore;
+    private int heapSize = 0;
+
+    /* result, sorted by score in descending order */
+    private final int[] resultIndex;
+    private final float[] resultScore;
+    private int resultSize = 0;
+
+    private Dequantizer dequantizer = null;
+    private float smoothing = 0.0f;
+    private float[] smoothed = null;
+    private boolean hasHistory = false;
+
+    /**
+     * Creates new decoder.
+     *
+     * @param k      The number of classes to be decoded
+     * @param labels The label table (can be null)
+     */
+    public TopKDecoder(int k, String[] labels) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("Given parameter is invalid");
+        }
+
+        this.k = k;
+        this.labels = labels;
+        this.heapIndex = new int[k];
+        this.heapScore = new float[k];
+        this.resultIndex = new int[k];
+        this.resultScore = new float[k];
+    }
+
+    /**
+     * Loads the label file, or gets the table loaded before.
+     * Each line of the file is a label, and the strings are interned.
+     *
+     * @return The label table, null if failed to read the file
+     */
+    public static String[] loadLabels(File file) {
+        String path = file.getAbsolutePath();
+
+        synchronized (labelCache) {
+            String[] table = labelCache.get(path);
+
+            if (table != null) {
+                return table;
+            }
+
+            BufferedReader reader = null;
+            ArrayList<String> lines = new ArrayList<>();
+
+            try {
+                String line;
+
+                reader = new BufferedReader(new FileReader(file));
+                while ((line = reader.readLine()) != null) {
+                    lines.add(line.intern());
+                }
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to read labels " + e.getMessage());
+                return null;
+            } finally {
+                if (reader != null) {
+                    try {
+                        reader.close();
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
+                }
+            }
+
+            table = lines.toArray(new String[lines.size()]);
+            labelCache.put(path, table);
+            return table;
+        }
+    }
+
+    /**
+     * Sets the converter for the quantized output.
+     * If this is not set, the score of uint8 output is the quantized value.
+     */
+    public void setDequantizer(Dequantizer dequantizer) {
+        this.dequantizer = dequantizer;
+    }
+
+    /**
+     * Enables streaming mode.
+     *
+     * @param classes   The number of classes in the output
+     * @param smoothing The weight of previous frames, 0 to disable streaming mode (0 <= smoothing < 1)
+     */
+    public void setSmoothing(int classes, float smoothing) {
+        if (smoothing < 0.0f || smoothing >= 1.0f) {
+            throw new IllegalArgumentException("Given parameter is invalid");
+        }
+
+        this.smoothing = smoothing;
+        this.smoothed = (smoothing > 0.0f) ? new float[classes] : null;
+        this.hasHistory = false;
+    }
+
+    /**
+     * Clears the history of streaming mode.
+     */
+    public void reset() {
+        hasHistory = false;
+        resultSize = 0;
+    }
+
+    /**
+     * Decodes the uint8 output.
+     * The position of given buffer is not changed.
+     *
+     * @return The number of decoded classes
+     */
+    public int decode(ByteBuffer data) {
+        int size = data.remaining();
+        int offset = data.position();
+
+        heapSize = 0;
+        for (int i = 0; i < size; i++) {
+            int q = data.get(offset + i) & 0xFF;
+            float score = (dequantizer != null) ? dequantizer.get(q) : q;
+
+            offer(i, smooth(i, score));
+        }
+
+        return finish();
+    }
+
+    /**
+     * Decodes the float scores.
+     *
+     * @return The number of decoded classes
+     */
+    public int decode(float[] scores, int size) {
+        heapSize = 0;
+        for (int i = 0; i < size; i++) {
+            offer(i, smooth(i, scores[i]));
+        }
+
+        return finish();
+    }
+
+    /**
+     * Gets the number of decoded classes.
+     */
+    public int getCount() {
+        return resultSize;
+    }
+
+    /**
+     * Gets the class index of n-th result.
+     */
+    public int getIndex(int n) {
+        return resultIndex[n];
+    }
+
+    /**
+     * Gets the score of n-th result.
+     */
+    public float getScore(int n) {
+        return resultScore[n];
+    }
+
+    /**
+     * Gets the label of n-th result.
+     *
+     * @return The label, null if the label table does not have the class
+     */
+    public String getLabel(int n) {
+        int index = resultIndex[n];
+
+        if (labels == null || index >= labels.length) {
+            return null;
+        }
+
+        return labels[index];
+    }
+
+    private float smooth(int index, float score) {
+        if (smoothed == null || index >= smoothed.length) {
+            return score;
+        }
+
+        if (hasHistory) {
+            score = smoothing * smoothed[index] + (1.0f - smoothing) * score;
+        }
+
+        smoothed[index] = score;
+        return score;
+    }
+
+    private void offer(int index, float score) {
+        if (heapSize < k) {
+            /* sift up */
+            int i = heapSize++;
+
+            while (i > 0) {
+                int parent = (i - 1) >> 1;
+
+                if (heapScore[parent] <= score) {
+                    break;
+                }
+
+                heapIndex[i] = heapIndex[parent];
+                heapScore[i] = heapScore[parent];
+                i = parent;
+            }
+
+            heapIndex[i] = index;
+            heapScore[i] = score;
+        } else if (score > heapScore[0]) {
+            siftDown(index, score);
+        }
+    }
+
+    private void siftDown(int index, float score) {
+        int i = 0;
+
+        while (true) {
+            int child = (i << 1) + 1;
+
+            if (child >= heapSize) {
+                break;
+            }
+
+            if (child + 1 < heapSize && heapScore[child + 1] < heapScore[child]) {
+                child++;
+            }
+
+            if (heapScore[child] >= score) {
+                break;
+            }
+
+            heapIndex[i] = heapIndex[child];
+            heapScore[i] = heapScore[child];
+            i = child;
+        }
+
+        heapIndex[i] = index;
+        heapScore[i] = score;
+    }
+
+    private int finish() {
+        if (smoothed != null) {
+            hasHistory = true;
+        }
+
+        /* pop the smallest entry and fill the result from the end */
+        resultSize = heapSize;
+        for (int n = resultSize - 1; n >= 0; n--) {
+            resultIndex[n] = heapIndex[0];
+            resultScore[n] = heapScore[0];
+
+            heapSize--;
+            if (heapSize > 0) {
+                siftDown(heapIndex[heapSize], heapScore[heapSize]);
+            }
+        }
+
+        return resultSize;
+    }
+}
@@ -0,0 +1,461 @@
+/**
+ * @file	nnstreamer-ex-cache.c
+ * @date	19 October 2026
+ * @brief	Binary cache for box priors and label files
+ * @bug		No known bugs
+ *
+ * Cache file is saved in the same directory of the text file (e.g., box_priors.txt.cache).
+ * [header][payload]
+ * - box priors: rows x columns float values
+ * - labels: (count + 1) offsets, and null-terminated strings
+ * The checksum covers the header fields and the payload, and the payload is checked with the count before it is used.
+ */
+
+#include <string.h>
+#include <glib.h>
+#include <glib/gstdio.h>
+
+#include "nnstreamer-jni.h"
+#include "nnstreamer-ex-cache.h"
+
+#define CACHE_MAGIC 0x43534e4e  /* "NNSC" */
+#define CACHE_VERSION 2
+#define CACHE_SUFFIX ".cache"
+
+#define CACHE_TYPE_BOX_PRIORS 1
+#define CACHE_TYPE_LABELS 2
+
+/**
+ * @brief Header of cache file.
+ */
+typedef struct
+{
+  guint32 magic;
+  guint32 version;
+  guint32 type;
+  guint32 count;                /**< number of values (box priors) or labels */
+  gint64 mtime;                 /**< modification time of the text file */
+  gint64 size;                  /**< size of the text file */
+  guint32 checksum;             /**< checksum of header (with zero checksum) and payload */
+  guint32 payload_size;         /**< size of payload */
+} cache_header_s;
+
+/**
+ * @brief Update the hash with data (FNV-1a).
+ */
+static guint32
+cache_hash (guint32 hash, const guint8 * data, const gsize size)
+{
+  gsize i;
+
+  for (i = 0; i < size; i++) {
+    hash ^= data[i];
+    hash *= 16777619u;
+  }
+
+  return hash;
+}
+
+/**
+ * @brief Get the checksum of the header fields and payload.
+ */
+static guint32
+cache_checksum (const cache_header_s * header, const guint8 * payload)
+{
+  cache_header_s fields = *header;
+  guint32 hash;
+
+  fields.checksum = 0;
+  hash = cache_hash (2166136261u, (const guint8 *) &fields, sizeof (fields));
+  return cache_hash (hash, payload, header->payload_size);
+}
+
+/**
+ * @brief Check the payload has the values of given count.
+ * The label table should have (count + 1) offsets in order, and each label should be null-terminated in the payload.
+ */
+static gboolean
+cache_validate_payload (const guint8 * payload, const gsize payload_size,
+    const guint32 type, const guint32 count)
+{
+  const guint32 *offsets;
+  gsize table_size, strings_size;
+  guint32 i;
+
+  if (type == CACHE_TYPE_BOX_PRIORS)
+    return (payload_size == sizeof (gfloat) * (gsize) count);
+
+  if (type != CACHE_TYPE_LABELS)
+    return FALSE;
+
+  if (count >= payload_size / sizeof (guint32))
+    return FALSE;
+
+  table_size = sizeof (guint32) * ((gsize) count + 1);
+  strings_size = payload_size - table_size;
+  offsets = (const guint32 *) payload;
+
+  if (offsets[0] != 0 || offsets[count] != strings_size)
+    return FALSE;
+
+  for (i = 0; i < count; i++) {
+    if (offsets[i + 1] <= offsets[i] || offsets[i + 1] > strings_size)
+      return FALSE;
+
+    if (payload[table_size + offsets[i + 1] - 1] != '\0')
+      return FALSE;
+  }
+
+  return TRUE;
+}
+
+/**
+ * @brief Get the stat of the text file.
+ */
+static gboolean
+cache_stat_source (const gchar * path, gint64 * mtime, gint64 * size)
+{
+  GStatBuf st;
+
+  if (g_stat (path, &st) != 0) {
+    nns_loge ("Failed to get the stat of %s", path);
+    return FALSE;
+  }
+
+  *mtime = (gint64) st.st_mtime;
+  *size = (gint64) st.st_size;
+  return TRUE;
+}
+
+/**
+ * @brief Check the cache data is valid.
+ * @return The payload, NULL if the cache is invalid.
+ */
+static const guint8 *
+cache_validate (const gchar * data, const gsize size, const guint32 type,
+    const gint64 mtime, const gint64 src_size, guint32 * count)
+{
+  const cache_header_s *header = (const cache_header_s *) data;
+  const guint8 *payload;
+
+  if (data == NULL || size < sizeof (cache_header_s))
+    return NULL;
+
+  if (header->magic != CACHE_MAGIC || header->version != CACHE_VERSION ||
+      header->type != type || header->mtime != mtime ||
+      header->size != src_size ||
+      header->payload_size != size - sizeof (cache_header_s))
+    return NULL;
+
+  payload = (const guint8 *) data + sizeof (cache_header_s);
+  if (cache_checksum (header, payload) != header->checksum)
+    return NULL;
+
+  if (!cache_validate_payload (payload, header->payload_size, type,
+          header->count))
+    return NULL;
+
+  *count = header->count;
+  return payload;
+}
+
+/**
+ * @brief Write the cache file. The file is replaced atomically.
+ * @return Newly allocated cache data.
+ */
+static gchar *
+cache_write (const gchar * cache_path, const guint32 type, const guint32 count,
+    const gint64 mtime, const gint64 src_size, const gpointer payload,
+    const gsize payload_size, gsize * size)
+{
+  cache_header_s header;
+  gchar *data;
+  GError *error = NULL;
+
+  header.magic = CACHE_MAGIC;
+  header.version = CACHE_VERSION;
+  header.type = type;
+  header.count = count;
+  header.mtime = mtime;
+  header.size = src_size;
+  header.payload_size = (guint32) payload_size;
+  header.checksum = cache_checksum (&header, (const guint8 *) payload);
+
+  *size = sizeof (cache_header_s) + payload_size;
+  data = (gchar *) g_malloc (*size);
+  memcpy (data, &header, sizeof (cache_header_s));
+  memcpy (data + sizeof (cache_header_s), payload, payload_size);
+
+  if (!g_file_set_contents (cache_path, data, *size, &error)) {
+    /* cannot save the cache, use the data in memory */
+    nns_logd ("Failed to write cache %s: %s", cache_path, error->message);
+    g_clear_error (&error);
+  }
+
+  return data;
+}
+
+/**
+ * @brief Map the cache file.
+ */
+static GMappedFile *
+cache_map (const gchar * cache_path)
+{
+  GMappedFile *mapped;
+
+  if (!g_file_test (cache_path, G_FILE_TEST_EXISTS))
+    return NULL;
+
+  mapped = g_mapped_file_new (cache_path, FALSE, NULL);
+  if (mapped == NULL)
+    nns_logd ("Failed to map cache %s", cache_path);
+
+  return mapped;
+}
+
+/**
+ * @brief Parse box priors from the text file.
+ */
+static gboolean
+cache_parse_box_priors (const gchar * path, gfloat * priors,
+    const guint rows, const guint columns)
+{
+  gchar *contents = NULL;
+  gchar **lines;
+  gboolean ret = TRUE;
+  guint row, col;
+
+  if (!g_file_get_contents (path, &contents, NULL, NULL)) {
+    nns_loge ("Failed to open file %s", path);
+    return FALSE;
+  }
+
+  lines = g_strsplit (contents, "\n", -1);
+  g_free (contents);
+
+  for (row = 0; row < rows && ret; row++) {
+    gchar *pos, *end;
+
+    if (lines[row] == NULL) {
+      nns_loge ("Invalid box priors, the number of rows is %u", row);
+      ret = FALSE;
+      break;
+    }
+
+    pos = lines[row];
+    for (col = 0; col < columns; col++) {
+      priors[row * columns + col] = (gfloat) g_ascii_strtod (pos, &end);
+
+      if (end == pos) {
+        nns_loge ("Invalid box priors, row %u has %u values", row, col);
+        ret = FALSE;
+        break;
+      }
+
+      pos = end;
+    }
+  }
+
+  g_strfreev (lines);
+  return ret;
+}
+
+/**
+ * @brief Load box priors.
+ */
+gboolean
+nns_ex_cache_load_box_priors (const gchar * path, gfloat * priors,
+    const guint rows, const guint columns)
+{
+  gchar *cache_path, *data;
+  GMappedFile *mapped;
+  const guint8 *payload;
+  gint64 mtime, size;
+  guint32 count;
+  gsize data_size;
+  gboolean ret = FALSE;
+
+  g_return_val_if_fail (path != NULL && priors != NULL, FALSE);
+
+  if (!cache_stat_source (path, &mtime, &size))
+    return FALSE;
+
+  cache_path = g_strconcat (path, CACHE_SUFFIX, NULL);
+
+  mapped = cache_map (cache_path);
+  if (mapped) {
+    payload = cache_validate (g_mapped_file_get_contents (mapped),
+        g_mapped_file_get_length (mapped), CACHE_TYPE_BOX_PRIORS, mtime, size,
+        &count);
+
+    if (payload && count == rows * columns) {
+      memcpy (priors, payload, sizeof (gfloat) * count);
+      ret = TRUE;
+    }
+
+    g_mapped_file_unref (mapped);
+  }
+
+  if (!ret) {
+    nns_logd ("Cannot find valid cache, load box priors from %s", path);
+
+    if (cache_parse_box_priors (path, priors, rows, columns)) {
+      data = cache_write (cache_path, CACHE_TYPE_BOX_PRIORS, rows * columns,
+          mtime, size, priors, sizeof (gfloat) * rows * columns, &data_size);
+      g_free (data);
+      ret = TRUE;
+    }
+  }
+
+  g_free (cache_path);
+  return ret;
+}
+
+/**
+ * @brief Parse labels from the text file and build the payload.
+ */
+static gpointer
+cache_parse_labels (const gchar * path, guint32 * count, gsize * size)
+{
+  gchar *contents = NULL;
+  gchar **lines;
+  guint32 *offsets;
+  guint8 *payload;
+  gsize strings_size = 0;
+  guint i, n;
+
+  if (!g_file_get_contents (path, &contents, NULL, NULL)) {
+    nns_loge ("Failed to open file %s", path);
+    return NULL;
+  }
+
+  lines = g_strsplit (contents, "\n", -1);
+  g_free (contents);
+
+  /* the last empty line is not a label */
+  n = g_strv_length (lines);
+  if (n > 0 && lines[n - 1][0] == '\0')
+    n--;
+
+  for (i = 0; i < n; i++)
+    strings_size += strlen (lines[i]) + 1;
+
+  *count = n;
+  *size = sizeof (guint32) * (n + 1) + strings_size;
+  payload = (guint8 *) g_malloc (*size);
+
+  offsets = (guint32 *) payload;
+  offsets[0] = 0;
+  for (i = 0; i < n; i++) {
+    gsize len = strlen (lines[i]) + 1;
+
+    memcpy (payload + sizeof (guint32) * (n + 1) + offsets[i], lines[i], len);
+    offsets[i + 1] = offsets[i] + len;
+  }
+
+  g_strfreev (lines);
+  return payload;
+}
+
+/**
+ * @brief Set the label table with cache data.
+ */
+static gboolean
+cache_set_labels (nns_ex_labels_s * labels, const gchar * data, const gsize size,
+    const gint64 mtime, const gint64 src_size)
+{
+  const guint8 *payload;
+  guint32 count;
+
+  payload = cache_validate (data, size, CACHE_TYPE_LABELS, mtime, src_size,
+      &count);
+  if (payload == NULL)
+    return FALSE;
+
+  labels->count = count;
+  labels->offsets = (const guint32 *) payload;
+  labels->strings = (const gchar *) (payload + sizeof (guint32) * (count + 1));
+  return TRUE;
+}
+
+/**
+ * @brief Load labels.
+ */
+gboolean
+nns_ex_cache_load_labels (const gchar * path, nns_ex_labels_s * labels)
+{
+  gchar *cache_path;
+  gpointer payload;
+  gint64 mtime, size;
+  guint32 count;
+  gsize payload_size, data_size;
+  gboolean ret = FALSE;
+
+  g_return_val_if_fail (path != NULL && labels != NULL, FALSE);
+
+  memset (labels, 0, sizeof (nns_ex_labels_s));
+
+  if (!cache_stat_source (path, &mtime, &size))
+    return FALSE;
+
+  cache_path = g_strconcat (path, CACHE_SUFFIX, NULL);
+
+  labels->mapped = cache_map (cache_path);
+  if (labels->mapped) {
+    ret = cache_set_labels (labels, g_mapped_file_get_contents (labels->mapped),
+        g_mapped_file_get_length (labels->mapped), mtime, size);
+
+    if (!ret) {
+      g_mapped_file_unref (labels->mapped);
+      labels->mapped = NULL;
+    }
+  }
+
+  if (!ret) {
+    nns_logd ("Cannot find valid cache, load labels from %s", path);
+
+    payload = cache_parse_labels (path, &count, &payload_size);
+    if (payload) {
+      labels->data = cache_write (cache_path, CACHE_TYPE_LABELS, count,
+          mtime, size, payload, payload_size, &data_size);
+      g_free (payload);
+
+      ret = cache_set_labels (labels, labels->data, data_size, mtime, size);
+    }
+  }
+
+  g_free (cache_path);
+
+  if (!ret)
+    nns_ex_cache_free_labels (labels);
+
+  return ret;
+}
+
+/**
+ * @brief Get the label with given index.
+ */
+const gchar *
+nns_ex_cache_get_label (const nns_ex_labels_s * labels, const guint index)
+{
+  if (labels == NULL || index >= labels->count)
+    return NULL;
+
+  return labels->strings + labels->offsets[index];
+}
+
+/**
+ * @brief Free the label table.
+ */
+void
+nns_ex_cache_free_labels (nns_ex_labels_s * labels)
+{
+  if (labels == NULL)
+    return;
+
+  if (labels->mapped)
+    g_mapped_file_unref (labels->mapped);
+
+  g_free (labels->data);
+  memset (labels, 0, sizeof (nns_ex_labels_s));
+}
@@ -0,0 +1,65 @@
+/**
+ * @file	nnstreamer-ex-cache.h
+ * @date	19 October 2026
+ * @brief	Binary cache for box priors and label files
+ * @bug		No known bugs
+ *
+ * The examples read box priors and labels from text files on every init.
+ * This converts the files once into a binary cache (versioned, validated by mtime, size and checksum),
+ * and maps the cache on later starts.
+ */
+
+#ifndef __NNSTREAMER_EX_CACHE_H__
+#define __NNSTREAMER_EX_CACHE_H__
+
+#include <glib.h>
+
+#ifdef __cplusplus
+extern "C"
+{
+#endif
+
+/**
+ * @brief Label table loaded from the cache.
+ */
+typedef struct
+{
+  GMappedFile *mapped;          /**< mapped cache file */
+  gchar *data;                  /**< cache data in memory, if failed to map the cache */
+  guint count;                  /**< number of labels */
+  const guint32 *offsets;       /**< offset of each label in strings */
+  const gchar *strings;         /**< null-terminated labels */
+} nns_ex_labels_s;
+
+/**
+ * @brief Load box priors, the file has a row of values separated by space for each line.
+ * @param path The path of text file
+ * @param priors The array to be filled (rows x columns)
+ */
+gboolean nns_ex_cache_load_box_priors (const gchar * path, gfloat * priors,
+    const guint rows, const guint columns);
+
+/**
+ * @brief Load labels, the file has a label for each line.
+ * @param path The path of text file
+ * @param labels The label table to be filled, call nns_ex_cache_free_labels() to release it
+ */
+gboolean nns_ex_cache_load_labels (const gchar * path, nns_ex_labels_s * labels);
+
+/**
+ * @brief Get the label with given index.
+ * @return The label, NULL if the index is out of range.
+ */
+const gchar *nns_ex_cache_get_label (const nns_ex_labels_s * labels,
+    const guint index);
+
+/**
+ * @brief Free the label table.
+ */
+void nns_ex_cache_free_labels (nns_ex_labels_s * labels);
+
+#ifdef __cplusplus
+}
+#endif
+
+#endif /* __NNSTREAMER_EX_CACHE_H__ */
@@ -0,0 +1,253 @@
+/**
+ * @file	nnstreamer-ex-tracker.c
+ * @date	19 October 2026
+ * @brief	IoU-based multi-object tracker for detection examples
+ * @bug		No known bugs
+ */
+
+#include <string.h>
+#include <glib.h>
+
+#include "nnstreamer-ex-tracker.h"
+
+/**
+ * @brief Weight of the latest velocity.
+ */
+#define TRACKER_VELOCITY_ALPHA 0.5f
+
+/**
+ * @brief Max duration to extrapolate the box (ns).
+ */
+#define TRACKER_MAX_EXTRAPOLATION (G_GINT64_CONSTANT (500000000))
+
+/**
+ * @brief Nanoseconds per second, to get the velocity per second.
+ */
+#define TRACKER_NSEC_PER_SEC 1000000000.f
+
+/**
+ * @brief Get the box extrapolated with constant velocity.
+ */
+static void
+tracker_extrapolate (const nns_ex_track_s * track, const gint64 timestamp,
+    nns_ex_box_s * box)
+{
+  gint64 diff;
+  gfloat dt;
+
+  diff = timestamp - track->timestamp;
+  diff = CLAMP (diff, -TRACKER_MAX_EXTRAPOLATION, TRACKER_MAX_EXTRAPOLATION);
+  dt = (gfloat) diff / TRACKER_NSEC_PER_SEC;
+
+  *box = track->box;
+  box->x += track->vx * dt;
+  box->y += track->vy * dt;
+  box->width = MAX (1.f, box->width + track->vw * dt);
+  box->height = MAX (1.f, box->height + track->vh * dt);
+}
+
+/**
+ * @brief Intersection of union
+ */
+static gfloat
+tracker_iou (const nns_ex_box_s * a, const nns_ex_box_s * b)
+{
+  gfloat x1 = MAX (a->x, b->x);
+  gfloat y1 = MAX (a->y, b->y);
+  gfloat x2 = MIN (a->x + a->width, b->x + b->width);
+  gfloat y2 = MIN (a->y + a->height, b->y + b->height);
+  gfloat inter = MAX (0.f, x2 - x1) * MAX (0.f, y2 - y1);
+  gfloat area = a->width * a->height + b->width * b->height - inter;
+
+  return (area > 0.f) ? (inter / area) : 0.f;
+}
+
+/**
+ * @brief Update the velocity of the track with new box.
+ */
+static void
+tracker_update_velocity (gfloat * velocity, const gfloat prev,
+    const gfloat next, const gfloat dt)
+{
+  gfloat v = (next - prev) / dt;
+
+  *velocity = TRACKER_VELOCITY_ALPHA * v +
+      (1.f - TRACKER_VELOCITY_ALPHA) * (*velocity);
+}
+
+/**
+ * @brief Initialize the tracker.
+ */
+void
+nns_ex_tracker_init (nns_ex_tracker_s * tracker,
+    const gfloat iou_threshold, const guint max_missed)
+{
+  g_return_if_fail (tracker != NULL);
+
+  memset (tracker, 0, sizeof (nns_ex_tracker_s));
+  tracker->iou_threshold = iou_threshold;
+  tracker->max_missed = max_missed;
+}
+
+/**
+ * @brief Update the tracks with the detected boxes.
+ */
+void
+nns_ex_tracker_update (nns_ex_tracker_s * tracker,
+    const nns_ex_box_s * boxes, const guint count, const gint64 timestamp)
+{
+  nns_ex_box_s predicted[NNS_EX_TRACKER_MAX];
+  gint matched[NNS_EX_TRACKER_MAX];
+  guint num = MIN (count, NNS_EX_TRACKER_MAX);
+  gboolean used[NNS_EX_TRACKER_MAX];
+  guint i, j, t;
+
+  g_return_if_fail (tracker != NULL);
+
+  tracker->detected_frames++;
+
+  for (t = 0; t < tracker->count; t++) {
+    tracker_extrapolate (&tracker->tracks[t], timestamp, &predicted[t]);
+    matched[t] = -1;
+  }
+
+  for (i = 0; i < num; i++)
+    used[i] = FALSE;
+
+  /* greedy association, the pair with highest IoU first */
+  while (TRUE) {
+    gfloat best = tracker->iou_threshold;
+    gint best_track = -1, best_box = -1;
+
+    for (t = 0; t < tracker->count; t++) {
+      if (matched[t] >= 0)
+        continue;
+
+      for (i = 0; i < num; i++) {
+        gfloat o;
+
+        if (used[i] || boxes[i].class_id != tracker->tracks[t].box.class_id)
+          continue;
+
+        o = tracker_iou (&predicted[t], &boxes[i]);
+        if (o > best) {
+          best = o;
+          best_track = t;
+          best_box = i;
+        }
+      }
+    }
+
+    if (best_track < 0)
+      break;
+
+    matched[best_track] = best_box;
+    used[best_box] = TRUE;
+  }
+
+  /* update the tracks, and remove the tracks missed too many times */
+  for (t = 0, j = 0; t < tracker->count; t++) {
+    nns_ex_track_s *track = &tracker->tracks[t];
+
+    if (matched[t] >= 0) {
+      const nns_ex_box_s *box = &boxes[matched[t]];
+      gfloat dt = (gfloat) (timestamp - track->timestamp) / TRACKER_NSEC_PER_SEC;
+
+      if (dt > 0.f) {
+        tracker_update_velocity (&track->vx, track->box.x, box->x, dt);
+        tracker_update_velocity (&track->vy, track->box.y, box->y, dt);
+        tracker_update_velocity (&track->vw, track->box.width, box->width, dt);
+        tracker_update_velocity (&track->vh, track->box.height, box->height, dt);
+      }
+
+      track->box = *box;
+      track->timestamp = timestamp;
+      track->hits++;
+      track->missed = 0;
+    } else {
+      track->box = predicted[t];
+      track->timestamp = timestamp;
+      track->missed++;
+
+      if (track->missed > tracker->max_missed)
+        continue;
+    }
+
+    if (j != t)
+      tracker->tracks[j] = *track;
+    j++;
+  }
+  tracker->count = j;
+
+  /* new tracks with the boxes not associated */
+  for (i = 0; i < num && tracker->count < NNS_EX_TRACKER_MAX; i++) {
+    nns_ex_track_s *track;
+
+    if (used[i])
+      continue;
+
+    track = &tracker->tracks[tracker->count++];
+    memset (track, 0, sizeof (nns_ex_track_s));
+
+    track->id = ++tracker->next_id;
+    track->box = boxes[i];
+    track->timestamp = timestamp;
+    track->hits = 1;
+  }
+}
+
+/**
+ * @brief Get the boxes extrapolated to given timestamp.
+ */
+guint
+nns_ex_tracker_predict (nns_ex_tracker_s * tracker,
+    const gint64 timestamp, nns_ex_box_s * boxes, const guint max)
+{
+  guint t, n = 0;
+
+  g_return_val_if_fail (tracker != NULL && boxes != NULL, 0);
+
+  tracker->total_frames++;
+
+  for (t = 0; t < tracker->count && n < max; t++) {
+    /* do not show the track which is not found in last detection */
+    if (tracker->tracks[t].missed > 0)
+      continue;
+
+    tracker_extrapolate (&tracker->tracks[t], timestamp, &boxes[n++]);
+  }
+
+  return n;
+}
+
+/**
+ * @brief Check the tracker has a missed track, the detector should run on next frame.
+ */
+gboolean
+nns_ex_tracker_is_lost (const nns_ex_tracker_s * tracker)
+{
+  guint t;
+
+  g_return_val_if_fail (tracker != NULL, FALSE);
+
+  for (t = 0; t < tracker->count; t++) {
+    if (tracker->tracks[t].missed > 0)
+      return TRUE;
+  }
+
+  return FALSE;
+}
+
+/**
+ * @brief Get the ratio of the frames with detection to all frames (0 to 1).
+ */
+gfloat
+nns_ex_tracker_get_detection_ratio (const nns_ex_tracker_s * tracker)
+{
+  g_return_val_if_fail (tracker != NULL, 0.f);
+
+  if (tracker->total_frames == 0)
+    return 0.f;
+
+  return MIN (1.f, (gfloat) tracker->detected_frames / tracker->total_frames);
+}
@@ -0,0 +1,111 @@
+/**
+ * @file	nnstreamer-ex-tracker.h
+ * @date	19 October 2026
+ * @brief	IoU-based multi-object tracker for detection examples
+ * @bug		No known bugs
+ *
+ * The tracker associates the detected objects with the tracks by IoU,
+ * and extrapolates the boxes with constant velocity between the detections.
+ * With this, the detector can run every Nth frame and the boxes are still updated in each frame.
+ */
+
+#ifndef __NNSTREAMER_EX_TRACKER_H__
+#define __NNSTREAMER_EX_TRACKER_H__
+
+#include <glib.h>
+
+#ifdef __cplusplus
+extern "C"
+{
+#endif
+
+/**
+ * @brief Max objects to be tracked.
+ */
+#define NNS_EX_TRACKER_MAX 16
+
+/**
+ * @brief Data structure for the box to be tracked.
+ */
+typedef struct
+{
+  gfloat x;
+  gfloat y;
+  gfloat width;
+  gfloat height;
+  guint class_id;
+  gfloat prob;
+} nns_ex_box_s;
+
+/**
+ * @brief Data structure for a track.
+ */
+typedef struct
+{
+  guint id;                     /**< track id */
+  nns_ex_box_s box;             /**< box at the timestamp */
+  gfloat vx;                    /**< velocity of x (per second) */
+  gfloat vy;                    /**< velocity of y (per second) */
+  gfloat vw;                    /**< velocity of width (per second) */
+  gfloat vh;                    /**< velocity of height (per second) */
+  gint64 timestamp;             /**< timestamp of the box (ns) */
+  guint hits;                   /**< number of associated detections */
+  guint missed;                 /**< number of consecutive detections without association */
+} nns_ex_track_s;
+
+/**
+ * @brief Data structure for tracker.
+ */
+typedef struct
+{
+  nns_ex_track_s tracks[NNS_EX_TRACKER_MAX];
+  guint count;                  /**< number of tracks */
+  guint next_id;
+
+  gfloat iou_threshold;         /**< min IoU to associate the detection with the track */
+  guint max_missed;             /**< the track is removed if it is missed more than this */
+
+  guint64 detected_frames;      /**< number of frames with detection */
+  guint64 total_frames;         /**< number of frames with the boxes from tracker */
+} nns_ex_tracker_s;
+
+/**
+ * @brief Initialize the tracker.
+ * @param iou_threshold The min IoU to associate the detection with the track
+ * @param max_missed The track is removed if it is missed more than this
+ */
+void nns_ex_tracker_init (nns_ex_tracker_s * tracker,
+    const gfloat iou_threshold, const guint max_missed);
+
+/**
+ * @brief Update the tracks with the detected boxes.
+ * @param boxes The detected boxes, sorted by score
+ * @param timestamp The timestamp of the frame (ns)
+ */
+void nns_ex_tracker_update (nns_ex_tracker_s * tracker,
+    const nns_ex_box_s * boxes, const guint count, const gint64 timestamp);
+
+/**
+ * @brief Get the boxes extrapolated to given timestamp.
+ * @param timestamp The timestamp of the frame (ns)
+ * @param boxes The array to be filled
+ * @return The number of boxes
+ */
+guint nns_ex_tracker_predict (nns_ex_tracker_s * tracker,
+    const gint64 timestamp, nns_ex_box_s * boxes, const guint max);
+
+/**
+ * @brief Check the tracker has a missed track, the detector should run on next frame.
+ */
+gboolean nns_ex_tracker_is_lost (const nns_ex_tracker_s * tracker);
+
+/**
+ * @brief Get the ratio of the frames with detection to all frames (0 to 1).
+ */
+gfloat nns_ex_tracker_get_detection_ratio (const nns_ex_tracker_s * tracker);
+
+#ifdef __cplusplus
+}
+#endif
+
+#endif /* __NNSTREAMER_EX_TRACKER_H__ */
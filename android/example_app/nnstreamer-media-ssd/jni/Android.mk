@@ -32,7 +32,9 @@ include $(LOCAL_PATH)/Android-nnstreamer.mk
 include $(CLEAR_VARS)
 
 LOCAL_MODULE    := nnstreamer-jni
-LOCAL_SRC_FILES := nnstreamer-jni.c nnstreamer-ex.cpp
+LOCAL_SRC_FILES := nnstreamer-jni.c nnstreamer-ex.cpp ../../common/jni/nnstreamer-ex-cache.c \
+    ../../common/jni/nnstreamer-ex-tracker.c
+LOCAL_C_INCLUDES := $(LOCAL_PATH)/../../common/jni
 LOCAL_STATIC_LIBRARIES := nnstreamer tensorflow-lite cpufeatures
 LOCAL_SHARED_LIBRARIES := gstreamer_android
 LOCAL_LDLIBS := -llog -landroid -lmediandk -lOpenMAXAL
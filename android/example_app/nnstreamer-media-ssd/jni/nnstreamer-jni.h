@@ -48,6 +48,7 @@ typedef struct _NNSPipelineInfo
   gboolean (*get_description) (gchar **desc, const gint option);
   gboolean (*prepare_pipeline) (const gint option);
   gboolean (*launch_pipeline) (GstElement **pipeline, const gint option, ArgData *data);
+  gboolean (*get_detection_ratio) (gfloat *ratio);
 } NNSPipelineInfo;
 
 #ifdef __cplusplus
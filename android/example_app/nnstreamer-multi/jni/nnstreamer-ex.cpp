@@ -18,6 +18,7 @@
 #include <cairo/cairo.h>
 
 #include "nnstreamer-jni.h"
+#include "nnstreamer-ex-cache.h"
 
 #define EX_MODEL_PATH "/sdcard/nnstreamer/tflite_model"
 
@@ -44,6 +45,8 @@
 #define IS_OBJ(m) ((m) & MODEL_OBJ)
 #define IS_POSE(m) ((m) & MODEL_POSE)
 #define USE_FRONT(m) ((m) & (1 << 8))
+#define USE_CASCADE(m) ((m) & (1 << 9))
+#define USE_DUAL(m) ((m) & (1 << 10))
 
 #define MEDIA_WIDTH     480
 #define MEDIA_HEIGHT    480
@@ -72,6 +75,97 @@
  */
 #define MAX_OBJECT_DETECTION 5
 
+/**
+ * @brief Max threads to decode the results of the models.
+ * The sink callbacks push the results into the thread pool, and the workers decode them concurrently.
+ */
+#define POSTPROC_MAX_THREADS 2
+
+/**
+ * @brief Latency budget (microseconds) to decode the result of each model.
+ * The budget starts when a worker takes the result. A late result is discarded, the overlay keeps the previous result.
+ * If a newer result arrives before a worker takes the pending one, the stale result is dropped without decoding.
+ */
+#define POSTPROC_BUDGET_FACE  (30 * 1000)
+#define POSTPROC_BUDGET_HAND  (30 * 1000)
+#define POSTPROC_BUDGET_OBJ   (50 * 1000)
+#define POSTPROC_BUDGET_POSE  (30 * 1000)
+
+/**
+ * @brief Params for cascaded inference.
+ * In cascade mode, the person boxes from object detection define the region of interest,
+ * and face, hand and pose models run on the cropped region only.
+ * The region is a square (union of the person boxes with margin), aligned to reduce re-negotiation.
+ */
+#define CASCADE_PERSON_CLASS  1
+#define CASCADE_ROI_MARGIN    1.2f
+#define CASCADE_ROI_ALIGN     16
+#define CASCADE_ROI_HISTORY   16
+
+/**
+ * @brief Params for dual camera mode.
+ * Both cameras run at the same time (back camera on the left, front camera on the right),
+ * and each model is loaded once and serves both streams in turn.
+ * In single camera mode, the results are kept in the first stream.
+ */
+#define STREAM_NUM            2
+#define STREAM_BACK           0
+#define STREAM_FRONT          1
+#define DUAL_WAIT_TIMEOUT     (200 * 1000) /* the frame in the model or the turn request expires after this (microseconds) */
+#define DUAL_INFLIGHT_MAX     4
+
+/**
+ * @brief Max frames to keep the capture time of each camera stream, to measure the latency of each stage.
+ */
+#define LATENCY_HISTORY       128
+
+/**
+ * @brief Max time (microseconds) to wait for the tee to unlink the branch.
+ * If the tee is not idle in time, the reconfiguration fails and the pipeline is rebuilt.
+ */
+#define BRANCH_UNLINK_TIMEOUT (500 * 1000)
+
+/**
+ * @brief Max frames to keep the models to be invoked (rate control).
+ */
+#define RATE_HISTORY          16
+
+/**
+ * @brief Tolerance (ns) of the frame interval, to run the model with given fps.
+ */
+#define RATE_FPS_TOLERANCE    (10 * GST_MSECOND)
+
+/**
+ * @brief Branches of the pipeline, in order of the dependency.
+ * Each branch is a bin linked with a tee, and updated without stopping the camera.
+ */
+enum
+{
+  BRANCH_ROI = 0,
+  BRANCH_SSD,
+  BRANCH_SSD_ROI,
+  BRANCH_POSE,
+  BRANCH_FACE,
+  BRANCH_HAND,
+  BRANCH_OBJ,
+  BRANCH_NUM
+};
+
+/**
+ * @brief Stages to measure the latency from the capture.
+ * The latency of each stage is the age of the frame (or the result) when it passes the stage.
+ */
+enum
+{
+  LATENCY_CAPTURE = 0,          /**< camera source pushes the frame */
+  LATENCY_SCALE,                /**< videoscale in preprocessing */
+  LATENCY_CONVERT,              /**< tensor_transform in preprocessing */
+  LATENCY_FILTER,               /**< tensor_filter invoked the model */
+  LATENCY_DECODE,               /**< the result is decoded */
+  LATENCY_DRAW,                 /**< the result is drawn on the overlay */
+  LATENCY_NUM
+};
+
 /**
  * @brief Data structure for pose estimation.
  */
@@ -96,45 +190,283 @@ typedef struct
   gfloat prob;
 } ssd_object_s;
 
+/**
+ * @brief Data structure for the region of interest (square, media coordinates).
+ */
+typedef struct
+{
+  GstClockTime pts;             /**< timestamp of the frame cropped with this region */
+  gint x;
+  gint y;
+  gint size;                    /**< 0 if no person is detected */
+} cascade_roi_s;
+
+/**
+ * @brief Data structure for postprocessing of a model.
+ */
+typedef struct
+{
+  gint model;                   /**< model id (MODEL_FACE, MODEL_HAND, MODEL_OBJ or MODEL_POSE) */
+  gint64 budget;                /**< latency budget (microseconds) */
+  GstBuffer *pending[STREAM_NUM]; /**< latest result waiting for a worker (guarded by the postproc lock) */
+  gboolean queued[STREAM_NUM];  /**< TRUE while a task of the stream is queued or decoding (guarded by the postproc lock) */
+  volatile gint processed;      /**< number of frames decoded within the budget */
+  volatile gint overrun;        /**< number of frames decoded over the budget or dropped as stale */
+  gint64 result_time[STREAM_NUM]; /**< capture time of the frame with current result (guarded by the result lock) */
+} postproc_model_s;
+
+/**
+ * @brief Data structure for postprocessing task.
+ */
+typedef struct
+{
+  postproc_model_s *model;
+  gint stream;                  /**< camera stream of the result, the worker takes the pending buffer of the stream */
+} postproc_task_s;
+
 /**
  * @brief Data structure for model info.
  */
 typedef struct
 {
   gfloat box_priors[SSD_BOX_SIZE][SSD_DETECTION_MAX]; /**< box prior */
-  GSList *labels_obj;           /**< list of loaded labels (object detection) */
-  GSList *labels_face;          /**< list of loaded labels (face detection) */
-  GSList *labels_hand;          /**< list of loaded labels (hand detection) */
+  nns_ex_labels_s labels_obj;   /**< loaded labels (object detection) */
+  nns_ex_labels_s labels_face;  /**< loaded labels (face detection) */
+  nns_ex_labels_s labels_hand;  /**< loaded labels (hand detection) */
   gboolean is_initialized;
 } nns_ex_model_info_s;
 
+/**
+ * @brief Data structure for the inference rate of a model.
+ */
+typedef struct
+{
+  gint model;                   /**< model id (MODEL_FACE, MODEL_HAND, MODEL_OBJ or MODEL_POSE) */
+  guint interval;               /**< run the model every Nth frame (1 for all frames) */
+  guint fps;                    /**< max inference rate (0 for unlimited) */
+  guint64 count;                /**< number of frames arrived */
+  GstClockTime last_pts;        /**< timestamp of the last frame to be invoked */
+} rate_model_s;
+
+/**
+ * @brief Data structure for the models to be invoked with a frame.
+ */
+typedef struct
+{
+  GstClockTime pts;
+  gint models;                  /**< models to be invoked with this frame */
+} rate_history_s;
+
+/**
+ * @brief Data structure for the rate control of a model branch.
+ */
+typedef struct
+{
+  rate_model_s *rm;             /**< inference rate of the model */
+  gint preproc;                 /**< preprocessing branch keeping the models of the frame */
+} rate_probe_s;
+
+/**
+ * @brief Data structure for the statistics of a model (benchmark).
+ */
+typedef struct
+{
+  gint model;                   /**< model id (MODEL_FACE, MODEL_HAND, MODEL_OBJ or MODEL_POSE) */
+  const gchar *name;            /**< model name in the report */
+  guint64 received;             /**< number of frames arrived at the branch */
+  guint64 invoked;              /**< number of frames processed with tensor_filter */
+  gint64 latency_total;         /**< sum of the inference latency (microseconds) */
+  gint64 latency_max;           /**< max inference latency (microseconds) */
+  gint64 invoke_start;          /**< time when the frame is pushed into tensor_filter */
+} stats_model_s;
+
+/**
+ * @brief Data structure for the capture time of a frame.
+ */
+typedef struct
+{
+  GstClockTime pts;
+  gint64 capture_time;          /**< monotonic time (microseconds) when the frame is captured */
+} latency_frame_s;
+
+/**
+ * @brief Data structure for the pad probe to measure the latency of a stage.
+ */
+typedef struct
+{
+  gint stage;                   /**< the stage measured with this probe */
+  gint stream;                  /**< camera stream of the frames, -1 if the element is shared by the streams */
+  gint model;                   /**< model to find the stream of the frame, if the element is shared */
+  GstElement *camera;           /**< camera to get the running time (capture stage only) */
+} latency_probe_s;
+
+/**
+ * @brief Data structure for the latency of a stage.
+ */
+typedef struct
+{
+  const gchar *name;            /**< stage name in the report */
+  guint64 count;                /**< number of the frames measured */
+  gint64 total;                 /**< sum of the latency (microseconds) */
+  gint64 max;                   /**< max latency (microseconds) */
+} latency_stage_s;
+
+/**
+ * @brief Data structure for a frame admitted to the shared model.
+ */
+typedef struct
+{
+  gint stream;                  /**< camera stream of the frame */
+  GstClockTime pts;             /**< timestamp of the frame, the result keeps it */
+  gint64 time;                  /**< monotonic time when the frame is pushed into the model */
+} dual_admitted_s;
+
+/**
+ * @brief Data structure for a model shared by the camera streams (dual camera mode).
+ * The streams take turns to push a frame into the model, so a stream cannot starve the other.
+ * The admitted frames are kept in order, so the result is routed to its stream even if the frame in the model expired.
+ */
+typedef struct
+{
+  gint model;                   /**< model id (MODEL_FACE, MODEL_HAND, MODEL_OBJ or MODEL_POSE) */
+  const gchar *name;            /**< element name suffix (e.g., filter_face) */
+  const gchar *path;            /**< model file */
+  dual_admitted_s admitted[DUAL_INFLIGHT_MAX]; /**< frames in the model (FIFO), the model is busy if not empty */
+  guint head;                   /**< index of the oldest admitted frame */
+  guint count;                  /**< number of admitted frames */
+  gint last;                    /**< stream served last */
+  gint64 waiting[STREAM_NUM];   /**< time of the last frame dropped for the turn, 0 if the stream is not waiting */
+  guint64 served[STREAM_NUM];   /**< number of frames pushed into the model */
+} dual_model_s;
+
+/**
+ * @brief Data structure for the pad probe to check the turn of the stream.
+ */
+typedef struct
+{
+  dual_model_s *dm;
+  gint stream;
+} dual_gate_s;
+
 static gint launch_option = 0;
 static nns_ex_model_info_s nns_ex_model_info;
 static GMutex res_mutex;
 static gchar *pipeline_description = NULL;
-static std::vector<ssd_object_s> detected_face;
-static std::vector<ssd_object_s> detected_hand;
-static std::vector<ssd_object_s> detected_object;
-static std::vector<pose_s> estimated_pose;
+static std::vector<ssd_object_s> detected_face[STREAM_NUM];
+static std::vector<ssd_object_s> detected_hand[STREAM_NUM];
+static std::vector<ssd_object_s> detected_object[STREAM_NUM];
+static std::vector<pose_s> estimated_pose[STREAM_NUM];
+static GThreadPool *postproc_pool = NULL;
+static GMutex postproc_mutex;
+static gboolean cascade_enabled = FALSE;
+static cascade_roi_s cascade_roi;
+static cascade_roi_s cascade_crop;
+static cascade_roi_s cascade_history[CASCADE_ROI_HISTORY];
+static guint cascade_history_index = 0;
+static const gchar *branch_names[BRANCH_NUM] = {
+  "branch_roi", "branch_ssd", "branch_ssd_roi", "branch_pose",
+  "branch_face", "branch_hand", "branch_obj"
+};
+static const gchar *branch_tees[BRANCH_NUM] = {
+  "troi", "tssd", "tssd_roi", NULL, NULL, NULL, NULL
+};
+static const gchar *branch_src[BRANCH_NUM];
+static GMutex branch_mutex;
+static GCond branch_cond;
+static gboolean branch_unlinked = FALSE;
+static postproc_model_s postproc_models[] = {
+  { MODEL_FACE, POSTPROC_BUDGET_FACE, { NULL, NULL }, { FALSE, FALSE }, 0, 0, { 0, 0 } },
+  { MODEL_HAND, POSTPROC_BUDGET_HAND, { NULL, NULL }, { FALSE, FALSE }, 0, 0, { 0, 0 } },
+  { MODEL_OBJ, POSTPROC_BUDGET_OBJ, { NULL, NULL }, { FALSE, FALSE }, 0, 0, { 0, 0 } },
+  { MODEL_POSE, POSTPROC_BUDGET_POSE, { NULL, NULL }, { FALSE, FALSE }, 0, 0, { 0, 0 } }
+};
+
+static GMutex rate_mutex;
+static rate_model_s rate_models[] = {
+  { MODEL_FACE, 1, 0, 0, GST_CLOCK_TIME_NONE },
+  { MODEL_HAND, 1, 0, 0, GST_CLOCK_TIME_NONE },
+  { MODEL_OBJ, 1, 0, 0, GST_CLOCK_TIME_NONE },
+  { MODEL_POSE, 1, 0, 0, GST_CLOCK_TIME_NONE }
+};
+static rate_history_s rate_history[BRANCH_NUM][RATE_HISTORY];
+static guint rate_history_index[BRANCH_NUM];
+static rate_probe_s rate_probes[BRANCH_NUM];
+static GMutex stats_mutex;
+static gint64 stats_start_time = 0;
+static guint64 stats_frames = 0;
+static stats_model_s stats_models[] = {
+  { MODEL_FACE, "face", 0, 0, 0, 0, 0 },
+  { MODEL_HAND, "hand", 0, 0, 0, 0, 0 },
+  { MODEL_OBJ, "object", 0, 0, 0, 0, 0 },
+  { MODEL_POSE, "pose", 0, 0, 0, 0, 0 }
+};
+
+static GMutex latency_mutex;
+static latency_frame_s latency_frames[STREAM_NUM][LATENCY_HISTORY];
+static guint latency_frame_index[STREAM_NUM];
+static latency_stage_s latency_stages[LATENCY_NUM] = {
+  { "capture", 0, 0, 0 },
+  { "scale", 0, 0, 0 },
+  { "convert", 0, 0, 0 },
+  { "filter", 0, 0, 0 },
+  { "decode", 0, 0, 0 },
+  { "draw", 0, 0, 0 }
+};
+
+static gboolean dual_enabled = FALSE;
+static GMutex dual_mutex;
+static guint64 dual_frames[STREAM_NUM];
+static dual_model_s dual_models[] = {
+  { MODEL_FACE, "face", EX_FACE_MODEL, { }, 0, 0, 0, { 0, 0 }, { 0, 0 } },
+  { MODEL_HAND, "hand", EX_HAND_MODEL, { }, 0, 0, 0, { 0, 0 }, { 0, 0 } },
+  { MODEL_OBJ, "obj", EX_OBJ_MODEL, { }, 0, 0, 0, { 0, 0 }, { 0, 0 } },
+  { MODEL_POSE, "pose", EX_POSE_MODEL, { }, 0, 0, 0, { 0, 0 }, { 0, 0 } }
+};
+
+static void nns_ex_postproc_func (gpointer data, gpointer user_data);
 
 /**
- * @brief Read strings from file.
+ * @brief Get the models running in the pipeline.
+ * The option is updated under the result lock, the streaming threads read it atomically.
  */
-static gboolean
-nns_ex_read_lines (const gchar * file_name, GSList ** lines)
+static inline gint
+nns_ex_get_launch_option (void)
 {
-  std::ifstream file (file_name);
-  if (!file) {
-    nns_loge ("Failed to open file %s", file_name);
-    return FALSE;
-  }
+  return g_atomic_int_get (&launch_option);
+}
+
+/**
+ * @brief Check cascaded inference is enabled (see nns_ex_get_launch_option).
+ */
+static inline gboolean
+nns_ex_get_cascade_enabled (void)
+{
+  return g_atomic_int_get (&cascade_enabled);
+}
 
-  std::string str;
-  while (std::getline (file, str)) {
-    *lines = g_slist_append (*lines, g_strdup (str.c_str ()));
+/**
+ * @brief Clear the results of given models in all streams. Caller should hold the result lock.
+ */
+static void
+nns_ex_clear_results (const gint models)
+{
+  for (guint i = 0; i < STREAM_NUM; i++) {
+    if (IS_FACE (models))
+      detected_face[i].clear ();
+    if (IS_HAND (models))
+      detected_hand[i].clear ();
+    if (IS_OBJ (models))
+      detected_object[i].clear ();
+    if (IS_POSE (models))
+      estimated_pose[i].clear ();
   }
 
-  return TRUE;
+  for (guint i = 0; i < G_N_ELEMENTS (postproc_models); i++) {
+    if (postproc_models[i].model & models) {
+      for (guint s = 0; s < STREAM_NUM; s++)
+        postproc_models[i].result_time[s] = 0;
+    }
+  }
 }
 
 /**
@@ -143,42 +475,13 @@ nns_ex_read_lines (const gchar * file_name, GSList ** lines)
 static gboolean
 nns_ex_load_box_priors (void)
 {
-  GSList *box_priors = NULL;
-  gchar *box_row;
-
-  if (!nns_ex_read_lines (EX_BOX_PRIORS, &box_priors)) {
+  if (!nns_ex_cache_load_box_priors (EX_BOX_PRIORS,
+          &nns_ex_model_info.box_priors[0][0], SSD_BOX_SIZE,
+          SSD_DETECTION_MAX)) {
     nns_loge ("Failed to load box prior");
     return FALSE;
   }
 
-  for (guint row = 0; row < SSD_BOX_SIZE; row++) {
-    gint column = 0;
-    gint i = 0, j = 0;
-    gchar buff[11];
-
-    memset (buff, 0, 11);
-    box_row = (gchar *) g_slist_nth_data (box_priors, row);
-
-    while ((box_row[i] != '\n') && (box_row[i] != '\0')) {
-      if (box_row[i] != ' ') {
-        buff[j] = box_row[i];
-        j++;
-      } else {
-        if (j != 0) {
-          nns_ex_model_info.box_priors[row][column++] =
-              (gfloat) g_ascii_strtod (buff, NULL);
-          memset (buff, 0, 11);
-        }
-        j = 0;
-      }
-      i++;
-    }
-
-    nns_ex_model_info.box_priors[row][column] =
-        (gfloat) g_ascii_strtod (buff, NULL);
-  }
-
-  g_slist_free_full (box_priors, g_free);
   return TRUE;
 }
 
@@ -188,9 +491,9 @@ nns_ex_load_box_priors (void)
 static gboolean
 nns_ex_load_labels (void)
 {
-  if (!nns_ex_read_lines (EX_OBJ_LABEL, &nns_ex_model_info.labels_obj) ||
-      !nns_ex_read_lines (EX_FACE_LABEL, &nns_ex_model_info.labels_face) ||
-      !nns_ex_read_lines (EX_HAND_LABEL, &nns_ex_model_info.labels_hand)) {
+  if (!nns_ex_cache_load_labels (EX_OBJ_LABEL, &nns_ex_model_info.labels_obj) ||
+      !nns_ex_cache_load_labels (EX_FACE_LABEL, &nns_ex_model_info.labels_face) ||
+      !nns_ex_cache_load_labels (EX_HAND_LABEL, &nns_ex_model_info.labels_hand)) {
     return FALSE;
   }
 
@@ -203,28 +506,22 @@ nns_ex_load_labels (void)
 static void
 nns_ex_free (void)
 {
-  if (nns_ex_model_info.labels_obj) {
-    g_slist_free_full (nns_ex_model_info.labels_obj, g_free);
-    nns_ex_model_info.labels_obj = NULL;
+  if (postproc_pool) {
+    /* wait for the tasks in the queue */
+    g_thread_pool_free (postproc_pool, FALSE, TRUE);
+    postproc_pool = NULL;
   }
 
-  if (nns_ex_model_info.labels_face) {
-    g_slist_free_full (nns_ex_model_info.labels_face, g_free);
-    nns_ex_model_info.labels_face = NULL;
-  }
+  nns_ex_cache_free_labels (&nns_ex_model_info.labels_obj);
 
-  if (nns_ex_model_info.labels_hand) {
-    g_slist_free_full (nns_ex_model_info.labels_hand, g_free);
-    nns_ex_model_info.labels_hand = NULL;
-  }
+  nns_ex_cache_free_labels (&nns_ex_model_info.labels_face);
+
+  nns_ex_cache_free_labels (&nns_ex_model_info.labels_hand);
 
   g_mutex_clear (&res_mutex);
   g_free (pipeline_description);
 
-  detected_face.clear ();
-  detected_hand.clear ();
-  detected_object.clear ();
-  estimated_pose.clear ();
+  nns_ex_clear_results (MODEL_FACE | MODEL_HAND | MODEL_OBJ | MODEL_POSE);
 
   nns_ex_model_info.is_initialized = FALSE;
 }
@@ -239,10 +536,7 @@ nns_ex_init (void)
 
   g_mutex_init (&res_mutex);
 
-  detected_face.clear ();
-  detected_hand.clear ();
-  detected_object.clear ();
-  estimated_pose.clear ();
+  nns_ex_clear_results (MODEL_FACE | MODEL_HAND | MODEL_OBJ | MODEL_POSE);
   return TRUE;
 }
 
@@ -252,16 +546,16 @@ nns_ex_init (void)
 static guint
 nns_ex_get_label_size (const int model)
 {
-  GSList *list = NULL;
+  nns_ex_labels_s *labels = NULL;
 
   if (IS_FACE (model))
-    list = nns_ex_model_info.labels_face;
+    labels = &nns_ex_model_info.labels_face;
   else if (IS_HAND (model))
-    list = nns_ex_model_info.labels_hand;
+    labels = &nns_ex_model_info.labels_hand;
   else if (IS_OBJ (model))
-    list = nns_ex_model_info.labels_obj;
+    labels = &nns_ex_model_info.labels_obj;
 
-  return g_slist_length (list);
+  return (labels != NULL) ? labels->count : 0;
 }
 
 /**
@@ -270,729 +564,2633 @@ nns_ex_get_label_size (const int model)
 static gboolean
 nns_ex_get_label (const gint model, const guint class_id, gchar ** label)
 {
-  GSList *list = NULL;
+  nns_ex_labels_s *labels = NULL;
 
   *label = NULL;
 
   if (IS_FACE (model))
-    list = nns_ex_model_info.labels_face;
+    labels = &nns_ex_model_info.labels_face;
   else if (IS_HAND (model))
-    list = nns_ex_model_info.labels_hand;
+    labels = &nns_ex_model_info.labels_hand;
   else if (IS_OBJ (model))
-    list = nns_ex_model_info.labels_obj;
+    labels = &nns_ex_model_info.labels_obj;
 
-  *label = (gchar *) g_slist_nth_data (list, class_id);
+  *label = (gchar *) nns_ex_cache_get_label (labels, class_id);
   return (*label != NULL);
 }
 
 /**
- * @brief Compare score of detected objects.
+ * @brief Get postprocessing info of the model.
  */
-static bool
-ssd_compare_objs (ssd_object_s &a, ssd_object_s &b)
+static postproc_model_s *
+nns_ex_get_postproc (const gint model)
 {
-  return a.prob > b.prob;
+  guint i;
+
+  for (i = 0; i < G_N_ELEMENTS (postproc_models); i++) {
+    if (postproc_models[i].model == model)
+      return &postproc_models[i];
+  }
+
+  return NULL;
 }
 
 /**
- * @brief Intersection of union
+ * @brief Count the overrun of the model (decoded over the budget or dropped as stale).
  */
-static gfloat
-ssd_iou (ssd_object_s &A, ssd_object_s &B)
+static void
+nns_ex_postproc_overrun (postproc_model_s * pm, const gchar * reason)
 {
-  gint x1 = std::max (A.x, B.x);
-  gint y1 = std::max (A.y, B.y);
-  gint x2 = std::min (A.x + A.width, B.x + B.width);
-  gint y2 = std::min (A.y + A.height, B.y + B.height);
-  gint w = std::max (0, (x2 - x1 + 1));
-  gint h = std::max (0, (y2 - y1 + 1));
-  gfloat inter = w * h;
-  gfloat areaA = A.width * A.height;
-  gfloat areaB = B.width * B.height;
-  gfloat o = inter / (areaA + areaB - inter);
-  return (o >= 0) ? o : 0;
+  gint overrun;
+
+  overrun = g_atomic_int_add (&pm->overrun, 1) + 1;
+  if (overrun % 30 == 1) {
+    nns_logd ("Model %d %s (overrun %d, processed %d)", pm->model, reason,
+        overrun, g_atomic_int_get (&pm->processed));
+  }
 }
 
 /**
- * @brief NMS (non-maximum suppression)
+ * @brief Get the inference rate of the model.
  */
-static void
-ssd_nms (std::vector<ssd_object_s> &detected, const gint model)
+static rate_model_s *
+nns_ex_rate_get_model (const gint model)
 {
-  const gfloat threshold_iou = .5f;
-  gsize boxes_size;
-  guint i, j;
+  for (guint i = 0; i < G_N_ELEMENTS (rate_models); i++) {
+    if (rate_models[i].model == model)
+      return &rate_models[i];
+  }
 
-  std::sort (detected.begin (), detected.end (), ssd_compare_objs);
-  boxes_size = detected.size ();
+  return NULL;
+}
 
-  std::vector<bool> del (boxes_size, false);
-  for (i = 0; i < boxes_size; i++) {
-    if (!del[i]) {
-      for (j = i + 1; j < boxes_size; j++) {
-        if (ssd_iou (detected.at (i), detected.at (j)) > threshold_iou) {
-          del[j] = true;
-        }
-      }
-    }
+/**
+ * @brief Reset the frame count of the rate control.
+ */
+static void
+nns_ex_rate_reset (void)
+{
+  g_mutex_lock (&rate_mutex);
+  for (guint i = 0; i < G_N_ELEMENTS (rate_models); i++) {
+    rate_models[i].count = 0;
+    rate_models[i].last_pts = GST_CLOCK_TIME_NONE;
   }
 
-  /* update result */
-  g_mutex_lock (&res_mutex);
-
-  if (IS_FACE (model)) {
-    detected_face.clear ();
-    for (i = 0; i < boxes_size; i++) {
-      if (!del[i])
-        detected_face.push_back (detected[i]);
-    }
-  } else if (IS_HAND (model)) {
-    detected_hand.clear ();
-    for (i = 0; i < boxes_size; i++) {
-      if (!del[i])
-        detected_hand.push_back (detected[i]);
-    }
-  } else if (IS_OBJ (model)) {
-    detected_object.clear ();
-    for (i = 0; i < boxes_size; i++) {
-      if (!del[i])
-        detected_object.push_back (detected[i]);
+  for (guint id = 0; id < BRANCH_NUM; id++) {
+    for (guint i = 0; i < RATE_HISTORY; i++) {
+      rate_history[id][i].pts = GST_CLOCK_TIME_NONE;
+      rate_history[id][i].models = 0;
     }
+    rate_history_index[id] = 0;
   }
-
-  g_mutex_unlock (&res_mutex);
+  g_mutex_unlock (&rate_mutex);
 }
 
 /**
- * @brief Update detected objects.
+ * @brief Check the model should be invoked with the frame. Caller should hold the rate lock.
  */
-static void
-ssd_update_detection (gfloat * detections, gfloat * boxes, const gint model)
+static gboolean
+nns_ex_rate_accept (rate_model_s * rm, const GstClockTime pts)
 {
-  const gfloat threshold_score = .5f;
-  gfloat xcenter, ycenter, x, y, width, height;
-  gfloat xmin, ymin, xmax, ymax, score;
-  gfloat *detect, *box;
-  guint label_size;
-  std::vector<ssd_object_s> detected;
-
-  label_size = nns_ex_get_label_size (model);
+  guint64 count = rm->count++;
 
-  for (guint d = 0; d < SSD_DETECTION_MAX; d++) {
-    box = boxes + (SSD_BOX_SIZE * d);
+  if (rm->interval > 1 && (count % rm->interval) != 0)
+    return FALSE;
 
-    ycenter = box[0] / Y_SCALE * nns_ex_model_info.box_priors[2][d] +
-        nns_ex_model_info.box_priors[0][d];
-    xcenter = box[1] / X_SCALE * nns_ex_model_info.box_priors[3][d] +
-        nns_ex_model_info.box_priors[1][d];
-    height = (gfloat) expf (box[2] / H_SCALE) * nns_ex_model_info.box_priors[2][d];
-    width = (gfloat) expf (box[3] / W_SCALE) * nns_ex_model_info.box_priors[3][d];
+  if (rm->fps > 0 && GST_CLOCK_TIME_IS_VALID (pts) &&
+      GST_CLOCK_TIME_IS_VALID (rm->last_pts) && pts > rm->last_pts &&
+      pts - rm->last_pts + RATE_FPS_TOLERANCE < GST_SECOND / rm->fps)
+    return FALSE;
 
-    ymin = ycenter - height / 2.f;
-    xmin = xcenter - width / 2.f;
-    ymax = ycenter + height / 2.f;
-    xmax = xcenter + width / 2.f;
+  rm->last_pts = pts;
+  return TRUE;
+}
 
-    x = xmin * SSD_MODEL_WIDTH;
-    y = ymin * SSD_MODEL_HEIGHT;
-    width = (xmax - xmin) * SSD_MODEL_WIDTH;
-    height = (ymax - ymin) * SSD_MODEL_HEIGHT;
+/**
+ * @brief Pad probe on the preprocessing branch of the detection models.
+ * Drops the frame before conversion if no model in this branch runs with the frame,
+ * and keeps the models to be invoked so the branch of each model can skip the frame.
+ * Each preprocessing branch has its own history, both branches get same frame in cascade mode.
+ */
+static GstPadProbeReturn
+nns_ex_rate_preproc_cb (GstPad * pad, GstPadProbeInfo * info,
+    gpointer user_data)
+{
+  GstBuffer *buffer = GST_PAD_PROBE_INFO_BUFFER (info);
+  gint id = GPOINTER_TO_INT (user_data);
+  gint models, accepted = 0;
+
+  /* models after this branch (see nns_ex_branch_get_src) */
+  if (id == BRANCH_SSD_ROI)
+    models = MODEL_FACE | MODEL_HAND;
+  else if (nns_ex_get_cascade_enabled ())
+    models = MODEL_OBJ;
+  else
+    models = MODEL_FACE | MODEL_HAND | MODEL_OBJ;
+
+  models &= nns_ex_get_launch_option ();
+
+  g_mutex_lock (&rate_mutex);
+  for (guint i = 0; i < G_N_ELEMENTS (rate_models); i++) {
+    if ((models & rate_models[i].model) &&
+        nns_ex_rate_accept (&rate_models[i], GST_BUFFER_PTS (buffer)))
+      accepted |= rate_models[i].model;
+  }
 
-    detect = detections + (label_size * d);
-    for (guint c = 1; c < label_size; c++) {
-      score = 1.f / (1.f + expf (-1.f * detect[c]));
+  if (accepted) {
+    guint index = rate_history_index[id];
 
-      /**
-       * This score cutoff is taken from Tensorflow's demo app.
-       * There are quite a lot of nodes to be run to convert it to the useful possibility
-       * scores. As a result of that, this cutoff will cause it to lose good detections in
-       * some scenarios and generate too much noise in other scenario.
-       */
-      if (score < threshold_score)
-        continue;
+    rate_history[id][index].pts = GST_BUFFER_PTS (buffer);
+    rate_history[id][index].models = accepted;
+    rate_history_index[id] = (index + 1) % RATE_HISTORY;
+  }
+  g_mutex_unlock (&rate_mutex);
 
-      ssd_object_s object;
+  return (accepted) ? GST_PAD_PROBE_OK : GST_PAD_PROBE_DROP;
+}
 
-      object.class_id = c;
-      object.x = (guint) x;
-      object.y = (guint) y;
-      object.width = (guint) width;
-      object.height = (guint) height;
-      object.prob = score;
-
-      detected.push_back (object);
+/**
+ * @brief Pad probe on the branch of the detection model, skips the frame not accepted in preprocessing.
+ * The frame not found in the history of the preprocessing branch (reset or too late) is also skipped.
+ */
+static GstPadProbeReturn
+nns_ex_rate_model_cb (GstPad * pad, GstPadProbeInfo * info,
+    gpointer user_data)
+{
+  GstBuffer *buffer = GST_PAD_PROBE_INFO_BUFFER (info);
+  rate_probe_s *probe = (rate_probe_s *) user_data;
+  rate_history_s *history = rate_history[probe->preproc];
+  gboolean accepted = FALSE;
+
+  g_mutex_lock (&rate_mutex);
+  for (guint i = 0; i < RATE_HISTORY; i++) {
+    if (history[i].pts == GST_BUFFER_PTS (buffer)) {
+      accepted = (history[i].models & probe->rm->model) ? TRUE : FALSE;
+      break;
     }
   }
+  g_mutex_unlock (&rate_mutex);
 
-  ssd_nms (detected, model);
+  return (accepted) ? GST_PAD_PROBE_OK : GST_PAD_PROBE_DROP;
 }
 
 /**
- * @brief Get detected objects.
+ * @brief Pad probe on the branch of the model with its own preprocessing (pose).
  */
-static guint
-ssd_get_detected_objects (ssd_object_s * objects, const gint model)
+static GstPadProbeReturn
+nns_ex_rate_direct_cb (GstPad * pad, GstPadProbeInfo * info,
+    gpointer user_data)
 {
-  guint index = 0;
-  std::vector<ssd_object_s> detected;
-  std::vector<ssd_object_s>::iterator iter;
-
-  g_mutex_lock (&res_mutex);
+  GstBuffer *buffer = GST_PAD_PROBE_INFO_BUFFER (info);
+  rate_model_s *rm = (rate_model_s *) user_data;
+  gboolean accepted;
 
-  if (IS_FACE (model))
-    detected = detected_face;
-  else if (IS_HAND (model))
-    detected = detected_hand;
-  else if (IS_OBJ (model))
-    detected = detected_object;
+  g_mutex_lock (&rate_mutex);
+  accepted = nns_ex_rate_accept (rm, GST_BUFFER_PTS (buffer));
+  g_mutex_unlock (&rate_mutex);
 
-  g_mutex_unlock (&res_mutex);
+  return (accepted) ? GST_PAD_PROBE_OK : GST_PAD_PROBE_DROP;
+}
 
-  for (iter = detected.begin (); iter != detected.end (); ++iter) {
-    objects[index].x = iter->x;
-    objects[index].y = iter->y;
-    objects[index].width = iter->width;
-    objects[index].height = iter->height;
-    objects[index].class_id = iter->class_id;
-    objects[index].prob = iter->prob;
+/**
+ * @brief Set the inference rate of the model.
+ * The frames are skipped before preprocessing, and the overlay keeps the last result of the model.
+ */
+static gboolean
+nns_ex_set_model_rate (const gint model, const guint interval, const guint fps)
+{
+  rate_model_s *rm = nns_ex_rate_get_model (model);
 
-    if (++index >= MAX_OBJECT_DETECTION) {
-      /* max objects to be drawn */
-      break;
-    }
+  if (!rm) {
+    nns_loge ("Cannot set the rate of model %d", model);
+    return FALSE;
   }
 
-  return index;
+  g_mutex_lock (&rate_mutex);
+  rm->interval = MAX (interval, 1U);
+  rm->fps = fps;
+  g_mutex_unlock (&rate_mutex);
+
+  nns_logd ("Model %d runs every %u frame(s), max %u fps", model, rm->interval, fps);
+  return TRUE;
 }
 
 /**
- * @brief Draw detected object.
+ * @brief Get the model shared by the camera streams.
  */
-static void
-ssd_draw_object (cairo_t * cr, ssd_object_s * objects,
-    const gint size, const gint model)
+static dual_model_s *
+nns_ex_dual_get_model (const gint model)
 {
-  guint i;
-  gdouble x, y, width, height;
-  gdouble red, green, blue;
-  gchar *label;
-
-  /* Set clolr */
-  if (IS_FACE (model)) {
-    blue = 1.0;
-    red = green = 0.0;
-  } else if (IS_HAND (model)) {
-    red = blue = 0.0;
-    green = 0.5;
-  } else {
-    red = 1.0;
-    green = blue = 0.0;
+  for (guint i = 0; i < G_N_ELEMENTS (dual_models); i++) {
+    if (dual_models[i].model == model)
+      return &dual_models[i];
   }
 
-  for (i = 0; i < size; ++i) {
-    x = (gdouble) objects[i].x * MEDIA_WIDTH / SSD_MODEL_WIDTH;
-    y = (gdouble) objects[i].y * MEDIA_HEIGHT / SSD_MODEL_HEIGHT;
-    width = (gdouble) objects[i].width * MEDIA_WIDTH / SSD_MODEL_WIDTH;
-    height = (gdouble) objects[i].height * MEDIA_HEIGHT / SSD_MODEL_HEIGHT;
+  return NULL;
+}
 
-    /* draw rectangle */
-    cairo_rectangle (cr, x, y, width, height);
-    cairo_set_source_rgb (cr, red, green, blue);
-    cairo_set_line_width (cr, 1.5);
-    cairo_stroke (cr);
+/**
+ * @brief Reset the frame counts of the camera streams.
+ */
+static void
+nns_ex_dual_reset_counts (void)
+{
+  g_mutex_lock (&dual_mutex);
+  for (guint s = 0; s < STREAM_NUM; s++) {
+    dual_frames[s] = 0;
 
-    /* draw title */
-    if (IS_OBJ (model)) {
-      if (nns_ex_get_label (model, objects[i].class_id, &label)) {
-        cairo_move_to (cr, x + 5, y + 15);
-        cairo_text_path (cr, label);
-        cairo_set_source_rgb (cr, red, green, blue);
-        cairo_fill_preserve (cr);
-        cairo_set_source_rgb (cr, 1, 1, 1);
-        cairo_set_line_width (cr, .3);
-        cairo_stroke (cr);
-        cairo_fill_preserve (cr);
-      } else {
-        nns_logd ("Failed to get label (class id %d)", objects[i].class_id);
-      }
-    }
+    for (guint i = 0; i < G_N_ELEMENTS (dual_models); i++)
+      dual_models[i].served[s] = 0;
   }
+  g_mutex_unlock (&dual_mutex);
 }
 
 /**
- * @brief Update pose data.
+ * @brief Reset the turns of the models, before the pipeline is started.
  */
 static void
-pose_update_result (std::vector<pose_s> &detected)
+nns_ex_dual_reset (void)
 {
-  const gfloat threshold_score = .5f;
-  gsize len = detected.size ();
+  g_mutex_lock (&dual_mutex);
+  for (guint i = 0; i < G_N_ELEMENTS (dual_models); i++) {
+    dual_models[i].head = 0;
+    dual_models[i].count = 0;
+    dual_models[i].last = STREAM_FRONT;
+
+    for (guint s = 0; s < STREAM_NUM; s++)
+      dual_models[i].waiting[s] = 0;
+  }
+  g_mutex_unlock (&dual_mutex);
 
-  g_mutex_lock (&res_mutex);
+  nns_ex_dual_reset_counts ();
+}
 
-  estimated_pose.clear ();
-  for (guint i = 0; i < len; ++i) {
-    if (detected[i].prob > threshold_score)
-      detected[i].valid = TRUE;
+/**
+ * @brief Pad probe on the funnel before the shared model, passes the frame if it is the turn of the stream.
+ * The model takes a frame at a time, and the stream served last yields to the other stream.
+ * The probe never blocks the streaming thread of the camera, the frame is dropped if it is not the turn.
+ */
+static GstPadProbeReturn
+nns_ex_dual_gate_cb (GstPad * pad, GstPadProbeInfo * info, gpointer user_data)
+{
+  dual_gate_s *gate = (dual_gate_s *) user_data;
+  dual_model_s *dm = gate->dm;
+  GstBuffer *buffer = GST_PAD_PROBE_INFO_BUFFER (info);
+  gint other = (gate->stream + 1) % STREAM_NUM;
+  gint64 now = g_get_monotonic_time ();
+  dual_admitted_s *admitted;
+  gboolean busy, yield;
+
+  g_mutex_lock (&dual_mutex);
+
+  /* the result of the last frame is not arrived yet, it is lost if expired */
+  busy = (dm->count > 0 &&
+      now - dm->admitted[(dm->head + dm->count - 1) % DUAL_INFLIGHT_MAX].time < DUAL_WAIT_TIMEOUT);
+
+  /* the other stream dropped a frame for its turn */
+  yield = (dm->last == gate->stream && dm->waiting[other] > 0 &&
+      now - dm->waiting[other] < DUAL_WAIT_TIMEOUT);
+
+  if (busy || yield) {
+    dm->waiting[gate->stream] = now;
+    g_mutex_unlock (&dual_mutex);
+    return GST_PAD_PROBE_DROP;
+  }
 
-    estimated_pose.push_back (detected[i]);
+  if (dm->count == DUAL_INFLIGHT_MAX) {
+    /* the results are lost in the model, forget the oldest frame */
+    dm->head = (dm->head + 1) % DUAL_INFLIGHT_MAX;
+    dm->count--;
   }
 
-  g_mutex_unlock (&res_mutex);
+  admitted = &dm->admitted[(dm->head + dm->count) % DUAL_INFLIGHT_MAX];
+  admitted->stream = gate->stream;
+  admitted->pts = GST_BUFFER_PTS (buffer);
+  admitted->time = now;
+  dm->count++;
+
+  dm->waiting[gate->stream] = 0;
+  dm->last = gate->stream;
+  dm->served[gate->stream]++;
+  g_mutex_unlock (&dual_mutex);
+
+  return GST_PAD_PROBE_OK;
 }
 
 /**
- * @brief Draw line of pose estimation.
+ * @brief Release the frame when the result arrives at the sink.
+ * The result is matched with the admitted frame by the timestamp. The frames admitted before it are dropped in the model.
+ * @return The stream of the result.
  */
-static void
-pose_draw_line (cairo_t * cr, std::vector<pose_s> &detected,
-    guint start, guint end)
+static gint
+nns_ex_dual_release (const gint model, const GstClockTime pts)
 {
-  gdouble xs, ys, xe, ye;
+  dual_model_s *dm;
+  gint stream = STREAM_BACK;
+  guint i, released = 0;
 
-  if (detected[start].valid && detected[end].valid) {
-    xs = detected[start].x * MEDIA_WIDTH / POSE_OUT_W;
-    ys = detected[start].y * MEDIA_HEIGHT / POSE_OUT_H;
+  if (!dual_enabled)
+    return STREAM_BACK;
 
-    xe = detected[end].x * MEDIA_WIDTH / POSE_OUT_W;
-    ye = detected[end].y * MEDIA_HEIGHT / POSE_OUT_H;
+  dm = nns_ex_dual_get_model (model);
 
-    cairo_move_to (cr, xs, ys);
-    cairo_line_to (cr, xe, ye);
-    cairo_stroke (cr);
+  g_mutex_lock (&dual_mutex);
+  for (i = 0; i < dm->count; i++) {
+    dual_admitted_s *admitted = &dm->admitted[(dm->head + i) % DUAL_INFLIGHT_MAX];
+
+    if (admitted->pts == pts) {
+      stream = admitted->stream;
+      released = i + 1;
+      break;
+    }
+  }
+
+  if (released == 0 && dm->count > 0) {
+    /* unknown timestamp, the result is of the oldest frame */
+    stream = dm->admitted[dm->head].stream;
+    released = 1;
   }
+
+  dm->head = (dm->head + released) % DUAL_INFLIGHT_MAX;
+  dm->count -= released;
+  g_mutex_unlock (&dual_mutex);
+
+  return stream;
 }
 
 /**
- * @brief Draw pose estimation.
+ * @brief Find the stream of the frame in the shared model.
+ * @return The stream of the frame, -1 if the frame is not in the model.
  */
-static void
-pose_draw (cairo_t * cr)
+static gint
+nns_ex_dual_find_stream (const gint model, const GstClockTime pts)
 {
-  std::vector<pose_s> detected;
-  gdouble x, y;
+  dual_model_s *dm = nns_ex_dual_get_model (model);
+  gint stream = -1;
 
-  g_mutex_lock (&res_mutex);
-  detected = estimated_pose;
-  g_mutex_unlock (&res_mutex);
+  g_mutex_lock (&dual_mutex);
+  for (guint i = 0; i < dm->count; i++) {
+    dual_admitted_s *admitted = &dm->admitted[(dm->head + i) % DUAL_INFLIGHT_MAX];
 
-  if (detected.size () != POSE_SIZE) {
-    nns_logd ("Current vector size is %zd", detected.size ());
-    return;
+    if (admitted->pts == pts) {
+      stream = admitted->stream;
+      break;
+    }
   }
+  g_mutex_unlock (&dual_mutex);
 
-  cairo_set_source_rgb (cr, 1.0, 1.0, 1.0);
-  cairo_set_line_width (cr, 3.0);
+  return stream;
+}
 
-  /* line */
-  pose_draw_line (cr, detected, 0, 1);
-  pose_draw_line (cr, detected, 1, 2);
-  pose_draw_line (cr, detected, 2, 3);
-  pose_draw_line (cr, detected, 3, 4);
-  pose_draw_line (cr, detected, 1, 5);
-  pose_draw_line (cr, detected, 5, 6);
-  pose_draw_line (cr, detected, 6, 7);
-  pose_draw_line (cr, detected, 1, 8);
-  pose_draw_line (cr, detected, 8, 9);
-  pose_draw_line (cr, detected, 9, 10);
-  pose_draw_line (cr, detected, 1, 11);
-  pose_draw_line (cr, detected, 11, 12);
-  pose_draw_line (cr, detected, 12, 13);
+/**
+ * @brief Pad probe to count the frames of the camera stream.
+ */
+static GstPadProbeReturn
+nns_ex_dual_frame_cb (GstPad * pad, GstPadProbeInfo * info, gpointer user_data)
+{
+  gint stream = GPOINTER_TO_INT (user_data);
 
-  /* dot */
-  for (guint i = 0; i < POSE_SIZE; ++i) {
-    if (detected[i].valid) {
-      x = detected[i].x * MEDIA_WIDTH / POSE_OUT_W;
-      y = detected[i].y * MEDIA_HEIGHT / POSE_OUT_H;
+  g_mutex_lock (&dual_mutex);
+  dual_frames[stream]++;
+  g_mutex_unlock (&dual_mutex);
 
-      cairo_arc (cr, x, y, 5, 0, 2 * M_PI);
-      cairo_fill (cr);
-    }
-  }
+  return GST_PAD_PROBE_OK;
 }
 
 /**
- * @brief Parse pose result.
+ * @brief Add the latency of a stage. The caller should hold the latency lock.
  */
 static void
-nns_ex_parse_pose (GstBuffer * buffer)
+nns_ex_latency_add_locked (const gint stage, const gint64 latency)
 {
-  GstMemory *mem_pose;
-  GstMapInfo info_pose;
-  gfloat *pose_data;
-  guint index, i, j;
-  guint maxX, maxY;
-  gfloat max, cen;
-  std::vector<pose_s> detected;
+  latency_stage_s *ls = &latency_stages[stage];
 
-  if (gst_buffer_n_memory (buffer) != 1) {
-    nns_loge ("Invalid result, the number of memory blocks is different.");
-    return;
+  ls->count++;
+  ls->total += latency;
+  if (ls->max < latency)
+    ls->max = latency;
+}
+
+/**
+ * @brief Reset the latency of the stages.
+ */
+static void
+nns_ex_latency_reset (void)
+{
+  g_mutex_lock (&latency_mutex);
+  for (guint i = 0; i < LATENCY_NUM; i++) {
+    latency_stages[i].count = 0;
+    latency_stages[i].total = 0;
+    latency_stages[i].max = 0;
   }
+  g_mutex_unlock (&latency_mutex);
+}
 
-  mem_pose = gst_buffer_get_memory (buffer, 0);
-  gst_memory_map (mem_pose, &info_pose, GST_MAP_READ);
+/**
+ * @brief Clear the capture time of the frames, when the pipeline is started.
+ */
+static void
+nns_ex_latency_clear (void)
+{
+  g_mutex_lock (&latency_mutex);
+  memset (latency_frames, 0, sizeof (latency_frames));
+  memset (latency_frame_index, 0, sizeof (latency_frame_index));
+  g_mutex_unlock (&latency_mutex);
 
-  pose_data = (gfloat *) info_pose.data;
+  nns_ex_latency_reset ();
+}
 
-  for (index = 0; index < POSE_SIZE; ++index) {
-    maxX = maxY = 0;
-    max = .0f;
+/**
+ * @brief Find the capture time of the frame in the stream. The caller should hold the latency lock.
+ * @return The capture time of the frame, 0 if the frame is too old.
+ */
+static gint64
+nns_ex_latency_find_locked (const gint stream, const GstClockTime pts)
+{
+  if (stream < 0 || stream >= STREAM_NUM || !GST_CLOCK_TIME_IS_VALID (pts))
+    return 0;
 
-    for (j = 0; j < POSE_OUT_H; ++j) {
-      for (i = 0; i < POSE_OUT_W; ++i) {
-        cen = pose_data[i * POSE_SIZE + j * POSE_OUT_W * POSE_SIZE + index];
+  /* search from the latest frame */
+  for (guint i = 1; i <= LATENCY_HISTORY; i++) {
+    latency_frame_s *frame = &latency_frames[stream]
+        [(latency_frame_index[stream] + LATENCY_HISTORY - i) % LATENCY_HISTORY];
 
-        if (cen > max) {
-          max = cen;
-          maxX = i;
-          maxY = j;
-        }
-      }
-    }
+    if (frame->capture_time > 0 && frame->pts == pts)
+      return frame->capture_time;
+  }
 
-    pose_s p;
+  return 0;
+}
 
-    p.valid = FALSE;
-    p.x = maxX;
-    p.y = maxY;
-    p.prob = max;
+/**
+ * @brief Add the latency of a stage with the frame.
+ * @return The capture time of the frame, 0 if the frame is not found.
+ */
+static gint64
+nns_ex_latency_update (const gint stage, const gint stream, const GstClockTime pts)
+{
+  gint64 now = g_get_monotonic_time ();
+  gint64 capture_time;
 
-    detected.push_back (p);
+  g_mutex_lock (&latency_mutex);
+  capture_time = nns_ex_latency_find_locked (stream, pts);
+  if (capture_time > 0)
+    nns_ex_latency_add_locked (stage, now - capture_time);
+  g_mutex_unlock (&latency_mutex);
+
+  return capture_time;
+}
+
+/**
+ * @brief Pad probe to keep the capture time of the frame, on the src pad of the camera.
+ * The age of the frame is the difference between the running time and the timestamp given by the camera.
+ */
+static GstPadProbeReturn
+nns_ex_latency_capture_cb (GstPad * pad, GstPadProbeInfo * info,
+    gpointer user_data)
+{
+  GstBuffer *buffer = GST_PAD_PROBE_INFO_BUFFER (info);
+  latency_probe_s *probe = (latency_probe_s *) user_data;
+  GstElement *camera = probe->camera;
+  latency_frame_s *frame;
+  GstClock *camera_clock;
+  GstClockTime pts = GST_BUFFER_PTS (buffer);
+  gint64 now = g_get_monotonic_time ();
+  gint64 age = 0;
+
+  if (!GST_CLOCK_TIME_IS_VALID (pts))
+    return GST_PAD_PROBE_OK;
+
+  camera_clock = gst_element_get_clock (camera);
+  if (camera_clock) {
+    GstClockTime running_time =
+        gst_clock_get_time (camera_clock) - gst_element_get_base_time (camera);
+
+    if (running_time > pts)
+      age = GST_TIME_AS_USECONDS (running_time - pts);
+    gst_object_unref (camera_clock);
   }
 
-  gst_memory_unmap (mem_pose, &info_pose);
-  gst_memory_unref (mem_pose);
+  g_mutex_lock (&latency_mutex);
+  frame = &latency_frames[probe->stream][latency_frame_index[probe->stream]];
+  frame->pts = pts;
+  frame->capture_time = now - age;
+  latency_frame_index[probe->stream] = (latency_frame_index[probe->stream] + 1) % LATENCY_HISTORY;
 
-  pose_update_result (detected);
+  nns_ex_latency_add_locked (LATENCY_CAPTURE, age);
+  g_mutex_unlock (&latency_mutex);
+
+  return GST_PAD_PROBE_OK;
 }
 
 /**
- * @brief Parse detection result.
+ * @brief Pad probe to measure the latency of the stage.
+ */
+static GstPadProbeReturn
+nns_ex_latency_stage_cb (GstPad * pad, GstPadProbeInfo * info,
+    gpointer user_data)
+{
+  GstBuffer *buffer = GST_PAD_PROBE_INFO_BUFFER (info);
+  latency_probe_s *probe = (latency_probe_s *) user_data;
+  gint stream = probe->stream;
+
+  /* the frame in the shared model is not released until the result arrives at the sink */
+  if (stream < 0)
+    stream = nns_ex_dual_find_stream (probe->model, GST_BUFFER_PTS (buffer));
+
+  nns_ex_latency_update (probe->stage, stream, GST_BUFFER_PTS (buffer));
+  return GST_PAD_PROBE_OK;
+}
+
+/**
+ * @brief Add the pad probe on the src pad of the element, to measure the latency of the stage.
+ * The element shared by the camera streams (stream -1) finds the stream of the frame with the model.
  */
 static void
-nns_ex_parse_ssd (GstBuffer * buffer, const gint model)
+nns_ex_latency_connect_probe (GstElement * pipeline, const gchar * name,
+    const gint stage, const gint stream, const gint model)
 {
-  GstMemory *mem_boxes, *mem_detections;
-  GstMapInfo info_boxes, info_detections;
-  gfloat *boxes, *detections;
+  GstElement *element;
+  GstPad *pad;
+  latency_probe_s *probe;
 
-  if (gst_buffer_n_memory (buffer) != 2) {
-    nns_loge ("Invalid result, the number of memory blocks is different.");
+  element = gst_bin_get_by_name (GST_BIN (pipeline), name);
+  if (!element) {
+    nns_loge ("Cannot find %s to measure the latency", name);
     return;
   }
 
-  /* boxes */
-  mem_boxes = gst_buffer_get_memory (buffer, 0);
-  gst_memory_map (mem_boxes, &info_boxes, GST_MAP_READ);
-  boxes = (gfloat *) info_boxes.data;
+  probe = g_new0 (latency_probe_s, 1);
+  probe->stage = stage;
+  probe->stream = stream;
+  probe->model = model;
+
+  pad = gst_element_get_static_pad (element, "src");
+  if (stage == LATENCY_CAPTURE) {
+    /* the pipeline keeps the camera while the probe is alive */
+    probe->camera = element;
+    gst_pad_add_probe (pad, GST_PAD_PROBE_TYPE_BUFFER,
+        nns_ex_latency_capture_cb, probe, g_free);
+  } else {
+    gst_pad_add_probe (pad, GST_PAD_PROBE_TYPE_BUFFER,
+        nns_ex_latency_stage_cb, probe, g_free);
+  }
 
-  /* detections */
-  mem_detections = gst_buffer_get_memory (buffer, 1);
-  gst_memory_map (mem_detections, &info_detections, GST_MAP_READ);
-  detections = (gfloat *) info_detections.data;
+  gst_object_unref (pad);
+  gst_object_unref (element);
+}
+
+/**
+ * @brief Add the pad probe to measure the latency of the stage in the camera stream.
+ */
+static void
+nns_ex_latency_connect (GstElement * pipeline, const gchar * name,
+    const gint stage, const gint stream)
+{
+  nns_ex_latency_connect_probe (pipeline, name, stage, stream, 0);
+}
+
+/**
+ * @brief Add the pad probes to measure the latency of the preprocessing (scale and convert).
+ */
+static void
+nns_ex_latency_connect_preproc (GstElement * pipeline, const gchar * name,
+    const gint stream)
+{
+  gchar *element_name;
+
+  element_name = g_strdup_printf ("scale_%s", name);
+  nns_ex_latency_connect (pipeline, element_name, LATENCY_SCALE, stream);
+  g_free (element_name);
+
+  element_name = g_strdup_printf ("transform_%s", name);
+  nns_ex_latency_connect (pipeline, element_name, LATENCY_CONVERT, stream);
+  g_free (element_name);
+}
+
+/**
+ * @brief Keep the capture time of the decoded result, and add the latency to decode it.
+ * The caller should hold the result lock.
+ */
+static void
+nns_ex_latency_update_result (postproc_model_s * pm, const gint stream,
+    const GstClockTime pts)
+{
+  gint64 capture_time = nns_ex_latency_update (LATENCY_DECODE, stream, pts);
+
+  if (capture_time > 0)
+    pm->result_time[stream] = capture_time;
+}
+
+/**
+ * @brief Add the latency of the result drawn on the overlay.
+ */
+static void
+nns_ex_latency_update_draw (const gint model, const gint stream)
+{
+  postproc_model_s *pm = nns_ex_get_postproc (model);
+  gint64 capture_time;
+
+  g_mutex_lock (&res_mutex);
+  capture_time = pm->result_time[stream];
+  g_mutex_unlock (&res_mutex);
+
+  if (capture_time > 0) {
+    g_mutex_lock (&latency_mutex);
+    nns_ex_latency_add_locked (LATENCY_DRAW, g_get_monotonic_time () - capture_time);
+    g_mutex_unlock (&latency_mutex);
+  }
+}
+
+/**
+ * @brief Get the latency of the stages since last reset (JSON).
+ * The latency of each stage is the time from the capture, average and max in milliseconds.
+ */
+static gboolean
+nns_ex_get_latency (gchar ** latency, const gboolean reset)
+{
+  GString *str;
+
+  str = g_string_new ("{\"stages\":[");
+
+  g_mutex_lock (&latency_mutex);
+  for (guint i = 0; i < LATENCY_NUM; i++) {
+    latency_stage_s *ls = &latency_stages[i];
+
+    g_string_append_printf (str,
+        "%s{\"name\":\"%s\",\"count\":%" G_GUINT64_FORMAT ",\"avg_ms\":%.2f,\"max_ms\":%.2f}",
+        (i > 0) ? "," : "", ls->name, ls->count,
+        (ls->count > 0) ? (ls->total / 1000.0 / ls->count) : 0.0, ls->max / 1000.0);
+  }
+  g_mutex_unlock (&latency_mutex);
+
+  g_string_append (str, "]}");
+
+  if (reset)
+    nns_ex_latency_reset ();
+
+  *latency = g_string_free (str, FALSE);
+  return TRUE;
+}
+
+/**
+ * @brief Get the statistics of the model.
+ */
+static stats_model_s *
+nns_ex_stats_get_model (const gint model)
+{
+  for (guint i = 0; i < G_N_ELEMENTS (stats_models); i++) {
+    if (stats_models[i].model == model)
+      return &stats_models[i];
+  }
+
+  return NULL;
+}
+
+/**
+ * @brief Reset the statistics, to measure the pipeline from now. Caller should hold the stats lock.
+ */
+static void
+nns_ex_stats_reset_locked (void)
+{
+  stats_start_time = g_get_monotonic_time ();
+  stats_frames = 0;
+
+  for (guint i = 0; i < G_N_ELEMENTS (stats_models); i++) {
+    stats_models[i].received = 0;
+    stats_models[i].invoked = 0;
+    stats_models[i].latency_total = 0;
+    stats_models[i].latency_max = 0;
+    stats_models[i].invoke_start = 0;
+  }
+
+  for (guint i = 0; i < G_N_ELEMENTS (postproc_models); i++) {
+    g_atomic_int_set (&postproc_models[i].processed, 0);
+    g_atomic_int_set (&postproc_models[i].overrun, 0);
+  }
+
+  nns_ex_dual_reset_counts ();
+}
+
+/**
+ * @brief Reset the statistics, to measure the pipeline from now.
+ */
+static void
+nns_ex_stats_reset (void)
+{
+  g_mutex_lock (&stats_mutex);
+  nns_ex_stats_reset_locked ();
+  g_mutex_unlock (&stats_mutex);
+}
+
+/**
+ * @brief Pad probe to count the frames arrived at the model branch.
+ */
+static GstPadProbeReturn
+nns_ex_stats_received_cb (GstPad * pad, GstPadProbeInfo * info,
+    gpointer user_data)
+{
+  stats_model_s *sm = (stats_model_s *) user_data;
+
+  g_mutex_lock (&stats_mutex);
+  sm->received++;
+  g_mutex_unlock (&stats_mutex);
+
+  return GST_PAD_PROBE_OK;
+}
+
+/**
+ * @brief Pad probe on the sink pad of tensor_filter, the frame will be processed.
+ */
+static GstPadProbeReturn
+nns_ex_stats_invoke_cb (GstPad * pad, GstPadProbeInfo * info,
+    gpointer user_data)
+{
+  stats_model_s *sm = (stats_model_s *) user_data;
+
+  g_mutex_lock (&stats_mutex);
+  sm->invoke_start = g_get_monotonic_time ();
+  g_mutex_unlock (&stats_mutex);
+
+  return GST_PAD_PROBE_OK;
+}
+
+/**
+ * @brief Pad probe on the src pad of tensor_filter, the frame is processed.
+ * tensor_filter invokes the model in the streaming thread, so the latency is the time between two probes.
+ */
+static GstPadProbeReturn
+nns_ex_stats_done_cb (GstPad * pad, GstPadProbeInfo * info,
+    gpointer user_data)
+{
+  stats_model_s *sm = (stats_model_s *) user_data;
+  gint64 latency;
+
+  g_mutex_lock (&stats_mutex);
+  if (sm->invoke_start > 0) {
+    latency = g_get_monotonic_time () - sm->invoke_start;
+
+    sm->invoked++;
+    sm->latency_total += latency;
+    sm->latency_max = MAX (sm->latency_max, latency);
+    sm->invoke_start = 0;
+  }
+  g_mutex_unlock (&stats_mutex);
+
+  return GST_PAD_PROBE_OK;
+}
+
+/**
+ * @brief Get the statistics since last reset (JSON).
+ * The frames arrived at the branch but not processed are dropped in the leaky queue.
+ */
+static gboolean
+nns_ex_get_stats (gchar ** stats, const gboolean reset)
+{
+  GString *str;
+  gint64 elapsed;
+  gboolean first = TRUE;
+  gint option = nns_ex_get_launch_option ();
+
+  g_mutex_lock (&stats_mutex);
+  elapsed = (stats_start_time > 0) ? (g_get_monotonic_time () - stats_start_time) : 0;
+
+  str = g_string_new (NULL);
+  g_string_append_printf (str,
+      "{\"option\":%d,\"elapsed_ms\":%" G_GINT64_FORMAT ",\"frames\":%" G_GUINT64_FORMAT
+      ",\"fps\":%.2f,\"models\":[", option, elapsed / 1000, stats_frames,
+      (elapsed > 0) ? (stats_frames * 1000000.0 / elapsed) : 0.0);
+
+  for (guint i = 0; i < G_N_ELEMENTS (stats_models); i++) {
+    stats_model_s *sm = &stats_models[i];
+    postproc_model_s *pm = nns_ex_get_postproc (sm->model);
+
+    if (!(option & sm->model))
+      continue;
+
+    g_string_append_printf (str,
+        "%s{\"name\":\"%s\",\"received\":%" G_GUINT64_FORMAT ",\"invoked\":%" G_GUINT64_FORMAT
+        ",\"dropped\":%" G_GUINT64_FORMAT ",\"fps\":%.2f,\"latency_avg_ms\":%.2f"
+        ",\"latency_max_ms\":%.2f,\"overrun\":%d}",
+        (first) ? "" : ",", sm->name, sm->received, sm->invoked,
+        (sm->received > sm->invoked) ? (sm->received - sm->invoked) : 0,
+        (elapsed > 0) ? (sm->invoked * 1000000.0 / elapsed) : 0.0,
+        (sm->invoked > 0) ? (sm->latency_total / 1000.0 / sm->invoked) : 0.0,
+        sm->latency_max / 1000.0, g_atomic_int_get (&pm->overrun));
+    first = FALSE;
+  }
+
+  g_string_append (str, "]");
+
+  if (dual_enabled) {
+    /* frame rate of each camera, and the inference rate of the models for the stream */
+    g_string_append (str, ",\"streams\":[");
+
+    g_mutex_lock (&dual_mutex);
+    for (guint s = 0; s < STREAM_NUM; s++) {
+      g_string_append_printf (str,
+          "%s{\"name\":\"%s\",\"frames\":%" G_GUINT64_FORMAT ",\"fps\":%.2f,\"models\":[",
+          (s > 0) ? "," : "", (s == STREAM_FRONT) ? "front" : "back", dual_frames[s],
+          (elapsed > 0) ? (dual_frames[s] * 1000000.0 / elapsed) : 0.0);
+
+      first = TRUE;
+      for (guint i = 0; i < G_N_ELEMENTS (dual_models); i++) {
+        dual_model_s *dm = &dual_models[i];
+
+        if (!(option & dm->model))
+          continue;
+
+        g_string_append_printf (str,
+            "%s{\"name\":\"%s\",\"invoked\":%" G_GUINT64_FORMAT ",\"fps\":%.2f}",
+            (first) ? "" : ",", nns_ex_stats_get_model (dm->model)->name, dm->served[s],
+            (elapsed > 0) ? (dm->served[s] * 1000000.0 / elapsed) : 0.0);
+        first = FALSE;
+      }
+
+      g_string_append (str, "]}");
+    }
+    g_mutex_unlock (&dual_mutex);
+
+    g_string_append (str, "]");
+  }
+
+  g_string_append (str, "}");
+
+  /* reset in the same lock, not to lose the frames counted in the meantime */
+  if (reset)
+    nns_ex_stats_reset_locked ();
+  g_mutex_unlock (&stats_mutex);
+
+  *stats = g_string_free (str, FALSE);
+  return TRUE;
+}
+
+/**
+ * @brief Reset the region of interest.
+ */
+static void
+cascade_reset (void)
+{
+  memset (&cascade_roi, 0, sizeof (cascade_roi_s));
+  memset (&cascade_crop, 0, sizeof (cascade_roi_s));
+  memset (cascade_history, 0, sizeof (cascade_history));
+  cascade_history_index = 0;
+}
+
+/**
+ * @brief Update the region of interest with the person boxes (SSD model coordinates).
+ * Caller should hold the result lock.
+ */
+static void
+cascade_update_roi (std::vector<ssd_object_s> &objects)
+{
+  gfloat xmin = G_MAXFLOAT, ymin = G_MAXFLOAT, xmax = 0.f, ymax = 0.f;
+  gfloat cx, cy, size;
+  gboolean found = FALSE;
+  std::vector<ssd_object_s>::iterator iter;
+
+  for (iter = objects.begin (); iter != objects.end (); ++iter) {
+    if (iter->class_id != CASCADE_PERSON_CLASS)
+      continue;
+
+    xmin = MIN (xmin, (gfloat) iter->x);
+    ymin = MIN (ymin, (gfloat) iter->y);
+    xmax = MAX (xmax, (gfloat) (iter->x + iter->width));
+    ymax = MAX (ymax, (gfloat) (iter->y + iter->height));
+    found = TRUE;
+  }
+
+  if (!found) {
+    cascade_roi.size = 0;
+    return;
+  }
+
+  /* square in media coordinates */
+  xmin = xmin * MEDIA_WIDTH / SSD_MODEL_WIDTH;
+  xmax = xmax * MEDIA_WIDTH / SSD_MODEL_WIDTH;
+  ymin = ymin * MEDIA_HEIGHT / SSD_MODEL_HEIGHT;
+  ymax = ymax * MEDIA_HEIGHT / SSD_MODEL_HEIGHT;
+
+  cx = (xmin + xmax) / 2.f;
+  cy = (ymin + ymax) / 2.f;
+  size = MAX (xmax - xmin, ymax - ymin) * CASCADE_ROI_MARGIN;
+  size = CLAMP (size, (gfloat) CASCADE_ROI_ALIGN, (gfloat) MIN (MEDIA_WIDTH, MEDIA_HEIGHT));
+
+  cascade_roi.size = GST_ROUND_UP_N ((gint) size, CASCADE_ROI_ALIGN);
+  cascade_roi.size = MIN (cascade_roi.size, MIN (MEDIA_WIDTH, MEDIA_HEIGHT));
+  cascade_roi.x = GST_ROUND_DOWN_N ((gint) (cx - cascade_roi.size / 2.f), CASCADE_ROI_ALIGN);
+  cascade_roi.y = GST_ROUND_DOWN_N ((gint) (cy - cascade_roi.size / 2.f), CASCADE_ROI_ALIGN);
+  cascade_roi.x = CLAMP (cascade_roi.x, 0, MEDIA_WIDTH - cascade_roi.size);
+  cascade_roi.y = CLAMP (cascade_roi.y, 0, MEDIA_HEIGHT - cascade_roi.size);
+}
+
+/**
+ * @brief Get the region of interest used to crop the frame.
+ */
+static gboolean
+cascade_get_roi (const GstClockTime pts, cascade_roi_s * roi)
+{
+  gboolean found = FALSE;
+
+  g_mutex_lock (&res_mutex);
+
+  for (guint i = 0; i < CASCADE_ROI_HISTORY; i++) {
+    if (cascade_history[i].size > 0 && cascade_history[i].pts == pts) {
+      *roi = cascade_history[i];
+      found = TRUE;
+      break;
+    }
+  }
+
+  g_mutex_unlock (&res_mutex);
+  return found;
+}
+
+/**
+ * @brief Callback for the pad probe to crop the region of interest.
+ * If no person is detected, the frame is dropped and the models in cascade are skipped.
+ */
+static GstPadProbeReturn
+nns_ex_cascade_probe_cb (GstPad * pad, GstPadProbeInfo * info,
+    gpointer user_data)
+{
+  GstElement *crop = GST_ELEMENT (user_data);
+  GstBuffer *buffer = GST_PAD_PROBE_INFO_BUFFER (info);
+  cascade_roi_s roi;
+
+  g_mutex_lock (&res_mutex);
+
+  roi = cascade_roi;
+
+  if (roi.size == 0) {
+    /* no person, clear the results of the models in cascade */
+    nns_ex_clear_results (MODEL_FACE | MODEL_HAND | MODEL_POSE);
+
+    g_mutex_unlock (&res_mutex);
+    return GST_PAD_PROBE_DROP;
+  }
+
+  roi.pts = GST_BUFFER_PTS (buffer);
+  cascade_history[cascade_history_index] = roi;
+  cascade_history_index = (cascade_history_index + 1) % CASCADE_ROI_HISTORY;
+
+  g_mutex_unlock (&res_mutex);
+
+  /* streaming thread of the queue updates the crop */
+  if (roi.x != cascade_crop.x || roi.y != cascade_crop.y ||
+      roi.size != cascade_crop.size) {
+    g_object_set (crop, "left", roi.x, "top", roi.y,
+        "right", MEDIA_WIDTH - roi.x - roi.size,
+        "bottom", MEDIA_HEIGHT - roi.y - roi.size, NULL);
+    cascade_crop = roi;
+  }
+
+  return GST_PAD_PROBE_OK;
+}
+
+/**
+ * @brief Compare score of detected objects.
+ */
+static bool
+ssd_compare_objs (ssd_object_s &a, ssd_object_s &b)
+{
+  return a.prob > b.prob;
+}
+
+/**
+ * @brief Intersection of union
+ */
+static gfloat
+ssd_iou (ssd_object_s &A, ssd_object_s &B)
+{
+  gint x1 = std::max (A.x, B.x);
+  gint y1 = std::max (A.y, B.y);
+  gint x2 = std::min (A.x + A.width, B.x + B.width);
+  gint y2 = std::min (A.y + A.height, B.y + B.height);
+  gint w = std::max (0, (x2 - x1 + 1));
+  gint h = std::max (0, (y2 - y1 + 1));
+  gfloat inter = w * h;
+  gfloat areaA = A.width * A.height;
+  gfloat areaB = B.width * B.height;
+  gfloat o = inter / (areaA + areaB - inter);
+  return (o >= 0) ? o : 0;
+}
+
+/**
+ * @brief NMS (non-maximum suppression)
+ * @return TRUE if the result is updated, FALSE if it missed the deadline.
+ */
+static gboolean
+ssd_nms (std::vector<ssd_object_s> &detected, const gint model,
+    const gint stream, const gint64 deadline)
+{
+  const gfloat threshold_iou = .5f;
+  gsize boxes_size;
+  guint i, j;
+
+  std::sort (detected.begin (), detected.end (), ssd_compare_objs);
+  boxes_size = detected.size ();
+
+  std::vector<bool> del (boxes_size, false);
+  for (i = 0; i < boxes_size; i++) {
+    if (!del[i]) {
+      for (j = i + 1; j < boxes_size; j++) {
+        if (ssd_iou (detected.at (i), detected.at (j)) > threshold_iou) {
+          del[j] = true;
+        }
+      }
+    }
+  }
+
+  /* the late result is discarded, keep the previous one */
+  if (g_get_monotonic_time () > deadline)
+    return FALSE;
+
+  /* update result */
+  g_mutex_lock (&res_mutex);
+
+  if (IS_FACE (model)) {
+    detected_face[stream].clear ();
+    for (i = 0; i < boxes_size; i++) {
+      if (!del[i])
+        detected_face[stream].push_back (detected[i]);
+    }
+  } else if (IS_HAND (model)) {
+    detected_hand[stream].clear ();
+    for (i = 0; i < boxes_size; i++) {
+      if (!del[i])
+        detected_hand[stream].push_back (detected[i]);
+    }
+  } else if (IS_OBJ (model)) {
+    detected_object[stream].clear ();
+    for (i = 0; i < boxes_size; i++) {
+      if (!del[i])
+        detected_object[stream].push_back (detected[i]);
+    }
+
+    if (cascade_enabled)
+      cascade_update_roi (detected_object[stream]);
+  }
+
+  g_mutex_unlock (&res_mutex);
+  return TRUE;
+}
+
+/**
+ * @brief Update detected objects.
+ * @return TRUE if the result is updated.
+ */
+static gboolean
+ssd_update_detection (gfloat * detections, gfloat * boxes, const gint model,
+    const gint stream, const cascade_roi_s * roi, const gint64 deadline)
+{
+  const gfloat threshold_score = .5f;
+  gfloat xcenter, ycenter, x, y, width, height;
+  gfloat xmin, ymin, xmax, ymax, score;
+  gfloat *detect, *box;
+  guint label_size;
+  std::vector<ssd_object_s> detected;
+
+  label_size = nns_ex_get_label_size (model);
+
+  for (guint d = 0; d < SSD_DETECTION_MAX; d++) {
+    box = boxes + (SSD_BOX_SIZE * d);
+
+    ycenter = box[0] / Y_SCALE * nns_ex_model_info.box_priors[2][d] +
+        nns_ex_model_info.box_priors[0][d];
+    xcenter = box[1] / X_SCALE * nns_ex_model_info.box_priors[3][d] +
+        nns_ex_model_info.box_priors[1][d];
+    height = (gfloat) expf (box[2] / H_SCALE) * nns_ex_model_info.box_priors[2][d];
+    width = (gfloat) expf (box[3] / W_SCALE) * nns_ex_model_info.box_priors[3][d];
+
+    ymin = ycenter - height / 2.f;
+    xmin = xcenter - width / 2.f;
+    ymax = ycenter + height / 2.f;
+    xmax = xcenter + width / 2.f;
+
+    if (roi) {
+      /* box in the cropped region */
+      xmin = (roi->x + xmin * roi->size) / MEDIA_WIDTH;
+      xmax = (roi->x + xmax * roi->size) / MEDIA_WIDTH;
+      ymin = (roi->y + ymin * roi->size) / MEDIA_HEIGHT;
+      ymax = (roi->y + ymax * roi->size) / MEDIA_HEIGHT;
+    }
+
+    x = xmin * SSD_MODEL_WIDTH;
+    y = ymin * SSD_MODEL_HEIGHT;
+    width = (xmax - xmin) * SSD_MODEL_WIDTH;
+    height = (ymax - ymin) * SSD_MODEL_HEIGHT;
+
+    detect = detections + (label_size * d);
+    for (guint c = 1; c < label_size; c++) {
+      score = 1.f / (1.f + expf (-1.f * detect[c]));
+
+      /**
+       * This score cutoff is taken from Tensorflow's demo app.
+       * There are quite a lot of nodes to be run to convert it to the useful possibility
+       * scores. As a result of that, this cutoff will cause it to lose good detections in
+       * some scenarios and generate too much noise in other scenario.
+       */
+      if (score < threshold_score)
+        continue;
+
+      ssd_object_s object;
+
+      object.class_id = c;
+      object.x = (guint) x;
+      object.y = (guint) y;
+      object.width = (guint) width;
+      object.height = (guint) height;
+      object.prob = score;
+
+      detected.push_back (object);
+    }
+  }
+
+  return ssd_nms (detected, model, stream, deadline);
+}
+
+/**
+ * @brief Get detected objects.
+ */
+static guint
+ssd_get_detected_objects (ssd_object_s * objects, const gint model,
+    const gint stream)
+{
+  guint index = 0;
+  std::vector<ssd_object_s> detected;
+  std::vector<ssd_object_s>::iterator iter;
+
+  g_mutex_lock (&res_mutex);
+
+  if (IS_FACE (model))
+    detected = detected_face[stream];
+  else if (IS_HAND (model))
+    detected = detected_hand[stream];
+  else if (IS_OBJ (model))
+    detected = detected_object[stream];
+
+  g_mutex_unlock (&res_mutex);
+
+  for (iter = detected.begin (); iter != detected.end (); ++iter) {
+    objects[index].x = iter->x;
+    objects[index].y = iter->y;
+    objects[index].width = iter->width;
+    objects[index].height = iter->height;
+    objects[index].class_id = iter->class_id;
+    objects[index].prob = iter->prob;
+
+    if (++index >= MAX_OBJECT_DETECTION) {
+      /* max objects to be drawn */
+      break;
+    }
+  }
+
+  return index;
+}
+
+/**
+ * @brief Draw detected object.
+ */
+static void
+ssd_draw_object (cairo_t * cr, ssd_object_s * objects,
+    const gint size, const gint model)
+{
+  guint i;
+  gdouble x, y, width, height;
+  gdouble red, green, blue;
+  gchar *label;
+
+  /* Set clolr */
+  if (IS_FACE (model)) {
+    blue = 1.0;
+    red = green = 0.0;
+  } else if (IS_HAND (model)) {
+    red = blue = 0.0;
+    green = 0.5;
+  } else {
+    red = 1.0;
+    green = blue = 0.0;
+  }
+
+  for (i = 0; i < size; ++i) {
+    x = (gdouble) objects[i].x * MEDIA_WIDTH / SSD_MODEL_WIDTH;
+    y = (gdouble) objects[i].y * MEDIA_HEIGHT / SSD_MODEL_HEIGHT;
+    width = (gdouble) objects[i].width * MEDIA_WIDTH / SSD_MODEL_WIDTH;
+    height = (gdouble) objects[i].height * MEDIA_HEIGHT / SSD_MODEL_HEIGHT;
+
+    /* draw rectangle */
+    cairo_rectangle (cr, x, y, width, height);
+    cairo_set_source_rgb (cr, red, green, blue);
+    cairo_set_line_width (cr, 1.5);
+    cairo_stroke (cr);
+
+    /* draw title */
+    if (IS_OBJ (model)) {
+      if (nns_ex_get_label (model, objects[i].class_id, &label)) {
+        cairo_move_to (cr, x + 5, y + 15);
+        cairo_text_path (cr, label);
+        cairo_set_source_rgb (cr, red, green, blue);
+        cairo_fill_preserve (cr);
+        cairo_set_source_rgb (cr, 1, 1, 1);
+        cairo_set_line_width (cr, .3);
+        cairo_stroke (cr);
+        cairo_fill_preserve (cr);
+      } else {
+        nns_logd ("Failed to get label (class id %d)", objects[i].class_id);
+      }
+    }
+  }
+}
+
+/**
+ * @brief Update pose data.
+ * @return TRUE if the result is updated, FALSE if it missed the deadline.
+ */
+static gboolean
+pose_update_result (std::vector<pose_s> &detected, const gint stream,
+    const gint64 deadline)
+{
+  const gfloat threshold_score = .5f;
+  gsize len = detected.size ();
+
+  /* the late result is discarded, keep the previous one */
+  if (g_get_monotonic_time () > deadline)
+    return FALSE;
+
+  g_mutex_lock (&res_mutex);
+
+  estimated_pose[stream].clear ();
+  for (guint i = 0; i < len; ++i) {
+    if (detected[i].prob > threshold_score)
+      detected[i].valid = TRUE;
+
+    estimated_pose[stream].push_back (detected[i]);
+  }
+
+  g_mutex_unlock (&res_mutex);
+  return TRUE;
+}
+
+/**
+ * @brief Draw line of pose estimation.
+ */
+static void
+pose_draw_line (cairo_t * cr, std::vector<pose_s> &detected,
+    guint start, guint end)
+{
+  gdouble xs, ys, xe, ye;
+
+  if (detected[start].valid && detected[end].valid) {
+    xs = detected[start].x * MEDIA_WIDTH / POSE_OUT_W;
+    ys = detected[start].y * MEDIA_HEIGHT / POSE_OUT_H;
+
+    xe = detected[end].x * MEDIA_WIDTH / POSE_OUT_W;
+    ye = detected[end].y * MEDIA_HEIGHT / POSE_OUT_H;
+
+    cairo_move_to (cr, xs, ys);
+    cairo_line_to (cr, xe, ye);
+    cairo_stroke (cr);
+  }
+}
+
+/**
+ * @brief Draw pose estimation.
+ */
+static void
+pose_draw (cairo_t * cr, const gint stream)
+{
+  std::vector<pose_s> detected;
+  gdouble x, y;
+
+  g_mutex_lock (&res_mutex);
+  detected = estimated_pose[stream];
+  g_mutex_unlock (&res_mutex);
+
+  if (detected.size () != POSE_SIZE) {
+    nns_logd ("Current vector size is %zd", detected.size ());
+    return;
+  }
+
+  cairo_set_source_rgb (cr, 1.0, 1.0, 1.0);
+  cairo_set_line_width (cr, 3.0);
+
+  /* line */
+  pose_draw_line (cr, detected, 0, 1);
+  pose_draw_line (cr, detected, 1, 2);
+  pose_draw_line (cr, detected, 2, 3);
+  pose_draw_line (cr, detected, 3, 4);
+  pose_draw_line (cr, detected, 1, 5);
+  pose_draw_line (cr, detected, 5, 6);
+  pose_draw_line (cr, detected, 6, 7);
+  pose_draw_line (cr, detected, 1, 8);
+  pose_draw_line (cr, detected, 8, 9);
+  pose_draw_line (cr, detected, 9, 10);
+  pose_draw_line (cr, detected, 1, 11);
+  pose_draw_line (cr, detected, 11, 12);
+  pose_draw_line (cr, detected, 12, 13);
+
+  /* dot */
+  for (guint i = 0; i < POSE_SIZE; ++i) {
+    if (detected[i].valid) {
+      x = detected[i].x * MEDIA_WIDTH / POSE_OUT_W;
+      y = detected[i].y * MEDIA_HEIGHT / POSE_OUT_H;
+
+      cairo_arc (cr, x, y, 5, 0, 2 * M_PI);
+      cairo_fill (cr);
+    }
+  }
+}
+
+/**
+ * @brief Parse pose result.
+ * @return TRUE if the result is updated.
+ */
+static gboolean
+nns_ex_parse_pose (GstBuffer * buffer, const gint stream,
+    const gint64 deadline)
+{
+  GstMemory *mem_pose;
+  GstMapInfo info_pose;
+  gfloat *pose_data;
+  guint index, i, j;
+  guint maxX, maxY;
+  gfloat max, cen;
+  std::vector<pose_s> detected;
+  cascade_roi_s roi;
+  gboolean cascade = nns_ex_get_cascade_enabled ();
+
+  if (cascade && !cascade_get_roi (GST_BUFFER_PTS (buffer), &roi))
+    return FALSE;
+
+  if (gst_buffer_n_memory (buffer) != 1) {
+    nns_loge ("Invalid result, the number of memory blocks is different.");
+    return FALSE;
+  }
+
+  mem_pose = gst_buffer_get_memory (buffer, 0);
+  gst_memory_map (mem_pose, &info_pose, GST_MAP_READ);
+
+  pose_data = (gfloat *) info_pose.data;
+
+  for (index = 0; index < POSE_SIZE; ++index) {
+    maxX = maxY = 0;
+    max = .0f;
+
+    for (j = 0; j < POSE_OUT_H; ++j) {
+      for (i = 0; i < POSE_OUT_W; ++i) {
+        cen = pose_data[i * POSE_SIZE + j * POSE_OUT_W * POSE_SIZE + index];
+
+        if (cen > max) {
+          max = cen;
+          maxX = i;
+          maxY = j;
+        }
+      }
+    }
+
+    pose_s p;
+
+    if (cascade) {
+      /* keypoint in the cropped region */
+      maxX = (roi.x + maxX * roi.size / POSE_OUT_W) * POSE_OUT_W / MEDIA_WIDTH;
+      maxY = (roi.y + maxY * roi.size / POSE_OUT_H) * POSE_OUT_H / MEDIA_HEIGHT;
+    }
+
+    p.valid = FALSE;
+    p.x = maxX;
+    p.y = maxY;
+    p.prob = max;
+
+    detected.push_back (p);
+  }
+
+  gst_memory_unmap (mem_pose, &info_pose);
+  gst_memory_unref (mem_pose);
+
+  return pose_update_result (detected, stream, deadline);
+}
+
+/**
+ * @brief Parse detection result.
+ * @return TRUE if the result is updated.
+ */
+static gboolean
+nns_ex_parse_ssd (GstBuffer * buffer, const gint model, const gint stream,
+    const gint64 deadline)
+{
+  GstMemory *mem_boxes, *mem_detections;
+  GstMapInfo info_boxes, info_detections;
+  gfloat *boxes, *detections;
+  gboolean updated = FALSE;
+
+  if (gst_buffer_n_memory (buffer) != 2) {
+    nns_loge ("Invalid result, the number of memory blocks is different.");
+    return FALSE;
+  }
+
+  /* boxes */
+  mem_boxes = gst_buffer_get_memory (buffer, 0);
+  gst_memory_map (mem_boxes, &info_boxes, GST_MAP_READ);
+  boxes = (gfloat *) info_boxes.data;
+
+  /* detections */
+  mem_detections = gst_buffer_get_memory (buffer, 1);
+  gst_memory_map (mem_detections, &info_detections, GST_MAP_READ);
+  detections = (gfloat *) info_detections.data;
+
+  if (nns_ex_get_cascade_enabled () && !IS_OBJ (model)) {
+    cascade_roi_s roi;
+
+    if (cascade_get_roi (GST_BUFFER_PTS (buffer), &roi))
+      updated = ssd_update_detection (detections, boxes, model, stream, &roi,
+          deadline);
+  } else {
+    updated = ssd_update_detection (detections, boxes, model, stream, NULL,
+        deadline);
+  }
+
+  gst_memory_unmap (mem_boxes, &info_boxes);
+  gst_memory_unmap (mem_detections, &info_detections);
+
+  gst_memory_unref (mem_boxes);
+  gst_memory_unref (mem_detections);
+
+  return updated;
+}
+
+/**
+ * @brief Decode the result in the worker thread.
+ * The worker takes the latest result of the stream, the budget starts from now.
+ * If decoding takes longer than the budget, the result is not published and the overlay keeps the previous one.
+ */
+static void
+nns_ex_postproc_func (gpointer data, gpointer user_data)
+{
+  postproc_task_s *task = (postproc_task_s *) data;
+  postproc_model_s *pm = task->model;
+  gint stream = task->stream;
+  GstBuffer *buffer;
+  gint64 deadline;
+  gboolean updated;
+
+  g_free (task);
+
+  while (TRUE) {
+    g_mutex_lock (&postproc_mutex);
+    buffer = pm->pending[stream];
+    pm->pending[stream] = NULL;
+
+    /* no more result arrived while decoding */
+    if (!buffer)
+      pm->queued[stream] = FALSE;
+    g_mutex_unlock (&postproc_mutex);
+
+    if (!buffer)
+      break;
+
+    deadline = g_get_monotonic_time () + pm->budget;
+
+    if (IS_POSE (pm->model))
+      updated = nns_ex_parse_pose (buffer, stream, deadline);
+    else
+      updated = nns_ex_parse_ssd (buffer, pm->model, stream, deadline);
+
+    if (updated) {
+      g_mutex_lock (&res_mutex);
+      nns_ex_latency_update_result (pm, stream, GST_BUFFER_PTS (buffer));
+      g_mutex_unlock (&res_mutex);
+    }
+
+    if (updated)
+      g_atomic_int_inc (&pm->processed);
+    else if (g_get_monotonic_time () > deadline)
+      nns_ex_postproc_overrun (pm, "missed the latency budget, result discarded");
+
+    gst_buffer_unref (buffer);
+  }
+}
+
+/**
+ * @brief Push the result into the thread pool.
+ * If the previous result of the model in the same stream is not taken by a worker yet, it is replaced with this frame.
+ */
+static void
+nns_ex_postproc_push (GstBuffer * buffer, const gint model)
+{
+  postproc_model_s *pm = nns_ex_get_postproc (model);
+  postproc_task_s *task = NULL;
+  GstBuffer *stale;
+  gint stream;
+
+  /* the model is ready for next frame */
+  stream = nns_ex_dual_release (model, GST_BUFFER_PTS (buffer));
+
+  g_mutex_lock (&postproc_mutex);
+  stale = pm->pending[stream];
+  pm->pending[stream] = gst_buffer_ref (buffer);
+
+  if (!pm->queued[stream]) {
+    pm->queued[stream] = TRUE;
+
+    task = g_new0 (postproc_task_s, 1);
+    task->model = pm;
+    task->stream = stream;
+    g_thread_pool_push (postproc_pool, task, NULL);
+  }
+  g_mutex_unlock (&postproc_mutex);
+
+  if (stale) {
+    gst_buffer_unref (stale);
+    nns_ex_postproc_overrun (pm, "dropped the stale result");
+  }
+}
+
+/**
+ * @brief Callback for tensor sink signal.
+ */
+static void
+nns_ex_new_data_face_cb (GstElement * element, GstBuffer * buffer,
+    gpointer user_data)
+{
+  nns_ex_postproc_push (buffer, MODEL_FACE);
+}
+
+/**
+ * @brief Callback for tensor sink signal.
+ */
+static void
+nns_ex_new_data_hand_cb (GstElement * element, GstBuffer * buffer,
+    gpointer user_data)
+{
+  nns_ex_postproc_push (buffer, MODEL_HAND);
+}
+
+/**
+ * @brief Callback for tensor sink signal.
+ */
+static void
+nns_ex_new_data_obj_cb (GstElement * element, GstBuffer * buffer,
+    gpointer user_data)
+{
+  nns_ex_postproc_push (buffer, MODEL_OBJ);
+}
+
+/**
+ * @brief Callback for tensor sink signal.
+ */
+static void
+nns_ex_new_data_pose_cb (GstElement * element, GstBuffer * buffer,
+    gpointer user_data)
+{
+  nns_ex_postproc_push (buffer, MODEL_POSE);
+}
+
+/**
+ * @brief Draw the results of the stream, and add the latency of the results.
+ */
+static void
+nns_ex_draw_stream (cairo_t * cr, const gint stream)
+{
+  guint max_objects;
+  ssd_object_s objects[MAX_OBJECT_DETECTION];
+  gint option = nns_ex_get_launch_option ();
+
+  if (IS_FACE (option)) {
+    max_objects = ssd_get_detected_objects (objects, MODEL_FACE, stream);
+    ssd_draw_object (cr, objects, max_objects, MODEL_FACE);
+    nns_ex_latency_update_draw (MODEL_FACE, stream);
+  }
+
+  if (IS_HAND (option)) {
+    max_objects = ssd_get_detected_objects (objects, MODEL_HAND, stream);
+    ssd_draw_object (cr, objects, max_objects, MODEL_HAND);
+    nns_ex_latency_update_draw (MODEL_HAND, stream);
+  }
+
+  if (IS_OBJ (option)) {
+    max_objects = ssd_get_detected_objects (objects, MODEL_OBJ, stream);
+    ssd_draw_object (cr, objects, max_objects, MODEL_OBJ);
+    nns_ex_latency_update_draw (MODEL_OBJ, stream);
+  }
+
+  if (IS_POSE (option)) {
+    pose_draw (cr, stream);
+    nns_ex_latency_update_draw (MODEL_POSE, stream);
+  }
+}
+
+/**
+ * @brief Callback to draw the overlay.
+ * In dual camera mode, the front camera is on the right side of the frame.
+ */
+static void
+nns_ex_draw_overlay_cb (GstElement * overlay, cairo_t * cr, guint64 timestamp,
+    guint64 duration, gpointer user_data)
+{
+  g_mutex_lock (&stats_mutex);
+  stats_frames++;
+  g_mutex_unlock (&stats_mutex);
+
+  /* set font props */
+  cairo_select_font_face (cr, "Sans", CAIRO_FONT_SLANT_NORMAL,
+      CAIRO_FONT_WEIGHT_BOLD);
+  cairo_set_font_size (cr, 18.0);
+
+  nns_ex_draw_stream (cr, STREAM_BACK);
+
+  if (dual_enabled) {
+    cairo_save (cr);
+    cairo_translate (cr, MEDIA_WIDTH, 0);
+    nns_ex_draw_stream (cr, STREAM_FRONT);
+    cairo_restore (cr);
+  }
+}
+
+/**
+ * @brief Get model name.
+ */
+static gboolean
+nns_ex_get_name (gchar ** name, const gint option)
+{
+  static gchar model_name_face[] = "Face Detection";
+  static gchar model_name_hand[] = "Hand Detection";
+  static gchar model_name_obj[] = "Object Detection";
+  static gchar model_name_pose[] = "Pose Estimation";
+
+  if (IS_FACE (option)) {
+    *name = model_name_face;
+  } else if (IS_HAND (option)) {
+    *name = model_name_hand;
+  } else if (IS_OBJ (option)) {
+    *name = model_name_obj;
+  } else if (IS_POSE (option)) {
+    *name = model_name_pose;
+  } else {
+    nns_loge ("Cannot get the model name with option %d", option);
+    return FALSE;
+  }
+
+  return TRUE;
+}
+
+/**
+ * @brief Get current pipeline description.
+ */
+static gboolean
+nns_ex_get_description (gchar ** desc, const gint option)
+{
+  *desc = pipeline_description;
+  return (*desc != NULL);
+}
+
+/**
+ * @brief Append new text.
+ */
+static gchar *
+nns_ex_append_text (gchar * old, gchar * str)
+{
+  gchar *new_pipeline;
+
+  new_pipeline = g_strconcat (old, str, NULL);
+
+  g_free (str);
+  g_free (old);
+
+  return new_pipeline;
+}
+
+/**
+ * @brief Append pipeline description.
+ */
+static gchar *
+nns_ex_append_description (gchar * old, gchar * str, const gchar * color)
+{
+  gchar *wrap, *new_desc;
+
+  wrap = g_strdup_printf ("<p style=\"color:%s;\">%s</p>", color, str);
+  new_desc = g_strconcat (old, wrap, NULL);
+
+  g_free (wrap);
+  g_free (str);
+  g_free (old);
+
+  return new_desc;
+}
+
+/**
+ * @brief Append pipeline description in dual camera mode.
+ */
+static gchar *
+nns_ex_append_dual_description (gchar * str_desc, const gint option)
+{
+  gchar *extra;
+
+  /* camera-sources and video-sink */
+  extra = g_strdup
+      ("ahc2src (back) ! videoflip ! videocrop ! tee name=traw_0 "
+      "traw_0. ! queue ! compositor name=mix ");
+  str_desc = nns_ex_append_description (str_desc, extra, "#000080");
+
+  extra = g_strdup
+      ("ahc2src (front) ! videoflip ! videocrop ! tee name=traw_1 "
+      "traw_1. ! queue ! mix. ");
+  str_desc = nns_ex_append_description (str_desc, extra, "#000080");
+
+  extra = g_strdup ("mix. ! cairooverlay ! videosink ");
+  str_desc = nns_ex_append_description (str_desc, extra, "#000080");
+
+  if (IS_POSE (option)) {
+    extra = g_strdup
+        ("traw_N. ! queue ! videoscale ! tensor_converter ! tensor_transform ! in_pose. "
+        "funnel name=in_pose ! tensor_filter pose ! tensor_sink ");
+    str_desc = nns_ex_append_description (str_desc, extra, "#D2691E");
+  }
+
+  if (IS_FACE (option) || IS_HAND (option) || IS_OBJ (option)) {
+    extra = g_strdup
+        ("traw_N. ! queue ! videoscale ! tensor_converter ! tensor_transform ! tee name=tssd_N ");
+    str_desc = nns_ex_append_description (str_desc, extra, "#000080");
+
+    if (IS_FACE (option)) {
+      extra = g_strdup
+          ("tssd_N. ! queue ! in_face. funnel name=in_face ! tensor_filter model=face ! tensor_sink ");
+      str_desc = nns_ex_append_description (str_desc, extra, "#0000FF");
+    }
+
+    if (IS_HAND (option)) {
+      extra = g_strdup
+          ("tssd_N. ! queue ! in_hand. funnel name=in_hand ! tensor_filter model=hand ! tensor_sink ");
+      str_desc = nns_ex_append_description (str_desc, extra, "#008000");
+    }
+
+    if (IS_OBJ (option)) {
+      extra = g_strdup
+          ("tssd_N. ! queue ! in_obj. funnel name=in_obj ! tensor_filter model=object ! tensor_sink ");
+      str_desc = nns_ex_append_description (str_desc, extra, "#FF0000");
+    }
+  }
+
+  return str_desc;
+}
+
+/**
+ * @brief Update pipeline description.
+ */
+static void
+nns_ex_set_description (const gint option)
+{
+  gchar *str_desc, *extra;
+
+  str_desc = g_strdup
+      ("<html><meta http-equiv=\"Content-Type\" content=\"text/html;charset=utf-8\"><body>");
+
+  if (dual_enabled) {
+    str_desc = nns_ex_append_dual_description (str_desc, option);
+
+    extra = g_strdup ("</body></html>");
+    str_desc = nns_ex_append_text (str_desc, extra);
+
+    g_free (pipeline_description);
+    pipeline_description = str_desc;
+    return;
+  }
+
+  /* camera-source and video-sink*/
+  extra = g_strdup
+      ("ahc2src ! videoflip ! videocrop ! tee name=traw "
+      "traw. ! queue ! cairooverlay ! videosink ");
+  str_desc = nns_ex_append_description (str_desc, extra, "#000080");
+
+  if (cascade_enabled) {
+    extra = g_strdup ("traw. ! queue ! videocrop (person) ! tee name=troi ");
+    str_desc = nns_ex_append_description (str_desc, extra, "#000080");
+  }
+
+  if (IS_POSE (option)) {
+    extra = g_strdup_printf
+        ("%s. ! queue ! videoscale ! tensor_converter ! tensor_transform ! "
+        "tensor_filter pose ! tensor_sink ", (cascade_enabled) ? "troi" : "traw");
+    str_desc = nns_ex_append_description (str_desc, extra, "#D2691E");
+  }
+
+  if (IS_FACE (option) || IS_HAND (option) || IS_OBJ (option)) {
+    const gchar *tee_ssd = "tssd";
+
+    extra = g_strdup
+        ("traw. ! queue ! videoscale ! tensor_converter ! tensor_transform ! tee name=tssd ");
+    str_desc = nns_ex_append_description (str_desc, extra, "#000080");
+
+    if (cascade_enabled && (IS_FACE (option) || IS_HAND (option))) {
+      extra = g_strdup
+          ("troi. ! queue ! videoscale ! tensor_converter ! tensor_transform ! tee name=tssd_roi ");
+      str_desc = nns_ex_append_description (str_desc, extra, "#000080");
+      tee_ssd = "tssd_roi";
+    }
+
+    if (IS_FACE (option)) {
+      extra = g_strdup_printf ("%s. ! queue ! tensor_filter model=face ! tensor_sink ", tee_ssd);
+      str_desc = nns_ex_append_description (str_desc, extra, "#0000FF");
+    }
+
+    if (IS_HAND (option)) {
+      extra = g_strdup_printf ("%s. ! queue ! tensor_filter model=hand ! tensor_sink ", tee_ssd);
+      str_desc = nns_ex_append_description (str_desc, extra, "#008000");
+    }
+
+    if (IS_OBJ (option)) {
+      extra = g_strdup ("tssd. ! queue ! tensor_filter model=object ! tensor_sink ");
+      str_desc = nns_ex_append_description (str_desc, extra, "#FF0000");
+    }
+  }
+
+  extra = g_strdup ("</body></html>");
+  str_desc = nns_ex_append_text (str_desc, extra);
+
+  g_free (pipeline_description);
+  pipeline_description = str_desc;
+}
+
+/**
+ * @brief Get the option to launch the pipeline.
+ * Cascade mode needs object detection to find the person.
+ */
+static gint
+nns_ex_get_option (const gint flags, gboolean * cascade)
+{
+  gint option = flags;
+
+  /* dual camera mode does not support cascade */
+  *cascade = !USE_DUAL (option) && USE_CASCADE (option) &&
+      (IS_FACE (option) || IS_HAND (option) || IS_POSE (option));
+  if (*cascade)
+    option |= MODEL_OBJ;
+
+  return option;
+}
+
+/**
+ * @brief Check the branch is necessary with given option.
+ * @return The name of the tee to be linked with the branch, NULL if the branch is not necessary.
+ */
+static const gchar *
+nns_ex_branch_get_src (const gint id, const gint option, const gboolean cascade)
+{
+  switch (id) {
+    case BRANCH_ROI:
+      return (cascade) ? "traw" : NULL;
+    case BRANCH_SSD:
+      if (IS_OBJ (option) || (!cascade && (IS_FACE (option) || IS_HAND (option))))
+        return "traw";
+      break;
+    case BRANCH_SSD_ROI:
+      if (cascade && (IS_FACE (option) || IS_HAND (option)))
+        return "troi";
+      break;
+    case BRANCH_POSE:
+      if (IS_POSE (option))
+        return (cascade) ? "troi" : "traw";
+      break;
+    case BRANCH_FACE:
+      if (IS_FACE (option))
+        return (cascade) ? "tssd_roi" : "tssd";
+      break;
+    case BRANCH_HAND:
+      if (IS_HAND (option))
+        return (cascade) ? "tssd_roi" : "tssd";
+      break;
+    case BRANCH_OBJ:
+      if (IS_OBJ (option))
+        return "tssd";
+      break;
+    default:
+      break;
+  }
+
+  return NULL;
+}
+
+/**
+ * @brief Get the name of the preprocessing elements in the branch (videoscale and tensor_transform).
+ */
+static const gchar *
+nns_ex_branch_get_preproc_name (const gint id)
+{
+  switch (id) {
+    case BRANCH_SSD:
+      return "ssd";
+    case BRANCH_SSD_ROI:
+      return "ssd_roi";
+    case BRANCH_POSE:
+      return "pose";
+    default:
+      break;
+  }
+
+  return NULL;
+}
+
+/**
+ * @brief Get the description of the branch.
+ */
+static gchar *
+nns_ex_branch_get_description (const gint id)
+{
+  switch (id) {
+    case BRANCH_ROI:
+      /**
+       * region of interest (videocrop 480x480 > person region, updated in the pad probe)
+       */
+      return g_strdup
+          ("queue leaky=2 max-size-buffers=2 name=roi_queue ! videocrop name=roi_crop");
+    case BRANCH_SSD:
+    case BRANCH_SSD_ROI:
+      /**
+       * object detection base (videoscale 480x480 or person region > 300x300)
+       */
+      return g_strdup_printf
+          ("queue ! videoscale name=scale_%s ! video/x-raw,format=RGB,width=%d,height=%d ! "
+          "tensor_converter ! tensor_transform mode=arithmetic option=typecast:float32,add:-127.5,div:127.5 "
+          "name=transform_%s", nns_ex_branch_get_preproc_name (id),
+          SSD_MODEL_WIDTH, SSD_MODEL_HEIGHT, nns_ex_branch_get_preproc_name (id));
+    case BRANCH_POSE:
+      /**
+       * pose estimation
+       * input[0] float32 [3:192:192:1] (RGB:POSE_MODEL_WIDTH:POSE_MODEL_HEIGHT:1)
+       * output[0] float32 [14:96:96:1] (POSE_SIZE:POSE_OUT_W:POSE_OUT_H:1)
+       */
+      return g_strdup_printf
+          ("queue leaky=2 max-size-buffers=2 ! videoscale name=scale_pose ! "
+          "video/x-raw,format=RGB,width=%d,height=%d ! "
+          "tensor_converter ! tensor_transform mode=typecast option=float32 name=transform_pose ! "
+          "tensor_filter framework=tensorflow-lite model=%s name=filter_pose ! tensor_sink name=res_pose async=false",
+          POSE_MODEL_WIDTH, POSE_MODEL_HEIGHT, EX_POSE_MODEL);
+    case BRANCH_FACE:
+      /**
+       * face detection
+       * input[0] float32 [3:300:300:1] (RGB:SSD_MODEL_WIDTH:SSD_MODEL_HEIGHT:1)
+       * output[0] float32 [4:1:1917:1] (SSD_BOX_SIZE:1:SSD_DETECTION_MAX:1)
+       * output[1] float32 [2:1917:1:1] (LABEL_SIZE:SSD_DETECTION_MAX:1:1)
+       */
+      return g_strdup_printf
+          ("queue leaky=2 max-size-buffers=2 ! "
+          "tensor_filter framework=tensorflow-lite model=%s name=filter_face ! tensor_sink name=res_face async=false",
+          EX_FACE_MODEL);
+    case BRANCH_HAND:
+      /**
+       * hand detection
+       * input[0] float32 [3:300:300:1] (RGB:SSD_MODEL_WIDTH:SSD_MODEL_HEIGHT:1)
+       * output[0] float32 [4:1:1917:1] (SSD_BOX_SIZE:1:SSD_DETECTION_MAX:1)
+       * output[1] float32 [2:1917:1:1] (LABEL_SIZE:SSD_DETECTION_MAX:1:1)
+       */
+      return g_strdup_printf
+          ("queue leaky=2 max-size-buffers=2 ! "
+          "tensor_filter framework=tensorflow-lite model=%s name=filter_hand ! tensor_sink name=res_hand async=false",
+          EX_HAND_MODEL);
+    case BRANCH_OBJ:
+      /**
+       * object detection
+       * input[0] float32 [3:300:300:1] (RGB:SSD_MODEL_WIDTH:SSD_MODEL_HEIGHT:1)
+       * output[0] float32 [4:1:1917:1] (SSD_BOX_SIZE:1:SSD_DETECTION_MAX:1)
+       * output[1] float32 [91:1917:1:1] (LABEL_SIZE:SSD_DETECTION_MAX:1:1)
+       */
+      return g_strdup_printf
+          ("queue leaky=2 max-size-buffers=2 ! "
+          "tensor_filter framework=tensorflow-lite model=%s name=filter_obj ! tensor_sink name=res_obj async=false",
+          EX_OBJ_MODEL);
+    default:
+      break;
+  }
+
+  return NULL;
+}
+
+/**
+ * @brief Add the pad probes to measure the latency of tensor_filter.
+ */
+static void
+nns_ex_stats_connect_filter (GstElement * pipeline, stats_model_s * sm,
+    const gchar * filter_name)
+{
+  GstElement *filter;
+  GstPad *pad;
+
+  filter = gst_bin_get_by_name (GST_BIN (pipeline), filter_name);
+  pad = gst_element_get_static_pad (filter, "sink");
+  gst_pad_add_probe (pad, GST_PAD_PROBE_TYPE_BUFFER,
+      nns_ex_stats_invoke_cb, sm, NULL);
+  gst_object_unref (pad);
+
+  pad = gst_element_get_static_pad (filter, "src");
+  gst_pad_add_probe (pad, GST_PAD_PROBE_TYPE_BUFFER,
+      nns_ex_stats_done_cb, sm, NULL);
+  gst_object_unref (pad);
+  gst_object_unref (filter);
+}
+
+/**
+ * @brief Add the pad probes to measure the model in the branch.
+ */
+static void
+nns_ex_branch_connect_stats (GstElement * pipeline, const gint id,
+    const gint model, const gchar * filter_name)
+{
+  stats_model_s *sm = nns_ex_stats_get_model (model);
+  GstElement *bin;
+  GstPad *ghost, *pad;
+
+  /* count the frames after the rate control, at the queue in the branch */
+  bin = gst_bin_get_by_name (GST_BIN (pipeline), branch_names[id]);
+  ghost = gst_element_get_static_pad (bin, "sink");
+  pad = gst_ghost_pad_get_target (GST_GHOST_PAD (ghost));
+  gst_pad_add_probe (pad, GST_PAD_PROBE_TYPE_BUFFER,
+      nns_ex_stats_received_cb, sm, NULL);
+  gst_object_unref (pad);
+  gst_object_unref (ghost);
+  gst_object_unref (bin);
+
+  nns_ex_stats_connect_filter (pipeline, sm, filter_name);
+}
+
+/**
+ * @brief Add the pad probe to control the inference rate of the branch.
+ * The branch of the detection model reads the history of the preprocessing branch linked with given tee.
+ */
+static void
+nns_ex_branch_connect_rate (GstElement * pipeline, const gint id,
+    const gchar * src)
+{
+  GstElement *bin;
+  GstPad *pad;
+  GstPadProbeCallback callback;
+  gpointer data;
+  gint preproc = BRANCH_SSD;
+
+  for (gint i = 0; i < BRANCH_NUM; i++) {
+    if (g_strcmp0 (branch_tees[i], src) == 0) {
+      preproc = i;
+      break;
+    }
+  }
+
+  switch (id) {
+    case BRANCH_SSD:
+    case BRANCH_SSD_ROI:
+      callback = nns_ex_rate_preproc_cb;
+      data = GINT_TO_POINTER (id);
+      break;
+    case BRANCH_POSE:
+      callback = nns_ex_rate_direct_cb;
+      data = nns_ex_rate_get_model (MODEL_POSE);
+      break;
+    case BRANCH_FACE:
+      rate_probes[id].rm = nns_ex_rate_get_model (MODEL_FACE);
+      rate_probes[id].preproc = preproc;
+      callback = nns_ex_rate_model_cb;
+      data = &rate_probes[id];
+      break;
+    case BRANCH_HAND:
+      rate_probes[id].rm = nns_ex_rate_get_model (MODEL_HAND);
+      rate_probes[id].preproc = preproc;
+      callback = nns_ex_rate_model_cb;
+      data = &rate_probes[id];
+      break;
+    case BRANCH_OBJ:
+      rate_probes[id].rm = nns_ex_rate_get_model (MODEL_OBJ);
+      rate_probes[id].preproc = preproc;
+      callback = nns_ex_rate_model_cb;
+      data = &rate_probes[id];
+      break;
+    default:
+      return;
+  }
+
+  /* the probe on the sink pad of the bin, skipped frames never reach the queue */
+  bin = gst_bin_get_by_name (GST_BIN (pipeline), branch_names[id]);
+  pad = gst_element_get_static_pad (bin, "sink");
+  gst_pad_add_probe (pad, GST_PAD_PROBE_TYPE_BUFFER, callback, data, NULL);
+  gst_object_unref (pad);
+  gst_object_unref (bin);
+}
+
+/**
+ * @brief Connect the callbacks of the branch.
+ */
+static void
+nns_ex_branch_connect (GstElement * pipeline, const gint id)
+{
+  GstElement *element, *crop;
+  GstPad *pad;
+
+  /**
+   * tensor_sink new-data signal
+   * tensor_sink emits the signal when new buffer incomes to the sink pad.
+   * The application can connect this signal with the callback.
+   * Please be informed that, the memory blocks in the buffer object passed from tensor_sink is available only in this callback function.
+   * The callbacks keep a reference of the buffer and decode it in the thread pool (see nns_ex_postproc_push).
+   */
+  switch (id) {
+    case BRANCH_ROI:
+      element = gst_bin_get_by_name (GST_BIN (pipeline), "roi_queue");
+      crop = gst_bin_get_by_name (GST_BIN (pipeline), "roi_crop");
+
+      /* the pipeline keeps the crop element while the probe is alive */
+      pad = gst_element_get_static_pad (element, "src");
+      gst_pad_add_probe (pad, GST_PAD_PROBE_TYPE_BUFFER,
+          nns_ex_cascade_probe_cb, crop, NULL);
+
+      gst_object_unref (pad);
+      gst_object_unref (crop);
+      gst_object_unref (element);
+      break;
+    case BRANCH_SSD:
+    case BRANCH_SSD_ROI:
+      nns_ex_latency_connect_preproc (pipeline, nns_ex_branch_get_preproc_name (id), STREAM_BACK);
+      break;
+    case BRANCH_POSE:
+      element = gst_bin_get_by_name (GST_BIN (pipeline), "res_pose");
+      g_signal_connect (element, "new-data", G_CALLBACK (nns_ex_new_data_pose_cb), NULL);
+      gst_object_unref (element);
+
+      nns_ex_branch_connect_stats (pipeline, id, MODEL_POSE, "filter_pose");
+      nns_ex_latency_connect_preproc (pipeline, nns_ex_branch_get_preproc_name (id), STREAM_BACK);
+      nns_ex_latency_connect (pipeline, "filter_pose", LATENCY_FILTER, STREAM_BACK);
+      break;
+    case BRANCH_FACE:
+      element = gst_bin_get_by_name (GST_BIN (pipeline), "res_face");
+      g_signal_connect (element, "new-data", G_CALLBACK (nns_ex_new_data_face_cb), NULL);
+      gst_object_unref (element);
+
+      nns_ex_branch_connect_stats (pipeline, id, MODEL_FACE, "filter_face");
+      nns_ex_latency_connect (pipeline, "filter_face", LATENCY_FILTER, STREAM_BACK);
+      break;
+    case BRANCH_HAND:
+      element = gst_bin_get_by_name (GST_BIN (pipeline), "res_hand");
+      g_signal_connect (element, "new-data", G_CALLBACK (nns_ex_new_data_hand_cb), NULL);
+      gst_object_unref (element);
+
+      nns_ex_branch_connect_stats (pipeline, id, MODEL_HAND, "filter_hand");
+      nns_ex_latency_connect (pipeline, "filter_hand", LATENCY_FILTER, STREAM_BACK);
+      break;
+    case BRANCH_OBJ:
+      element = gst_bin_get_by_name (GST_BIN (pipeline), "res_obj");
+      g_signal_connect (element, "new-data", G_CALLBACK (nns_ex_new_data_obj_cb), NULL);
+      gst_object_unref (element);
+
+      nns_ex_branch_connect_stats (pipeline, id, MODEL_OBJ, "filter_obj");
+      nns_ex_latency_connect (pipeline, "filter_obj", LATENCY_FILTER, STREAM_BACK);
+      break;
+    default:
+      break;
+  }
+}
+
+/**
+ * @brief Add the branch and link it with the tee.
+ * The branch is a bin, and the tee after the branch is created once and kept in the pipeline.
+ */
+static gboolean
+nns_ex_branch_add (GstElement * pipeline, const gint id, const gchar * src)
+{
+  GstElement *bin, *tee, *out_tee = NULL;
+  GstPad *srcpad, *sinkpad;
+  GError *error = NULL;
+  gchar *desc;
+  gboolean ret = FALSE;
+
+  desc = nns_ex_branch_get_description (id);
+  bin = gst_parse_bin_from_description (desc, TRUE, &error);
+  g_free (desc);
+
+  if (error) {
+    nns_loge ("Unable to build branch %s: %s", branch_names[id], error->message);
+    g_clear_error (&error);
+    return FALSE;
+  }
+
+  gst_object_set_name (GST_OBJECT (bin), branch_names[id]);
+  gst_bin_add (GST_BIN (pipeline), bin);
+
+  if (branch_tees[id]) {
+    out_tee = gst_bin_get_by_name (GST_BIN (pipeline), branch_tees[id]);
+
+    if (!out_tee) {
+      /* the branches after this tee may be unlinked while the pipeline is running */
+      out_tee = gst_element_factory_make ("tee", branch_tees[id]);
+      g_object_set (out_tee, "allow-not-linked", TRUE, NULL);
+      gst_bin_add (GST_BIN (pipeline), GST_ELEMENT (gst_object_ref (out_tee)));
+      gst_element_sync_state_with_parent (out_tee);
+    }
+
+    if (!gst_element_link (bin, out_tee)) {
+      nns_loge ("Failed to link branch %s with %s", branch_names[id], branch_tees[id]);
+      goto done;
+    }
+  }
+
+  nns_ex_branch_connect (pipeline, id);
+  nns_ex_branch_connect_rate (pipeline, id, src);
+
+  /* set the state before linking, so the branch can accept the buffer from the tee */
+  gst_element_sync_state_with_parent (bin);
+
+  tee = gst_bin_get_by_name (GST_BIN (pipeline), src);
+  srcpad = gst_element_get_request_pad (tee, "src_%u");
+  sinkpad = gst_element_get_static_pad (bin, "sink");
+
+  if (gst_pad_link (srcpad, sinkpad) == GST_PAD_LINK_OK) {
+    branch_src[id] = src;
+    ret = TRUE;
+  } else {
+    nns_loge ("Failed to link branch %s with %s", branch_names[id], src);
+    gst_element_release_request_pad (tee, srcpad);
+  }
 
-  ssd_update_detection (detections, boxes, model);
+  gst_object_unref (sinkpad);
+  gst_object_unref (srcpad);
+  gst_object_unref (tee);
 
-  gst_memory_unmap (mem_boxes, &info_boxes);
-  gst_memory_unmap (mem_detections, &info_detections);
+done:
+  if (out_tee)
+    gst_object_unref (out_tee);
 
-  gst_memory_unref (mem_boxes);
-  gst_memory_unref (mem_detections);
-}
+  if (!ret) {
+    gst_element_set_state (bin, GST_STATE_NULL);
+    gst_bin_remove (GST_BIN (pipeline), bin);
+  }
 
-/**
- * @brief Callback for tensor sink signal.
- */
-static void
-nns_ex_new_data_face_cb (GstElement * element, GstBuffer * buffer,
-    gpointer user_data)
-{
-  nns_ex_parse_ssd (buffer, MODEL_FACE);
+  return ret;
 }
 
 /**
- * @brief Callback for tensor sink signal.
+ * @brief Callback for the idle probe to unlink the branch from the tee.
  */
-static void
-nns_ex_new_data_hand_cb (GstElement * element, GstBuffer * buffer,
+static GstPadProbeReturn
+nns_ex_branch_unlink_cb (GstPad * pad, GstPadProbeInfo * info,
     gpointer user_data)
 {
-  nns_ex_parse_ssd (buffer, MODEL_HAND);
-}
+  GstPad *sinkpad = GST_PAD (user_data);
 
-/**
- * @brief Callback for tensor sink signal.
- */
-static void
-nns_ex_new_data_obj_cb (GstElement * element, GstBuffer * buffer,
-    gpointer user_data)
-{
-  nns_ex_parse_ssd (buffer, MODEL_OBJ);
-}
+  gst_pad_unlink (pad, sinkpad);
 
-/**
- * @brief Callback for tensor sink signal.
- */
-static void
-nns_ex_new_data_pose_cb (GstElement * element, GstBuffer * buffer,
-    gpointer user_data)
-{
-  nns_ex_parse_pose (buffer);
+  g_mutex_lock (&branch_mutex);
+  branch_unlinked = TRUE;
+  g_cond_broadcast (&branch_cond);
+  g_mutex_unlock (&branch_mutex);
+
+  return GST_PAD_PROBE_REMOVE;
 }
 
 /**
- * @brief Callback to draw the overlay.
+ * @brief Unlink the branch from the tee while the pipeline is running, and remove it.
+ * @return FALSE if the tee does not release the branch in time, the branch is kept linked.
  */
-static void
-nns_ex_draw_overlay_cb (GstElement * overlay, cairo_t * cr, guint64 timestamp,
-    guint64 duration, gpointer user_data)
+static gboolean
+nns_ex_branch_remove (GstElement * pipeline, const gint id)
 {
-  guint max_objects;
-  ssd_object_s objects[MAX_OBJECT_DETECTION];
+  GstElement *bin, *tee;
+  GstPad *srcpad, *sinkpad;
+  gint64 end_time;
+  gulong probe_id;
+  gboolean unlinked;
 
-  /* set font props */
-  cairo_select_font_face (cr, "Sans", CAIRO_FONT_SLANT_NORMAL,
-      CAIRO_FONT_WEIGHT_BOLD);
-  cairo_set_font_size (cr, 18.0);
+  bin = gst_bin_get_by_name (GST_BIN (pipeline), branch_names[id]);
 
-  if (IS_FACE (launch_option)) {
-    max_objects = ssd_get_detected_objects (objects, MODEL_FACE);
-    ssd_draw_object (cr, objects, max_objects, MODEL_FACE);
+  if (!bin) {
+    branch_src[id] = NULL;
+    return TRUE;
   }
 
-  if (IS_HAND (launch_option)) {
-    max_objects = ssd_get_detected_objects (objects, MODEL_HAND);
-    ssd_draw_object (cr, objects, max_objects, MODEL_HAND);
-  }
+  sinkpad = gst_element_get_static_pad (bin, "sink");
+  srcpad = gst_pad_get_peer (sinkpad);
 
-  if (IS_OBJ (launch_option)) {
-    max_objects = ssd_get_detected_objects (objects, MODEL_OBJ);
-    ssd_draw_object (cr, objects, max_objects, MODEL_OBJ);
-  }
+  if (srcpad) {
+    /* wait until the tee does not push the buffer to this branch */
+    g_mutex_lock (&branch_mutex);
+    branch_unlinked = FALSE;
+    g_mutex_unlock (&branch_mutex);
 
-  if (IS_POSE (launch_option)) {
-    pose_draw (cr);
-  }
-}
+    probe_id = gst_pad_add_probe (srcpad, GST_PAD_PROBE_TYPE_IDLE,
+        nns_ex_branch_unlink_cb, sinkpad, NULL);
 
-/**
- * @brief Get model name.
- */
-static gboolean
-nns_ex_get_name (gchar ** name, const gint option)
-{
-  static gchar model_name_face[] = "Face Detection";
-  static gchar model_name_hand[] = "Hand Detection";
-  static gchar model_name_obj[] = "Object Detection";
-  static gchar model_name_pose[] = "Pose Estimation";
+    end_time = g_get_monotonic_time () + BRANCH_UNLINK_TIMEOUT;
 
-  if (IS_FACE (option)) {
-    *name = model_name_face;
-  } else if (IS_HAND (option)) {
-    *name = model_name_hand;
-  } else if (IS_OBJ (option)) {
-    *name = model_name_obj;
-  } else if (IS_POSE (option)) {
-    *name = model_name_pose;
-  } else {
-    nns_loge ("Cannot get the model name with option %d", option);
-    return FALSE;
+    g_mutex_lock (&branch_mutex);
+    while (!branch_unlinked) {
+      if (!g_cond_wait_until (&branch_cond, &branch_mutex, end_time))
+        break;
+    }
+    unlinked = branch_unlinked;
+    g_mutex_unlock (&branch_mutex);
+
+    if (!unlinked) {
+      /* the callback may run until the probe is removed, check it again */
+      gst_pad_remove_probe (srcpad, probe_id);
+
+      g_mutex_lock (&branch_mutex);
+      unlinked = branch_unlinked;
+      g_mutex_unlock (&branch_mutex);
+    }
+
+    if (!unlinked) {
+      /* do not unlink the pad while the tee is pushing the buffer */
+      nns_loge ("Timeout to unlink branch %s", branch_names[id]);
+      gst_object_unref (srcpad);
+      gst_object_unref (sinkpad);
+      gst_object_unref (bin);
+      return FALSE;
+    }
+
+    tee = gst_pad_get_parent_element (srcpad);
+    gst_element_release_request_pad (tee, srcpad);
+    gst_object_unref (tee);
+    gst_object_unref (srcpad);
   }
 
+  gst_object_unref (sinkpad);
+
+  branch_src[id] = NULL;
+  gst_element_set_state (bin, GST_STATE_NULL);
+  gst_bin_remove (GST_BIN (pipeline), bin);
+  gst_object_unref (bin);
   return TRUE;
 }
 
 /**
- * @brief Get current pipeline description.
+ * @brief Update the branches with given option.
+ * The branches which are not necessary (or linked with another tee) are removed first,
+ * then new branches are added in order of the dependency.
  */
 static gboolean
-nns_ex_get_description (gchar ** desc, const gint option)
+nns_ex_update_branches (GstElement * pipeline, const gint option,
+    const gboolean cascade)
 {
-  *desc = pipeline_description;
-  return (*desc != NULL);
-}
+  const gchar *src;
+  gint id;
 
-/**
- * @brief Append new text.
- */
-static gchar *
-nns_ex_append_text (gchar * old, gchar * str)
-{
-  gchar *new_pipeline;
+  for (id = BRANCH_NUM - 1; id >= 0; id--) {
+    src = nns_ex_branch_get_src (id, option, cascade);
 
-  new_pipeline = g_strconcat (old, str, NULL);
+    if (branch_src[id] && g_strcmp0 (branch_src[id], src) != 0) {
+      if (!nns_ex_branch_remove (pipeline, id))
+        return FALSE;
+    }
+  }
 
-  g_free (str);
-  g_free (old);
+  for (id = 0; id < BRANCH_NUM; id++) {
+    src = nns_ex_branch_get_src (id, option, cascade);
 
-  return new_pipeline;
+    if (src && branch_src[id] == NULL) {
+      if (!nns_ex_branch_add (pipeline, id, src))
+        return FALSE;
+    }
+  }
+
+  return TRUE;
 }
 
 /**
- * @brief Append pipeline description.
+ * @brief Connect the callbacks of the pipeline in dual camera mode.
  */
-static gchar *
-nns_ex_append_description (gchar * old, gchar * str, const gchar * color)
+static void
+nns_ex_dual_connect (GstElement * pipeline, const gint option)
 {
-  gchar *wrap, *new_desc;
+  GstElement *element;
+  GstPad *pad;
+  GCallback callback;
+  gchar *name;
+
+  for (gint s = 0; s < STREAM_NUM; s++) {
+    /* frame rate of the camera */
+    name = g_strdup_printf ("traw_%d", s);
+    element = gst_bin_get_by_name (GST_BIN (pipeline), name);
+    pad = gst_element_get_static_pad (element, "sink");
+    gst_pad_add_probe (pad, GST_PAD_PROBE_TYPE_BUFFER,
+        nns_ex_dual_frame_cb, GINT_TO_POINTER (s), NULL);
+    gst_object_unref (pad);
+    gst_object_unref (element);
+    g_free (name);
 
-  wrap = g_strdup_printf ("<p style=\"color:%s;\">%s</p>", color, str);
-  new_desc = g_strconcat (old, wrap, NULL);
+    /* capture time of the frame */
+    name = g_strdup_printf ("camera_%d", s);
+    nns_ex_latency_connect (pipeline, name, LATENCY_CAPTURE, s);
+    g_free (name);
 
-  g_free (wrap);
-  g_free (str);
-  g_free (old);
+    if (IS_FACE (option) || IS_HAND (option) || IS_OBJ (option)) {
+      name = g_strdup_printf ("ssd_%d", s);
+      nns_ex_latency_connect_preproc (pipeline, name, s);
+      g_free (name);
+    }
 
-  return new_desc;
+    if (IS_POSE (option)) {
+      name = g_strdup_printf ("pose_%d", s);
+      nns_ex_latency_connect_preproc (pipeline, name, s);
+      g_free (name);
+    }
+  }
+
+  for (guint i = 0; i < G_N_ELEMENTS (dual_models); i++) {
+    dual_model_s *dm = &dual_models[i];
+    stats_model_s *sm = nns_ex_stats_get_model (dm->model);
+
+    if (!(option & dm->model))
+      continue;
+
+    if (IS_FACE (dm->model))
+      callback = G_CALLBACK (nns_ex_new_data_face_cb);
+    else if (IS_HAND (dm->model))
+      callback = G_CALLBACK (nns_ex_new_data_hand_cb);
+    else if (IS_OBJ (dm->model))
+      callback = G_CALLBACK (nns_ex_new_data_obj_cb);
+    else
+      callback = G_CALLBACK (nns_ex_new_data_pose_cb);
+
+    name = g_strdup_printf ("res_%s", dm->name);
+    element = gst_bin_get_by_name (GST_BIN (pipeline), name);
+    g_signal_connect (element, "new-data", callback, NULL);
+    gst_object_unref (element);
+    g_free (name);
+
+    name = g_strdup_printf ("filter_%s", dm->name);
+    nns_ex_stats_connect_filter (pipeline, sm, name);
+    nns_ex_latency_connect_probe (pipeline, name, LATENCY_FILTER, -1, dm->model);
+    g_free (name);
+
+    for (gint s = 0; s < STREAM_NUM; s++) {
+      dual_gate_s *gate;
+
+      /* count the frames arrived at the queue of the stream */
+      name = g_strdup_printf ("in_%s_%d", dm->name, s);
+      element = gst_bin_get_by_name (GST_BIN (pipeline), name);
+      pad = gst_element_get_static_pad (element, "sink");
+      gst_pad_add_probe (pad, GST_PAD_PROBE_TYPE_BUFFER,
+          nns_ex_stats_received_cb, sm, NULL);
+      gst_object_unref (pad);
+      gst_object_unref (element);
+      g_free (name);
+
+      /* pass the frame in the turn of the stream before the model */
+      gate = g_new0 (dual_gate_s, 1);
+      gate->dm = dm;
+      gate->stream = s;
+
+      name = g_strdup_printf ("in_%s", dm->name);
+      element = gst_bin_get_by_name (GST_BIN (pipeline), name);
+      g_free (name);
+
+      name = g_strdup_printf ("sink_%d", s);
+      pad = gst_element_get_static_pad (element, name);
+      gst_pad_add_probe (pad, GST_PAD_PROBE_TYPE_BUFFER,
+          nns_ex_dual_gate_cb, gate, g_free);
+      gst_object_unref (pad);
+      gst_object_unref (element);
+      g_free (name);
+    }
+  }
+
+  /* cairooverlay draw */
+  element = gst_bin_get_by_name (GST_BIN (pipeline), "res_cairooverlay");
+  g_signal_connect (element, "draw", G_CALLBACK (nns_ex_draw_overlay_cb), NULL);
+  gst_object_unref (element);
 }
 
 /**
- * @brief Update pipeline description.
+ * @brief Start pipeline in dual camera mode.
+ * Each model has a funnel to receive the frames from both cameras, so the model is loaded once.
+ * The branches are not updated while running, the pipeline is rebuilt when the option is changed.
  */
-static void
-nns_ex_set_description (const gint option)
+static gboolean
+nns_ex_dual_launch_pipeline (GstElement ** pipeline, const gint option)
 {
-  gchar *str_desc, *extra;
+  GError *error = NULL;
+  GString *str;
+  gchar *str_pipeline;
+  gboolean ssd = (IS_FACE (option) || IS_HAND (option) || IS_OBJ (option));
+
+  str = g_string_new (NULL);
+
+  /* back camera on the left, front camera on the right */
+  g_string_append_printf (str,
+      "compositor name=mix sink_1::xpos=%d ! videoconvert ! "
+      "cairooverlay name=res_cairooverlay ! glimagesink sync=false ", MEDIA_WIDTH);
+
+  for (gint s = 0; s < STREAM_NUM; s++) {
+    /* videocrop 640x480 > 480x480 */
+    g_string_append_printf (str,
+        "ahc2src camera-index=%d name=camera_%d ! videoconvert ! "
+        "video/x-raw,format=RGB,width=640,height=480,framerate=30/1 ! "
+        "videoflip method=%s ! videocrop left=0 right=0 top=80 bottom=80 ! tee name=traw_%d "
+        "traw_%d. ! queue leaky=2 max-size-buffers=2 ! mix.sink_%d ",
+        (s == STREAM_FRONT) ? 1 : 0, s,
+        (s == STREAM_FRONT) ? "upper-right-diagonal" : "clockwise", s, s, s);
+
+    if (ssd) {
+      g_string_append_printf (str,
+          "traw_%d. ! queue leaky=2 max-size-buffers=2 ! videoscale name=scale_ssd_%d ! "
+          "video/x-raw,format=RGB,width=%d,height=%d ! tensor_converter ! "
+          "tensor_transform mode=arithmetic option=typecast:float32,add:-127.5,div:127.5 name=transform_ssd_%d ! "
+          "tee name=tssd_%d ", s, s, SSD_MODEL_WIDTH, SSD_MODEL_HEIGHT, s, s);
+    }
 
-  str_desc = g_strdup
-      ("<html><meta http-equiv=\"Content-Type\" content=\"text/html;charset=utf-8\"><body>");
+    for (guint i = 0; i < G_N_ELEMENTS (dual_models); i++) {
+      dual_model_s *dm = &dual_models[i];
 
-  /* camera-source and video-sink*/
-  extra = g_strdup
-      ("ahc2src ! videoflip ! videocrop ! tee name=traw "
-      "traw. ! queue ! cairooverlay ! videosink ");
-  str_desc = nns_ex_append_description (str_desc, extra, "#000080");
+      if (!(option & dm->model))
+        continue;
 
-  if (IS_POSE (option)) {
-    extra = g_strdup
-        ("traw. ! queue ! videoscale ! tensor_converter ! tensor_transform ! "
-        "tensor_filter pose ! tensor_sink ");
-    str_desc = nns_ex_append_description (str_desc, extra, "#D2691E");
+      /* a frame waits for the model in the queue of each stream */
+      if (IS_POSE (dm->model)) {
+        g_string_append_printf (str,
+            "traw_%d. ! queue leaky=2 max-size-buffers=1 name=in_%s_%d ! videoscale name=scale_%s_%d ! "
+            "video/x-raw,format=RGB,width=%d,height=%d ! tensor_converter ! "
+            "tensor_transform mode=typecast option=float32 name=transform_%s_%d ! in_%s.sink_%d ",
+            s, dm->name, s, dm->name, s, POSE_MODEL_WIDTH, POSE_MODEL_HEIGHT, dm->name, s, dm->name, s);
+      } else {
+        g_string_append_printf (str,
+            "tssd_%d. ! queue leaky=2 max-size-buffers=1 name=in_%s_%d ! in_%s.sink_%d ",
+            s, dm->name, s, dm->name, s);
+      }
+    }
   }
 
-  if (IS_FACE (option) || IS_HAND (option) || IS_OBJ (option)) {
-    extra = g_strdup
-        ("traw. ! queue ! videoscale ! tensor_converter ! tensor_transform ! tee name=tssd ");
-    str_desc = nns_ex_append_description (str_desc, extra, "#000080");
-
-    if (IS_FACE (option)) {
-      extra = g_strdup ("tssd. ! queue ! tensor_filter model=face ! tensor_sink ");
-      str_desc = nns_ex_append_description (str_desc, extra, "#0000FF");
-    }
+  for (guint i = 0; i < G_N_ELEMENTS (dual_models); i++) {
+    dual_model_s *dm = &dual_models[i];
 
-    if (IS_HAND (option)) {
-      extra = g_strdup ("tssd. ! queue ! tensor_filter model=hand ! tensor_sink ");
-      str_desc = nns_ex_append_description (str_desc, extra, "#008000");
-    }
+    if (!(option & dm->model))
+      continue;
 
-    if (IS_OBJ (option)) {
-      extra = g_strdup ("tssd. ! queue ! tensor_filter model=object ! tensor_sink ");
-      str_desc = nns_ex_append_description (str_desc, extra, "#FF0000");
-    }
+    g_string_append_printf (str,
+        "funnel name=in_%s ! tensor_filter framework=tensorflow-lite model=%s name=filter_%s ! "
+        "tensor_sink name=res_%s async=false ", dm->name, dm->path, dm->name, dm->name);
   }
 
-  extra = g_strdup ("</body></html>");
-  str_desc = nns_ex_append_text (str_desc, extra);
+  str_pipeline = g_string_free (str, FALSE);
 
-  g_free (pipeline_description);
-  pipeline_description = str_desc;
+  nns_logd ("Pipeline: %s", str_pipeline);
+  *pipeline = gst_parse_launch (str_pipeline, &error);
+  g_free (str_pipeline);
+
+  if (error) {
+    nns_logd ("Unable to build pipeline: %s", error->message);
+    g_clear_error (&error);
+    *pipeline = NULL;
+    return FALSE;
+  }
+
+  nns_ex_dual_connect (*pipeline, option);
+  return TRUE;
 }
 
 /**
  * @brief Start pipeline.
  */
 static gboolean
-nns_ex_launch_pipeline (GstElement ** pipeline, const gint option)
+nns_ex_launch_pipeline (GstElement ** pipeline, const gint launch_flags)
 {
   GstElement *element;
   GError *error = NULL;
-  gchar *str_pipeline, *extra;
-  gboolean front_cam;
+  gchar *str_pipeline;
+  gboolean front_cam, cascade;
+  gint option;
+
+  option = nns_ex_get_option (launch_flags, &cascade);
+  dual_enabled = USE_DUAL (option) ? TRUE : FALSE;
 
-  launch_option = option;
+  g_mutex_lock (&res_mutex);
+  g_atomic_int_set (&launch_option, option);
+  g_atomic_int_set (&cascade_enabled, cascade);
+  cascade_reset ();
+  nns_ex_clear_results (MODEL_FACE | MODEL_HAND | MODEL_OBJ | MODEL_POSE);
+  g_mutex_unlock (&res_mutex);
+
+  nns_ex_dual_reset ();
+  nns_ex_stats_reset ();
+  nns_ex_rate_reset ();
+  nns_ex_latency_clear ();
   front_cam = USE_FRONT (option) ? TRUE : FALSE;
 
   /* Update pipeline description */
   nns_ex_set_description (option);
 
+  for (gint id = 0; id < BRANCH_NUM; id++)
+    branch_src[id] = NULL;
+
+  if (dual_enabled)
+    return nns_ex_dual_launch_pipeline (pipeline, option);
+
+  /**
+   * Camera source and video sink.
+   * The model branches are linked with the tee, and updated while the pipeline is running.
+   */
   /* videocrop 640x480 > 480x480, front camera */
   str_pipeline = g_strdup_printf
-      ("ahc2src camera-index=%d ! videoconvert ! video/x-raw,format=RGB,width=640,height=480,framerate=30/1 ! "
+      ("ahc2src camera-index=%d name=camera ! videoconvert ! "
+      "video/x-raw,format=RGB,width=640,height=480,framerate=30/1 ! "
       "videoflip method=%s ! videocrop left=0 right=0 top=80 bottom=80 ! tee name=traw "
       "traw. ! queue min-threshold-buffers=8 ! videoconvert ! "
       "cairooverlay name=res_cairooverlay ! glimagesink sync=false ",
       (front_cam) ? 1 : 0, (front_cam) ? "upper-right-diagonal" : "clockwise");
 
-  if (option) {
-    if (IS_POSE (option)) {
-      /**
-       * pose estimation
-       * input[0] float32 [3:192:192:1] (RGB:POSE_MODEL_WIDTH:POSE_MODEL_HEIGHT:1)
-       * output[0] float32 [14:96:96:1] (POSE_SIZE:POSE_OUT_W:POSE_OUT_H:1)
-       */
-      extra = g_strdup_printf
-          ("traw. ! queue leaky=2 max-size-buffers=2 ! videoscale ! video/x-raw,format=RGB,width=192,height=192 ! "
-          "tensor_converter ! tensor_transform mode=typecast option=float32 ! "
-          "tensor_filter framework=tensorflow-lite model=%s ! tensor_sink name=res_pose ",
-          EX_POSE_MODEL);
-      str_pipeline = nns_ex_append_text (str_pipeline, extra);
-    }
-
-    if (IS_FACE (option) || IS_HAND (option) || IS_OBJ (option)) {
-      /**
-       * object detection base (videoscale 480x480 > 300x300)
-       */
-      extra = g_strdup_printf
-          ("traw. ! queue ! videoscale ! video/x-raw,format=RGB,width=300,height=300 ! "
-          "tensor_converter ! tensor_transform mode=arithmetic option=typecast:float32,add:-127.5,div:127.5 ! "
-          "tee name=tssd ", SSD_MODEL_WIDTH, SSD_MODEL_HEIGHT);
-      str_pipeline = nns_ex_append_text (str_pipeline, extra);
-
-      if (IS_FACE (option)) {
-        /**
-         * face detection
-         * input[0] float32 [3:300:300:1] (RGB:SSD_MODEL_WIDTH:SSD_MODEL_HEIGHT:1)
-         * output[0] float32 [4:1:1917:1] (SSD_BOX_SIZE:1:SSD_DETECTION_MAX:1)
-         * output[1] float32 [2:1917:1:1] (LABEL_SIZE:SSD_DETECTION_MAX:1:1)
-         */
-        extra = g_strdup_printf
-            ("tssd. ! queue leaky=2 max-size-buffers=2 ! "
-            "tensor_filter framework=tensorflow-lite model=%s ! tensor_sink name=res_face ",
-            EX_FACE_MODEL);
-        str_pipeline = nns_ex_append_text (str_pipeline, extra);
-      }
-
-      if (IS_HAND (option)) {
-        /**
-         * hand detection
-         * input[0] float32 [3:300:300:1] (RGB:SSD_MODEL_WIDTH:SSD_MODEL_HEIGHT:1)
-         * output[0] float32 [4:1:1917:1] (SSD_BOX_SIZE:1:SSD_DETECTION_MAX:1)
-         * output[1] float32 [2:1917:1:1] (LABEL_SIZE:SSD_DETECTION_MAX:1:1)
-         */
-        extra = g_strdup_printf
-            ("tssd. ! queue leaky=2 max-size-buffers=2 ! "
-            "tensor_filter framework=tensorflow-lite model=%s ! tensor_sink name=res_hand ",
-            EX_HAND_MODEL);
-        str_pipeline = nns_ex_append_text (str_pipeline, extra);
-      }
-
-      if (IS_OBJ (option)) {
-        /**
-         * object detection
-         * input[0] float32 [3:300:300:1] (RGB:SSD_MODEL_WIDTH:SSD_MODEL_HEIGHT:1)
-         * output[0] float32 [4:1:1917:1] (SSD_BOX_SIZE:1:SSD_DETECTION_MAX:1)
-         * output[1] float32 [91:1917:1:1] (LABEL_SIZE:SSD_DETECTION_MAX:1:1)
-         */
-        extra = g_strdup_printf
-            ("tssd. ! queue leaky=2 max-size-buffers=2 ! "
-            "tensor_filter framework=tensorflow-lite model=%s ! tensor_sink name=res_obj ",
-            EX_OBJ_MODEL);
-        str_pipeline = nns_ex_append_text (str_pipeline, extra);
-      }
-    }
-  }
-
   nns_logd ("Pipeline: %s", str_pipeline);
   *pipeline = gst_parse_launch (str_pipeline, &error);
   g_free (str_pipeline);
@@ -1004,34 +3202,10 @@ nns_ex_launch_pipeline (GstElement ** pipeline, const gint option)
     return FALSE;
   }
 
-  /**
-   * tensor_sink new-data signal
-   * tensor_sink emits the signal when new buffer incomes to the sink pad.
-   * The application can connect this signal with the callback.
-   * Please be informed that, the memory blocks in the buffer object passed from tensor_sink is available only in this callback function.
-   */
-  if (IS_FACE (option)) {
-    element = gst_bin_get_by_name (GST_BIN (*pipeline), "res_face");
-    g_signal_connect (element, "new-data", G_CALLBACK (nns_ex_new_data_face_cb), NULL);
-    gst_object_unref (element);
-  }
-
-  if (IS_HAND (option)) {
-    element = gst_bin_get_by_name (GST_BIN (*pipeline), "res_hand");
-    g_signal_connect (element, "new-data", G_CALLBACK (nns_ex_new_data_hand_cb), NULL);
-    gst_object_unref (element);
-  }
-
-  if (IS_OBJ (option)) {
-    element = gst_bin_get_by_name (GST_BIN (*pipeline), "res_obj");
-    g_signal_connect (element, "new-data", G_CALLBACK (nns_ex_new_data_obj_cb), NULL);
-    gst_object_unref (element);
-  }
-
-  if (IS_POSE (option)) {
-    element = gst_bin_get_by_name (GST_BIN (*pipeline), "res_pose");
-    g_signal_connect (element, "new-data", G_CALLBACK (nns_ex_new_data_pose_cb), NULL);
-    gst_object_unref (element);
+  if (!nns_ex_update_branches (*pipeline, option, cascade)) {
+    gst_object_unref (*pipeline);
+    *pipeline = NULL;
+    return FALSE;
   }
 
   /* cairooverlay draw */
@@ -1039,9 +3213,47 @@ nns_ex_launch_pipeline (GstElement ** pipeline, const gint option)
   g_signal_connect (element, "draw", G_CALLBACK (nns_ex_draw_overlay_cb), NULL);
   gst_object_unref (element);
 
+  /* capture time of the frame */
+  nns_ex_latency_connect (*pipeline, "camera", LATENCY_CAPTURE, STREAM_BACK);
+
   return TRUE;
 }
 
+/**
+ * @brief Update the models in running pipeline.
+ * The camera and video sink keep running, and the model branches are linked or unlinked on the tee.
+ * @return FALSE if the pipeline should be rebuilt (e.g., camera is changed).
+ */
+static gboolean
+nns_ex_reconfigure_pipeline (GstElement * pipeline, const gint flags)
+{
+  gboolean cascade;
+  gint option;
+
+  if (USE_FRONT (flags) != USE_FRONT (launch_option))
+    return FALSE;
+
+  /* the models are shared by the camera streams, rebuild the pipeline in dual camera mode */
+  if (USE_DUAL (flags) || USE_DUAL (launch_option))
+    return FALSE;
+
+  option = nns_ex_get_option (flags, &cascade);
+  nns_logd ("Reconfigure pipeline with option %d", option);
+
+  /* stop drawing the results of the models to be removed */
+  g_mutex_lock (&res_mutex);
+  g_atomic_int_set (&launch_option, option);
+  g_atomic_int_set (&cascade_enabled, cascade);
+  cascade_reset ();
+
+  nns_ex_clear_results ((MODEL_FACE | MODEL_HAND | MODEL_OBJ | MODEL_POSE) & ~option);
+  g_mutex_unlock (&res_mutex);
+
+  nns_ex_set_description (option);
+
+  return nns_ex_update_branches (pipeline, option, cascade);
+}
+
 /**
  * @brief Check condition to start the pipeline.
  */
@@ -1072,6 +3284,17 @@ nns_ex_prepare_pipeline (const gint option)
     nns_ex_model_info.is_initialized = TRUE;
   }
 
+  /* Thread pool to decode the results */
+  if (!postproc_pool) {
+    postproc_pool = g_thread_pool_new (nns_ex_postproc_func, NULL,
+        POSTPROC_MAX_THREADS, TRUE, NULL);
+
+    if (!postproc_pool) {
+      nns_loge ("Failed to create thread pool for postprocessing");
+      return FALSE;
+    }
+  }
+
   return TRUE;
 }
 
@@ -1084,7 +3307,11 @@ static NNSPipelineInfo nns_ex_pipeline = {
   .get_name = nns_ex_get_name,
   .get_description = nns_ex_get_description,
   .prepare_pipeline = nns_ex_prepare_pipeline,
-  .launch_pipeline = nns_ex_launch_pipeline
+  .launch_pipeline = nns_ex_launch_pipeline,
+  .reconfigure_pipeline = nns_ex_reconfigure_pipeline,
+  .get_stats = nns_ex_get_stats,
+  .set_model_rate = nns_ex_set_model_rate,
+  .get_latency = nns_ex_get_latency
 };
 
 /**
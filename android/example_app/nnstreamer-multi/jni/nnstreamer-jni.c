@@ -20,6 +20,11 @@
 GST_DEBUG_CATEGORY_STATIC (debug_category);
 #define GST_CAT_DEFAULT debug_category
 
+/**
+ * @brief Interval (milliseconds) to report the latency of the pipeline to the application.
+ */
+#define LATENCY_REPORT_INTERVAL 1000
+
 /**
  * These macros provide a way to store the native pointer to CustomData,
  * which might be 32 or 64 bits, into a jlong, which is always 64 bits, without warnings.
@@ -48,8 +53,19 @@ typedef struct _CustomData
   gint media_height;            /**< The video height */
   gint pipeline_id;             /**< The pipeline ID */
   gint pipeline_option;         /**< The pipeline option (selected model) */
+  gint first_frame_serial;      /**< Serial of the last request to notify the first frame */
+  volatile gint first_frame_pending; /**< Serial of the request waiting for the first frame, 0 if notified */
 } CustomData;
 
+/**
+ * @brief Data for the pad probe to notify the first frame.
+ */
+typedef struct
+{
+  CustomData *data;
+  gint serial;                  /**< The request to be notified, the probes of the previous requests are ignored */
+} FirstFrameProbe;
+
 /* These global variables cache values which are not changing during execution */
 static pthread_t gst_app_thread;
 static pthread_key_t current_jni_env;
@@ -57,6 +73,8 @@ static JavaVM *java_vm;
 static jfieldID custom_data_field_id;
 static jmethodID set_message_method_id;
 static jmethodID on_gstreamer_initialized_method_id;
+static jmethodID on_first_frame_method_id;
+static jmethodID on_latency_updated_method_id;
 
 /* list of registered pipelines */
 static GSList *g_pipelines = NULL;
@@ -312,6 +330,206 @@ check_initialization_complete (CustomData * data)
   }
 }
 
+/**
+ * @brief Call the function in the main loop, so the thread running the pipeline calls Java method.
+ */
+static void
+invoke_in_main_loop (CustomData * data, GSourceFunc func)
+{
+  GSource *source;
+
+  source = g_idle_source_new ();
+  g_source_set_callback (source, func, data, NULL);
+  g_source_attach (source, data->context);
+  g_source_unref (source);
+}
+
+/**
+ * @brief Notify the application that the pipeline is updated.
+ */
+static gboolean
+notify_initialization (gpointer user_data)
+{
+  check_initialization_complete ((CustomData *) user_data);
+  return FALSE;
+}
+
+/**
+ * @brief Notify the application that the first frame is rendered.
+ * Called in the main loop, the thread running the pipeline.
+ */
+static gboolean
+notify_first_frame (gpointer user_data)
+{
+  CustomData *data = (CustomData *) user_data;
+  JNIEnv *env = get_jni_env ();
+
+  (*env)->CallVoidMethod (env, data->app, on_first_frame_method_id);
+  if ((*env)->ExceptionCheck (env)) {
+    GST_ERROR ("Failed to call Java method");
+    (*env)->ExceptionClear (env);
+  }
+
+  return FALSE;
+}
+
+/**
+ * @brief Report the latency of the pipeline since last report to the application.
+ * Called periodically in the main loop, the thread running the pipeline.
+ */
+static gboolean
+notify_latency (gpointer user_data)
+{
+  CustomData *data = (CustomData *) user_data;
+  NNSPipelineInfo *info;
+  JNIEnv *env;
+  jstring jlatency;
+  gchar *latency = NULL;
+
+  info = get_pipeline_info (data->pipeline_id);
+  if (!info || !info->get_latency || !info->get_latency (&latency, TRUE))
+    return TRUE;
+
+  env = get_jni_env ();
+  jlatency = (*env)->NewStringUTF (env, latency);
+  g_free (latency);
+
+  (*env)->CallVoidMethod (env, data->app, on_latency_updated_method_id, jlatency);
+  if ((*env)->ExceptionCheck (env)) {
+    GST_ERROR ("Failed to call Java method");
+    (*env)->ExceptionClear (env);
+  }
+
+  (*env)->DeleteLocalRef (env, jlatency);
+  return TRUE;
+}
+
+/**
+ * @brief Pad probe for the first buffer arrived at the sink.
+ */
+static GstPadProbeReturn
+first_frame_probe_cb (GstPad * pad, GstPadProbeInfo * info, gpointer user_data)
+{
+  FirstFrameProbe *probe = (FirstFrameProbe *) user_data;
+  CustomData *data = probe->data;
+
+  /* notify once, with the first buffer arrived at any sink of the request */
+  if (g_atomic_int_compare_and_exchange (&data->first_frame_pending,
+          probe->serial, 0))
+    invoke_in_main_loop (data, notify_first_frame);
+
+  return GST_PAD_PROBE_REMOVE;
+}
+
+/**
+ * @brief Start new request to notify the first frame, the probes of the previous request are ignored.
+ * @return The serial of the request.
+ */
+static gint
+request_first_frame (CustomData * data)
+{
+  gint serial = ++data->first_frame_serial;
+
+  if (serial <= 0)
+    serial = data->first_frame_serial = 1;
+
+  g_atomic_int_set (&data->first_frame_pending, serial);
+  return serial;
+}
+
+/**
+ * @brief Add the probe to notify the first frame arrived at the sink element.
+ */
+static void
+add_first_frame_probe (CustomData * data, GstElement * sink, const gint serial)
+{
+  FirstFrameProbe *probe;
+  GstPad *pad;
+
+  pad = gst_element_get_static_pad (sink, "sink");
+  if (pad) {
+    probe = g_new0 (FirstFrameProbe, 1);
+    probe->data = data;
+    probe->serial = serial;
+
+    gst_pad_add_probe (pad, GST_PAD_PROBE_TYPE_BUFFER, first_frame_probe_cb,
+        probe, g_free);
+    gst_object_unref (pad);
+  }
+}
+
+/**
+ * @brief Get the tensor sinks in the pipeline, including the elements in the branches.
+ * Caller should release the list with g_slist_free_full (list, gst_object_unref).
+ */
+static GSList *
+get_tensor_sinks (GstElement * pipeline)
+{
+  GstIterator *iter;
+  GValue item = G_VALUE_INIT;
+  GSList *sinks = NULL;
+  gboolean done = FALSE;
+
+  iter = gst_bin_iterate_recurse (GST_BIN (pipeline));
+  while (!done) {
+    switch (gst_iterator_next (iter, &item)) {
+      case GST_ITERATOR_OK:
+      {
+        GstElement *element = GST_ELEMENT (g_value_get_object (&item));
+        GstElementFactory *factory = gst_element_get_factory (element);
+
+        if (factory && g_str_equal (GST_OBJECT_NAME (factory), "tensor_sink"))
+          sinks = g_slist_prepend (sinks, gst_object_ref (element));
+
+        g_value_reset (&item);
+        break;
+      }
+      case GST_ITERATOR_RESYNC:
+        g_slist_free_full (sinks, gst_object_unref);
+        sinks = NULL;
+        gst_iterator_resync (iter);
+        break;
+      default:
+        done = TRUE;
+        break;
+    }
+  }
+
+  g_value_unset (&item);
+  gst_iterator_free (iter);
+  return sinks;
+}
+
+/**
+ * @brief Notify the first frame after the running pipeline is updated.
+ * The video sink keeps rendering while the branches are relinked, so the probes are added to the tensor sinks
+ * of the new branches. If no branch is added (the models are removed only), the update is done already.
+ */
+static void
+add_reconfigure_probe (CustomData * data, GSList * prev_sinks)
+{
+  GSList *sinks, *list;
+  gboolean added = FALSE;
+  gint serial;
+
+  serial = request_first_frame (data);
+  sinks = get_tensor_sinks (data->pipeline);
+
+  for (list = sinks; list; list = list->next) {
+    /* the previous sinks are referenced, a new element cannot have the same address */
+    if (!g_slist_find (prev_sinks, list->data)) {
+      add_first_frame_probe (data, GST_ELEMENT (list->data), serial);
+      added = TRUE;
+    }
+  }
+
+  g_slist_free_full (sinks, gst_object_unref);
+
+  if (!added &&
+      g_atomic_int_compare_and_exchange (&data->first_frame_pending, serial, 0))
+    invoke_in_main_loop (data, notify_first_frame);
+}
+
 /**
  * @brief Main method for the native code. This is executed on its own thread.
  */
@@ -321,7 +539,7 @@ run_pipeline (void *userdata)
   CustomData *data = (CustomData *) userdata;
   GstBus *bus;
   GstElement *element;
-  GSource *bus_source;
+  GSource *bus_source, *latency_source;
   NNSPipelineInfo *info;
   gchar *message;
   GstStateChangeReturn state;
@@ -369,6 +587,8 @@ run_pipeline (void *userdata)
     return NULL;
   }
 
+  add_first_frame_probe (data, data->video_sink, request_first_frame (data));
+
   /* Instruct the bus to emit signals for each received message, and connect to the interesting signals */
   bus = gst_element_get_bus (data->pipeline);
   bus_source = gst_bus_create_watch (bus);
@@ -382,6 +602,14 @@ run_pipeline (void *userdata)
       (GCallback) state_changed_cb, data);
   gst_object_unref (bus);
 
+  /* Report the latency periodically, if the application implements the callback */
+  if (info->get_latency && on_latency_updated_method_id) {
+    latency_source = g_timeout_source_new (LATENCY_REPORT_INTERVAL);
+    g_source_set_callback (latency_source, notify_latency, data, NULL);
+    g_source_attach (latency_source, data->context);
+    g_source_unref (latency_source);
+  }
+
   /* Create a GLib Main Loop and set it to run */
   nns_logd ("Entering main loop... (CustomData:%p)", data);
   data->main_loop = g_main_loop_new (data->context, FALSE);
@@ -442,12 +670,35 @@ static void
 gst_native_start (JNIEnv * env, jobject thiz, jint id, jint option)
 {
   CustomData *data = GET_CUSTOM_DATA (env, thiz, custom_data_field_id);
+  NNSPipelineInfo *info;
+  GSList *prev_sinks;
 
   if (!data)
     return;
 
   nns_logi ("Try to start pipeline %d with option %d", id, option);
 
+  /* update running pipeline without stopping it, if possible */
+  info = get_pipeline_info (id);
+  if (data->pipeline && data->main_loop && data->pipeline_id == id &&
+      info && info->reconfigure_pipeline) {
+    prev_sinks = get_tensor_sinks (data->pipeline);
+
+    if (info->reconfigure_pipeline (data->pipeline, option)) {
+      data->pipeline_option = option;
+
+      /* notify new description */
+      data->initialized = FALSE;
+      invoke_in_main_loop (data, notify_initialization);
+
+      add_reconfigure_probe (data, prev_sinks);
+      g_slist_free_full (prev_sinks, gst_object_unref);
+      return;
+    }
+
+    g_slist_free_full (prev_sinks, gst_object_unref);
+  }
+
   gst_native_stop (env, thiz);
 
   data->pipeline_id = id;
@@ -571,9 +822,17 @@ gst_native_class_init (JNIEnv * env, jclass klass)
   on_gstreamer_initialized_method_id =
       (*env)->GetMethodID (env, klass, "onGStreamerInitialized",
       "(Ljava/lang/String;Ljava/lang/String;)V");
+  on_first_frame_method_id =
+      (*env)->GetMethodID (env, klass, "onFirstFrame", "()V");
+
+  /* optional, the application may not receive the latency */
+  on_latency_updated_method_id =
+      (*env)->GetMethodID (env, klass, "onLatencyUpdated", "(Ljava/lang/String;)V");
+  if (!on_latency_updated_method_id)
+    (*env)->ExceptionClear (env);
 
   if (!custom_data_field_id || !set_message_method_id ||
-      !on_gstreamer_initialized_method_id) {
+      !on_gstreamer_initialized_method_id || !on_first_frame_method_id) {
     /**
      * We emit this message through the Android log instead of the GStreamer log
      * because the later has not been initialized yet.
@@ -687,6 +946,44 @@ gst_native_get_description (JNIEnv * env, jobject thiz, jint id, jint option)
   return result;
 }
 
+/**
+ * @brief Get the statistics of running pipeline
+ */
+static jstring
+gst_native_get_stats (JNIEnv * env, jobject thiz, jint id, jboolean reset)
+{
+  NNSPipelineInfo *info;
+  gchar *stats = NULL;
+  jstring result;
+
+  info = get_pipeline_info (id);
+  if (info && info->get_stats) {
+    info->get_stats (&stats, (reset == JNI_TRUE));
+  }
+
+  result = (*env)->NewStringUTF (env, (stats) ? stats : "{}");
+  g_free (stats);
+  return result;
+}
+
+/**
+ * @brief Set the inference rate of the model
+ */
+static jboolean
+gst_native_set_model_rate (JNIEnv * env, jobject thiz, jint id, jint model,
+    jint interval, jint fps)
+{
+  NNSPipelineInfo *info;
+
+  info = get_pipeline_info (id);
+  if (info && info->set_model_rate &&
+      info->set_model_rate (model, (guint) MAX (interval, 1), (guint) MAX (fps, 0))) {
+    return JNI_TRUE;
+  }
+
+  return JNI_FALSE;
+}
+
 /**
  * @brief List of implemented native methods
  */
@@ -703,6 +1000,8 @@ static JNINativeMethod native_methods[] = {
   {"nativeGetName", "(II)Ljava/lang/String;", (void *) gst_native_get_name},
   {"nativeGetDescription", "(II)Ljava/lang/String;",
       (void *) gst_native_get_description},
+  {"nativeGetStats", "(IZ)Ljava/lang/String;", (void *) gst_native_get_stats},
+  {"nativeSetModelRate", "(IIII)Z", (void *) gst_native_set_model_rate},
   {"nativeClassInit", "()Z", (void *) gst_native_class_init}
 };
 
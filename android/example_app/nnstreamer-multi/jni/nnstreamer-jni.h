@@ -38,6 +38,10 @@ typedef struct _NNSPipelineInfo
   gboolean (*get_description) (gchar **desc, const gint option);
   gboolean (*prepare_pipeline) (const gint option);
   gboolean (*launch_pipeline) (GstElement **pipeline, const gint option);
+  gboolean (*reconfigure_pipeline) (GstElement *pipeline, const gint option); /**< Optional, update running pipeline. Returns FALSE to rebuild the pipeline. */
+  gboolean (*get_stats) (gchar **stats, const gboolean reset); /**< Optional, statistics of running pipeline (JSON). Caller should free the string. */
+  gboolean (*set_model_rate) (const gint model, const guint interval, const guint fps); /**< Optional, run the model every Nth frame and max fps (0 for unlimited). */
+  gboolean (*get_latency) (gchar **latency, const gboolean reset); /**< Optional, latency of the stages from the capture (JSON). Caller should free the string. */
 } NNSPipelineInfo;
 
 #ifdef __cplusplus
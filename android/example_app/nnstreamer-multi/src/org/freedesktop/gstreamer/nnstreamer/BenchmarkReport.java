@@ -0,0 +1,144 @@
+package org.freedesktop.gstreamer.nnstreamer;
+
+import android.os.Build;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Collects the statistics of each model combination in benchmark mode,
+ * and writes the report (CSV and JSON) into the given directory.
+ */
+public class BenchmarkReport {
+    private static final String TAG = "NNStreamer";
+    private static final String CSV_HEADER = "option,models,elapsed_ms,frames,fps,cpu_time_ms,cpu_load," +
+            "model,received,invoked,dropped,model_fps,latency_avg_ms,latency_max_ms,overrun";
+
+    private String reportPath;
+    private JSONArray results = new JSONArray();
+
+    public BenchmarkReport(String path) {
+        reportPath = path;
+    }
+
+    /**
+     * Add the statistics of a model combination.
+     *
+     * @param stats The statistics from native code (JSON)
+     * @param cpuTime The CPU time (milliseconds) of the process while measuring
+     */
+    public void add(String stats, long cpuTime) {
+        try {
+            JSONObject result = new JSONObject(stats);
+            long elapsed = result.getLong("elapsed_ms");
+
+            result.put("cpu_time_ms", cpuTime);
+            result.put("cpu_load", (elapsed > 0) ? ((double) cpuTime / elapsed) : 0.0);
+
+            results.put(result);
+            Log.i(TAG, "Benchmark " + result.toString());
+        } catch (JSONException e) {
+            Log.e(TAG, "Failed to parse statistics " + e.getMessage());
+        }
+    }
+
+    /**
+     * Write the report.
+     *
+     * @return The path of the report without extension, null if failed to write the report.
+     */
+    public String write() {
+        File dir = new File(reportPath);
+
+        if (!dir.exists() && !dir.mkdirs()) {
+            Log.e(TAG, "Failed to create " + reportPath);
+            return null;
+        }
+
+        String name = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.US).format(new Date());
+        String path = reportPath + "/benchmark_" + name;
+
+        try {
+            JSONObject report = new JSONObject();
+
+            report.put("device", Build.MANUFACTURER + " " + Build.MODEL);
+            report.put("hardware", Build.HARDWARE);
+            report.put("results", results);
+
+            writeFile(path + ".json", report.toString(2));
+            writeFile(path + ".csv", getCsv());
+        } catch (JSONException | IOException e) {
+            Log.e(TAG, "Failed to write the report " + e.getMessage());
+            return null;
+        }
+
+        return path;
+    }
+
+    /**
+     * Get the results in CSV format, a line for each model in the combination.
+     */
+    private String getCsv() throws JSONException {
+        StringBuilder csv = new StringBuilder(CSV_HEADER).append('\n');
+
+        for (int i = 0; i < results.length(); i++) {
+            JSONObject result = results.getJSONObject(i);
+            JSONArray models = result.getJSONArray("models");
+            StringBuilder names = new StringBuilder();
+
+            for (int j = 0; j < models.length(); j++) {
+                if (j > 0) {
+                    names.append('+');
+                }
+                names.append(models.getJSONObject(j).getString("name"));
+            }
+
+            String prefix = result.getInt("option") + "," + names + "," +
+                    result.getLong("elapsed_ms") + "," + result.getLong("frames") + "," +
+                    result.getDouble("fps") + "," + result.getLong("cpu_time_ms") + "," +
+                    String.format(Locale.US, "%.3f", result.getDouble("cpu_load"));
+
+            if (models.length() == 0) {
+                csv.append(prefix).append(",,,,,,,,\n");
+                continue;
+            }
+
+            for (int j = 0; j < models.length(); j++) {
+                JSONObject model = models.getJSONObject(j);
+
+                csv.append(prefix).append(',')
+                        .append(model.getString("name")).append(',')
+                        .append(model.getLong("received")).append(',')
+                        .append(model.getLong("invoked")).append(',')
+                        .append(model.getLong("dropped")).append(',')
+                        .append(model.getDouble("fps")).append(',')
+                        .append(model.getDouble("latency_avg_ms")).append(',')
+                        .append(model.getDouble("latency_max_ms")).append(',')
+                        .append(model.getInt("overrun")).append('\n');
+            }
+        }
+
+        return csv.toString();
+    }
+
+    private void writeFile(String path, String content) throws IOException {
+        Writer writer = new OutputStreamWriter(new FileOutputStream(path), "UTF-8");
+
+        try {
+            writer.write(content);
+        } finally {
+            writer.close();
+        }
+    }
+}
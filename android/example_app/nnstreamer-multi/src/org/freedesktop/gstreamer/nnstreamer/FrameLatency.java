@@ -0,0 +1,114 @@
+package org.freedesktop.gstreamer.nnstreamer;
+
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Latency of the pipeline stages, reported by native code periodically.
+ * Each stage (capture, scale, convert, filter, decode and draw) is measured from the time the camera captured the frame,
+ * so the latency of the draw stage is the age of the results on the screen.
+ */
+public class FrameLatency {
+    private static final String TAG = "NNStreamer";
+
+    /**
+     * Latency of a stage since last report.
+     */
+    public static class Stage {
+        public final String name;
+        public final long count;
+        public final double avgMs;
+        public final double maxMs;
+
+        Stage(String name, long count, double avgMs, double maxMs) {
+            this.name = name;
+            this.count = count;
+            this.avgMs = avgMs;
+            this.maxMs = maxMs;
+        }
+    }
+
+    private final List<Stage> stages = new ArrayList<>();
+
+    private FrameLatency() {
+    }
+
+    /**
+     * Parse the latency from native code (JSON).
+     *
+     * @return The latency of the stages, null if failed to parse it.
+     */
+    public static FrameLatency parse(String latency) {
+        FrameLatency result = new FrameLatency();
+
+        try {
+            JSONArray stages = new JSONObject(latency).getJSONArray("stages");
+
+            for (int i = 0; i < stages.length(); i++) {
+                JSONObject stage = stages.getJSONObject(i);
+
+                result.stages.add(new Stage(stage.getString("name"), stage.getLong("count"),
+                        stage.getDouble("avg_ms"), stage.getDouble("max_ms")));
+            }
+        } catch (JSONException e) {
+            Log.e(TAG, "Failed to parse latency " + e.getMessage());
+            return null;
+        }
+
+        return result;
+    }
+
+    public List<Stage> getStages() {
+        return stages;
+    }
+
+    /**
+     * Get the text for the log, average latency of the measured stages in a line.
+     */
+    public String getSummary() {
+        StringBuilder text = new StringBuilder();
+
+        for (Stage stage : stages) {
+            if (stage.count == 0) {
+                continue;
+            }
+
+            if (text.length() > 0) {
+                text.append(", ");
+            }
+
+            text.append(String.format(Locale.US, "%s %.1f", stage.name, stage.avgMs));
+        }
+
+        return (text.length() > 0) ? ("latency (ms) " + text) : "latency not measured";
+    }
+
+    /**
+     * Get the text for the overlay, average and max latency of each stage in a line.
+     */
+    public String getDetails() {
+        StringBuilder text = new StringBuilder();
+
+        for (Stage stage : stages) {
+            if (text.length() > 0) {
+                text.append('\n');
+            }
+
+            if (stage.count == 0) {
+                text.append(String.format(Locale.US, "%-8s -", stage.name));
+            } else {
+                text.append(String.format(Locale.US, "%-8s %6.1f ms (max %.1f)", stage.name,
+                        stage.avgMs, stage.maxMs));
+            }
+        }
+
+        return text.toString();
+    }
+}
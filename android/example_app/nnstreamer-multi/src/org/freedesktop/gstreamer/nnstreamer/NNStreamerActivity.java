@@ -6,10 +6,12 @@ import android.app.AlertDialog;
 import android.content.DialogInterface;
 import android.content.pm.PackageManager;
 import android.os.Bundle;
-import android.os.CountDownTimer;
 import android.os.Environment;
+import android.os.Handler;
+import android.os.Process;
 import android.text.Html;
 import android.util.Log;
+import android.view.Surface;
 import android.view.SurfaceHolder;
 import android.view.SurfaceView;
 import android.view.View;
@@ -21,11 +23,14 @@ import android.widget.ToggleButton;
 import android.support.v4.app.ActivityCompat;
 import android.support.v4.content.ContextCompat;
 
-import org.freedesktop.gstreamer.GStreamer;
 import org.freedesktop.gstreamer.GStreamerSurfaceView;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Locale;
 import java.util.Timer;
 import java.util.TimerTask;
 
@@ -36,6 +41,24 @@ public class NNStreamerActivity extends Activity implements
     private static final int PERMISSION_REQUEST_ALL = 3;
     private static final int PIPELINE_ID = 1;
     private static final String downloadPath = Environment.getExternalStorageDirectory().getPath() + "/nnstreamer/tflite_model";
+    private static final String benchmarkPath = Environment.getExternalStorageDirectory().getPath() + "/nnstreamer/benchmark";
+    private static final int BENCHMARK_COMBINATIONS = 15; /* all combinations of 4 models */
+    private static final int BENCHMARK_WARMUP_MS = 2000;
+    private static final int BENCHMARK_DURATION_MS = 8000;
+    private static final int QOS_INTERVAL_MS = 2000;
+    private static final int MEDIA_SIZE = 480; /* size of the frame from a camera */
+
+    /**
+     * Inference rate of the models {model, interval, fps}.
+     * The model runs every Nth frame (interval) and at most given fps (0 for unlimited),
+     * the overlay keeps the last result of the model for skipped frames.
+     */
+    private static final int[][] MODEL_RATES = {
+        { (1 << 1), 1, 0 },     /* face detection, every frame */
+        { (1 << 2), 1, 0 },     /* hand detection, every frame */
+        { (1 << 3), 3, 0 },     /* object detection, every 3rd frame */
+        { (1 << 4), 1, 5 }      /* pose estimation, 5 Hz */
+    };
 
     private native void nativeInit(int w, int h); /* Initialize native code, build pipeline, etc */
     private native void nativeFinalize(); /* Destroy pipeline and shutdown native code */
@@ -48,11 +71,20 @@ public class NNStreamerActivity extends Activity implements
     private native void nativeSurfaceFinalize();
     private native String nativeGetName(int id, int option);
     private native String nativeGetDescription(int id, int option);
+    private native String nativeGetStats(int id, boolean reset); /* Get statistics (JSON) of running pipeline */
+    private native boolean nativeSetModelRate(int id, int model, int interval, int fps); /* Run the model every Nth frame, max fps (0 for unlimited) */
     private long native_custom_data;      /* Native code will use this to keep private data */
 
     private int pipelineId = 0;
-    private CountDownTimer pipelineTimer = null;
+    private PipelineController controller = null;
+    private QosGovernor governor = null;
     private boolean initialized = false;
+    private boolean initializing = false;
+    /* Native code is initialized in the background thread, the lock guards the flags below with onDestroy() */
+    private final Object nativeLock = new Object();
+    private boolean nativeCreated = false;
+    private boolean destroyed = false;
+    private boolean resumed = false;
     private boolean useFrontCamera = true;
 
     private DownloadModel downloadTask = null;
@@ -60,19 +92,31 @@ public class NNStreamerActivity extends Activity implements
 
     private TextView viewTitle;
     private TextView viewDesc;
+    private TextView viewHud;
+    private String hudStreams = null;
+    private String hudLatency = null;
+    private boolean showLatency = false;
     private ImageButton buttonCam;
     private ImageButton buttonPlay;
     private ToggleButton buttonModel1;
     private ToggleButton buttonModel2;
     private ToggleButton buttonModel3;
     private ToggleButton buttonModel4;
-    private TimerTask timerTask;
+    private ToggleButton buttonCascade;
+    private ToggleButton buttonDual;
+    private BenchmarkTask benchmarkTask;
+    private volatile BenchmarkReport benchmarkReport = null;
+    private int benchmarkFlags = 0; /* camera options of the benchmark, selected when it started */
+    private final Handler benchmarkHandler = new Handler();
     private Timer timer = new Timer();
 
     @Override
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
 
+        /* Initialize GStreamer in background while checking permissions */
+        NativeRuntime.init(this);
+
         /* Check permissions */
         if (!checkPermission(Manifest.permission.CAMERA) ||
             !checkPermission(Manifest.permission.INTERNET) ||
@@ -97,23 +141,20 @@ public class NNStreamerActivity extends Activity implements
     public void onPause() {
         super.onPause();
 
-        stopPipelineTimer();
-        stopTimerTask();
-        nativePause();
+        resumed = false;
+        stopBenchmark();
+
+        if (controller != null) {
+            controller.pause();
+        }
     }
 
     @Override
     public void onResume() {
         super.onResume();
 
-        /* Start pipeline */
-        if (initialized) {
-            if (downloadTask != null && downloadTask.isProgress()) {
-                Log.d(TAG, "Now downloading model files");
-            } else {
-                startPipeline(PIPELINE_ID);
-            }
-        }
+        resumed = true;
+        resumePipeline();
     }
 
     @Override
@@ -121,45 +162,127 @@ public class NNStreamerActivity extends Activity implements
         super.onDestroy();
 
         timer.cancel();
-        stopPipelineTimer();
-        stopTimerTask();
-        nativeFinalize();
+        stopBenchmark();
+
+        if (controller != null) {
+            controller.shutdown();
+        }
+
+        /* Native code may be initialized in the background thread even if the activity is not initialized yet */
+        synchronized (nativeLock) {
+            destroyed = true;
+
+            if (nativeCreated) {
+                nativeFinalize();
+                nativeCreated = false;
+            }
+        }
+    }
+
+    /**
+     * Start benchmark mode.
+     * Runs all combinations of the models, and writes the report with the statistics of each combination.
+     * Each step runs in the UI thread, posted with the handler.
+     */
+    private void startBenchmark() {
+        stopBenchmark();
+
+        benchmarkFlags = 0;
+        if (useFrontCamera) benchmarkFlags |= (1 << 8);
+        if (buttonDual.isChecked()) benchmarkFlags |= (1 << 10);
+
+        benchmarkReport = new BenchmarkReport(benchmarkPath);
+        runBenchmark(1);
+    }
+
+    /**
+     * Start the model combination, and measure it after warming up.
+     */
+    private void runBenchmark(int index) {
+        if (index > BENCHMARK_COMBINATIONS) {
+            finishBenchmark();
+            return;
+        }
+
+        int option = (index << 1) | benchmarkFlags;
+
+        Log.i(TAG, "Benchmark " + index + "/" + BENCHMARK_COMBINATIONS + " option " + option);
+        controller.start(PIPELINE_ID, option);
+
+        benchmarkTask = new BenchmarkTask(index, -1);
+        benchmarkHandler.postDelayed(benchmarkTask, BENCHMARK_WARMUP_MS);
     }
 
-    private void startTimerTask(){
-	timerTask=new TimerTask(){
-		int [] id ={256, 258, 262, 270, 286, 270, 262, 258};
-		int [] id_out ={0, 2, 6, 14, 30, 14, 6, 2};
-		int option=0;
-		int count = 0;
+    /**
+     * Write the report, and restore the models selected by user.
+     */
+    private void finishBenchmark() {
+        BenchmarkReport report = benchmarkReport;
+
+        benchmarkReport = null;
+        benchmarkTask = null;
 
-		public void run(){
-		    int index;
-		    if(count == 8) {
-			    count = 0;
-			    option = 0;
-		    }
+        if (report == null) {
+            return;
+        }
 
-		    if (useFrontCamera) {
-			    option = id[count];
-		    }else{
-			    option=id_out[count];
-		    }
-		    count++;
+        String path = report.write();
 
-		    nativePause();
+        if (path != null) {
+            setMessage("Benchmark report: " + path + ".csv");
+        } else {
+            setMessage("Failed to write the benchmark report");
+        }
 
-		    nativeStart(PIPELINE_ID,option);
-		}
-	    };
-	timer.schedule(timerTask, 0, 8000);
+        controller.start(PIPELINE_ID, governor.setRequestedOption(getPipelineOption()));
     }
 
-    private void stopTimerTask(){
-	if(timerTask != null){
-	    timerTask.cancel();
-	    timerTask=null;
-	}
+    /**
+     * Task to measure a model combination.
+     * After warming up, resets the statistics and posts the task to collect the statistics.
+     */
+    private class BenchmarkTask implements Runnable {
+        private int index;
+        private long cpuTime; /* CPU time when the measurement started, -1 while warming up */
+
+        BenchmarkTask(int index, long cpuTime) {
+            this.index = index;
+            this.cpuTime = cpuTime;
+        }
+
+        @Override
+        public void run() {
+            BenchmarkReport report = benchmarkReport;
+
+            if (report == null || benchmarkTask != this) {
+                /* benchmark is stopped */
+                return;
+            }
+
+            if (cpuTime < 0) {
+                nativeGetStats(PIPELINE_ID, true);
+
+                benchmarkTask = new BenchmarkTask(index, Process.getElapsedCpuTime());
+                benchmarkHandler.postDelayed(benchmarkTask, BENCHMARK_DURATION_MS);
+            } else {
+                String stats = nativeGetStats(PIPELINE_ID, true);
+
+                report.add(stats, Process.getElapsedCpuTime() - cpuTime);
+                runBenchmark(index + 1);
+            }
+        }
+    }
+
+    /**
+     * Stop benchmark mode, the report is discarded.
+     */
+    private void stopBenchmark() {
+        if (benchmarkTask != null) {
+            benchmarkHandler.removeCallbacks(benchmarkTask);
+            benchmarkTask = null;
+        }
+
+        benchmarkReport = null;
     }
 
     /**
@@ -180,37 +303,56 @@ public class NNStreamerActivity extends Activity implements
      * Called from native code.
      */
     private void onGStreamerInitialized(final String title, final String desc) {
-        /* GStreamer is initialized and ready to play pipeline. */
-        runOnUiThread(new Runnable() {
-            public void run() {
-                /* Update pipeline title and description here */
-                viewDesc.setText(Html.fromHtml(desc, Html.FROM_HTML_MODE_LEGACY));
+        /* GStreamer is initialized, the controller sets the pipeline to PLAYING. */
+        controller.onInitialized(title, desc);
+    }
 
-                try {
-                    Thread.sleep(100);
-                } catch (InterruptedException e) {
-                    Log.e(TAG, "InterruptedException " + e.getMessage());
-                }
+    /**
+     * Native code calls this when the first frame is rendered after the pipeline is started or updated.
+     * Called from native code.
+     */
+    private void onFirstFrame() {
+        controller.onFirstFrame();
+    }
 
-                nativePlay();
+    /**
+     * Native code calls this periodically with the latency of the pipeline stages since last report.
+     * Called from native code.
+     */
+    private void onLatencyUpdated(String latency) {
+        final FrameLatency result = FrameLatency.parse(latency);
+
+        if (result == null) {
+            return;
+        }
 
-                /* Update UI (buttons and other components) */
-                enableButton(true);
+        Log.d(TAG, "Pipeline " + pipelineId + " " + result.getSummary());
+
+        runOnUiThread(new Runnable() {
+            public void run() {
+                hudLatency = result.getDetails();
+                updateHud();
             }
         });
     }
 
     static {
-        System.loadLibrary("gstreamer_android");
-        System.loadLibrary("nnstreamer-jni");
-        nativeClassInit();
+        /* Load the libraries in background, as early as possible */
+        NativeRuntime.load(new Runnable() {
+            public void run() {
+                nativeClassInit();
+            }
+        }, "gstreamer_android", "nnstreamer-jni");
     }
 
     public void surfaceChanged(SurfaceHolder holder, int format, int width, int height) {
         /* SurfaceHolder.Callback interface implementation */
         Log.d(TAG, "Surface changed to format " + format + " width "
                 + width + " height " + height);
-        nativeSurfaceInit(holder.getSurface());
+
+        if (initialized) {
+            nativeSurfaceInit(holder.getSurface());
+        }
     }
 
     public void surfaceCreated(SurfaceHolder holder) {
@@ -221,7 +363,10 @@ public class NNStreamerActivity extends Activity implements
     public void surfaceDestroyed(SurfaceHolder holder) {
         /* SurfaceHolder.Callback interface implementation */
         Log.d(TAG, "Surface destroyed");
-        nativeSurfaceFinalize();
+
+        if (initialized) {
+            nativeSurfaceFinalize();
+        }
     }
 
     @Override
@@ -229,7 +374,7 @@ public class NNStreamerActivity extends Activity implements
         /* View.OnClickListener interface implementation */
         final int viewId = v.getId();
 
-        if (pipelineTimer != null) {
+        if (controller.isStarting()) {
             /* Do nothing, new pipeline will be started soon. */
             return;
         }
@@ -237,17 +382,25 @@ public class NNStreamerActivity extends Activity implements
         switch (viewId) {
         case R.id.main_button_cam:
             useFrontCamera = !useFrontCamera;
-            /* fallthrough */
+            stopBenchmark();
+            startPipeline(PIPELINE_ID);
+            break;
         case R.id.main_button_m1:
         case R.id.main_button_m2:
         case R.id.main_button_m3:
         case R.id.main_button_m4:
-            stopTimerTask();
-            startPipeline(PIPELINE_ID);
+        case R.id.main_button_cascade:
+            stopBenchmark();
+            updatePipeline();
+            break;
+        case R.id.main_button_dual:
+            stopBenchmark();
+            updateSurfaceSize();
+            updatePipeline();
             break;
         case R.id.main_button_play:
-             startTimerTask();
-             break;
+            startBenchmark();
+            break;
         default:
             break;
         }
@@ -291,82 +444,259 @@ public class NNStreamerActivity extends Activity implements
      * Initialize GStreamer and the layout.
      */
     private void initActivity() {
-        if (initialized) {
+        if (initialized || initializing) {
             return;
         }
 
-        /* Initialize GStreamer and warn if it fails */
-        try {
-            GStreamer.init(this);
-        } catch(Exception e) {
-            showToast(e.getMessage());
-            finish();
-            return;
-        }
-
-        /* Initialize with media resolution. */
-        nativeInit(GStreamerSurfaceView.media_width, GStreamerSurfaceView.media_height);
-
+        initializing = true;
         setContentView(R.layout.main);
 
         viewTitle = (TextView) findViewById(R.id.main_text_title);
         viewDesc = (TextView) findViewById(R.id.main_text_desc);
+        viewHud = (TextView) findViewById(R.id.main_text_hud);
 
         buttonCam = (ImageButton) findViewById(R.id.main_button_cam);
-        buttonCam.setOnClickListener(this);
-
         buttonPlay = (ImageButton) findViewById(R.id.main_button_play);
+        buttonModel1 = (ToggleButton) findViewById(R.id.main_button_m1);
+        buttonModel2 = (ToggleButton) findViewById(R.id.main_button_m2);
+        buttonModel3 = (ToggleButton) findViewById(R.id.main_button_m3);
+        buttonModel4 = (ToggleButton) findViewById(R.id.main_button_m4);
+        buttonCascade = (ToggleButton) findViewById(R.id.main_button_cascade);
+        buttonDual = (ToggleButton) findViewById(R.id.main_button_dual);
+
+        /* Video surface for camera */
+        SurfaceView sv = (SurfaceView) this.findViewById(R.id.main_surface_video);
+        SurfaceHolder sh = sv.getHolder();
+        sh.addCallback(this);
+
+        /* Long click on the video to show or hide the latency of the pipeline stages */
+        sv.setOnLongClickListener(new View.OnLongClickListener() {
+            @Override
+            public boolean onLongClick(View v) {
+                showLatency = !showLatency;
+                showToast(getString(showLatency ? R.string.latency_on : R.string.latency_off));
+                updateHud();
+                return true;
+            }
+        });
+
+        /* Start with disabled buttons, until the pipeline in native code is initialized. */
+        enableButton(false);
+
+        /* Initialize native code with media resolution, after GStreamer is initialized. */
+        NativeRuntime.runWhenReady(new Runnable() {
+            public void run() {
+                try {
+                    NativeRuntime.getReady().get();
+                } catch (final Exception e) {
+                    runOnUiThread(new Runnable() {
+                        public void run() {
+                            /* Warn if GStreamer initialization fails */
+                            Throwable cause = (e.getCause() != null) ? e.getCause() : e;
+
+                            showToast(cause.getMessage());
+                            finish();
+                        }
+                    });
+                    return;
+                }
+
+                synchronized (nativeLock) {
+                    if (destroyed) {
+                        /* Activity is destroyed while initializing GStreamer */
+                        return;
+                    }
+
+                    nativeInit(GStreamerSurfaceView.media_width, GStreamerSurfaceView.media_height);
+                    nativeCreated = true;
+                }
+
+                runOnUiThread(new Runnable() {
+                    public void run() {
+                        onNativeInitialized();
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Set up the components using native code, and start the pipeline if the activity is running.
+     */
+    private void onNativeInitialized() {
+        if (isDestroyed()) {
+            return;
+        }
+
+        initController();
+        initGovernor();
+
+        for (int[] rate : MODEL_RATES) {
+            nativeSetModelRate(PIPELINE_ID, rate[0], rate[1], rate[2]);
+        }
+
+        buttonCam.setOnClickListener(this);
         buttonPlay.setOnClickListener(this);
 
         /* Add event listener for models */
         String model1 = nativeGetName(1, (1 << 1));
-        buttonModel1 = (ToggleButton) findViewById(R.id.main_button_m1);
         buttonModel1.setOnClickListener(this);
         buttonModel1.setText(model1);
         buttonModel1.setTextOn(model1);
         buttonModel1.setTextOff(model1);
 
         String model2 = nativeGetName(1, (1 << 2));
-        buttonModel2 = (ToggleButton) findViewById(R.id.main_button_m2);
         buttonModel2.setOnClickListener(this);
         buttonModel2.setText(model2);
         buttonModel2.setTextOn(model2);
         buttonModel2.setTextOff(model2);
 
         String model3 = nativeGetName(1, (1 << 3));
-        buttonModel3 = (ToggleButton) findViewById(R.id.main_button_m3);
         buttonModel3.setOnClickListener(this);
         buttonModel3.setText(model3);
         buttonModel3.setTextOn(model3);
         buttonModel3.setTextOff(model3);
 
         String model4 = nativeGetName(1, (1 << 4));
-        buttonModel4 = (ToggleButton) findViewById(R.id.main_button_m4);
         buttonModel4.setOnClickListener(this);
         buttonModel4.setText(model4);
         buttonModel4.setTextOn(model4);
         buttonModel4.setTextOff(model4);
 
-        /* Video surface for camera */
-        SurfaceView sv = (SurfaceView) this.findViewById(R.id.main_surface_video);
-        SurfaceHolder sh = sv.getHolder();
-        sh.addCallback(this);
+        /* Cascade mode, face, hand and pose models run on the person region */
+        buttonCascade.setOnClickListener(this);
 
-        /* Start with disabled buttons, until the pipeline in native code is initialized. */
-        enableButton(false);
+        /* Dual camera mode, both cameras share the models */
+        buttonDual.setOnClickListener(this);
 
+        initializing = false;
         initialized = true;
+
+        /* The surface may be created before native code is initialized */
+        SurfaceView sv = (SurfaceView) this.findViewById(R.id.main_surface_video);
+        Surface surface = sv.getHolder().getSurface();
+        if (surface != null && surface.isValid()) {
+            nativeSurfaceInit(surface);
+        }
+
+        /* Start pipeline if the activity is already resumed */
+        if (resumed) {
+            resumePipeline();
+        }
+    }
+
+    /**
+     * Start pipeline when the activity is resumed.
+     */
+    private void resumePipeline() {
+        if (initialized) {
+            if (downloadTask != null && downloadTask.isProgress()) {
+                Log.d(TAG, "Now downloading model files");
+            } else {
+                startPipeline(PIPELINE_ID);
+            }
+        }
     }
 
     /**
      * Enable (or disable) buttons to launch model.
      */
     public void enableButton(boolean enabled) {
-        buttonCam.setEnabled(enabled);
+        boolean dual = buttonDual.isChecked();
+
+        buttonCam.setEnabled(enabled && !dual);
         buttonModel1.setEnabled(enabled);
         buttonModel2.setEnabled(enabled);
         buttonModel3.setEnabled(enabled);
         buttonModel4.setEnabled(enabled);
+        buttonCascade.setEnabled(enabled && !dual);
+        buttonDual.setEnabled(enabled);
+    }
+
+    /**
+     * Update the size of the surface, the frames from both cameras are shown side by side in dual camera mode.
+     */
+    private void updateSurfaceSize() {
+        boolean dual = buttonDual.isChecked();
+
+        GStreamerSurfaceView.media_width = dual ? (MEDIA_SIZE * 2) : MEDIA_SIZE;
+        GStreamerSurfaceView.media_height = MEDIA_SIZE;
+
+        findViewById(R.id.main_surface_video).requestLayout();
+
+        if (!dual) {
+            hudStreams = null;
+            updateHud();
+        }
+    }
+
+    /**
+     * Update the overlay with the statistics of the streams (dual camera mode) and the latency (if enabled).
+     */
+    private void updateHud() {
+        StringBuilder text = new StringBuilder();
+
+        if (hudStreams != null) {
+            text.append(hudStreams);
+        }
+
+        if (showLatency && hudLatency != null) {
+            if (text.length() > 0) {
+                text.append('\n');
+            }
+            text.append(hudLatency);
+        }
+
+        if (text.length() > 0) {
+            viewHud.setText(text.toString());
+            viewHud.setVisibility(View.VISIBLE);
+        } else {
+            viewHud.setVisibility(View.GONE);
+        }
+    }
+
+    /**
+     * Show the frame rate of each camera and the inference rate of the models for the camera (dual camera mode).
+     */
+    private void showStreamStats(String stats) {
+        final StringBuilder text = new StringBuilder();
+
+        try {
+            JSONArray streams = new JSONObject(stats).optJSONArray("streams");
+
+            if (streams == null) {
+                return;
+            }
+
+            for (int i = 0; i < streams.length(); i++) {
+                JSONObject stream = streams.getJSONObject(i);
+                JSONArray models = stream.getJSONArray("models");
+
+                if (i > 0) {
+                    text.append('\n');
+                }
+
+                text.append(String.format(Locale.US, "%s %.1f fps", stream.getString("name"),
+                        stream.getDouble("fps")));
+
+                for (int j = 0; j < models.length(); j++) {
+                    JSONObject model = models.getJSONObject(j);
+
+                    text.append(String.format(Locale.US, ", %s %.1f", model.getString("name"),
+                            model.getDouble("fps")));
+                }
+            }
+        } catch (JSONException e) {
+            Log.e(TAG, "Failed to parse statistics " + e.getMessage());
+            return;
+        }
+
+        runOnUiThread(new Runnable() {
+            public void run() {
+                hudStreams = buttonDual.isChecked() ? text.toString() : null;
+                updateHud();
+            }
+        });
     }
 
     /**
@@ -376,55 +706,129 @@ public class NNStreamerActivity extends Activity implements
         pipelineId = newId;
         enableButton(false);
 
-        /* Pause current pipeline and start new pipeline */
-        nativePause();
+        /* the latency of new pipeline is reported after it is started */
+        hudLatency = null;
+        updateHud();
 
         if (checkModels()) {
-            setPipelineTimer();
+            controller.start(pipelineId, governor.setRequestedOption(getPipelineOption()));
         } else {
             showDownloadDialog();
         }
     }
 
     /**
-     * Cancel pipeline timer.
+     * Update the models in running pipeline.
+     * Native code links or unlinks the model branches while the camera is running,
+     * and rebuilds the pipeline only if it cannot update it.
      */
-    private void stopPipelineTimer() {
-        if (pipelineTimer != null) {
-            pipelineTimer.cancel();
-            pipelineTimer = null;
+    private void updatePipeline() {
+        if (pipelineId != PIPELINE_ID) {
+            startPipeline(PIPELINE_ID);
+            return;
         }
+
+        enableButton(false);
+        controller.start(pipelineId, governor.setRequestedOption(getPipelineOption()));
     }
 
     /**
-     * Set timer to start new pipeline.
+     * Get the pipeline option with selected models.
      */
-    private void setPipelineTimer() {
-        final long time = 200;
+    private int getPipelineOption() {
+        int option = 0;
+
+        if (pipelineId == PIPELINE_ID) {
+            /* Set pipeline option here */
+            if (buttonModel1.isChecked()) option |= (1 << 1);
+            if (buttonModel2.isChecked()) option |= (1 << 2);
+            if (buttonModel3.isChecked()) option |= (1 << 3);
+            if (buttonModel4.isChecked()) option |= (1 << 4);
+            if (useFrontCamera) option |= (1 << 8);
+            if (buttonCascade.isChecked()) option |= (1 << 9);
+            if (buttonDual.isChecked()) option |= (1 << 10);
+        }
 
-        stopPipelineTimer();
-        pipelineTimer = new CountDownTimer(time, time) {
+        return option;
+    }
+
+    /**
+     * Create the controller to run the pipeline transitions in background thread.
+     */
+    private void initController() {
+        PipelineController.NativePipeline pipeline = new PipelineController.NativePipeline() {
             @Override
-            public void onTick(long millisUntilFinished) {
+            public void start(int id, int option) {
+                nativeStart(id, option);
             }
 
             @Override
-            public void onFinish() {
-                int option = 0;
-
-                pipelineTimer = null;
-                if (pipelineId == PIPELINE_ID) {
-                    /* Set pipeline option here */
-                    if (buttonModel1.isChecked()) option |= (1 << 1);
-                    if (buttonModel2.isChecked()) option |= (1 << 2);
-                    if (buttonModel3.isChecked()) option |= (1 << 3);
-                    if (buttonModel4.isChecked()) option |= (1 << 4);
-                    if (useFrontCamera) option |= (1 << 8);
-                }
+            public void stop() {
+                nativeStop();
+            }
+
+            @Override
+            public void play() {
+                nativePlay();
+            }
+
+            @Override
+            public void pause() {
+                nativePause();
+            }
+        };
+
+        PipelineController.Listener listener = new PipelineController.Listener() {
+            @Override
+            public void onPipelineReady(final String title, final String desc) {
+                runOnUiThread(new Runnable() {
+                    public void run() {
+                        /* Update pipeline title and description here */
+                        viewDesc.setText(Html.fromHtml(desc, Html.FROM_HTML_MODE_LEGACY));
+
+                        /* Update UI (buttons and other components) */
+                        enableButton(true);
+                    }
+                });
+            }
+
+            @Override
+            public void onFirstFrame(long elapsed) {
+                Log.d(TAG, "Pipeline " + pipelineId + " rendered first frame in " + elapsed + " ms");
+            }
+        };
+
+        controller = new PipelineController(pipeline, listener);
+    }
+
+    /**
+     * Start the governor to drop the optional models under load.
+     * The governor checks the statistics periodically while the pipeline is playing (except benchmark mode).
+     */
+    private void initGovernor() {
+        governor = new QosGovernor(new QosGovernor.Callback() {
+            @Override
+            public String getStats() {
+                String stats = nativeGetStats(PIPELINE_ID, true);
 
-                nativeStart(pipelineId, option);
+                showStreamStats(stats);
+                return stats;
+            }
+
+            @Override
+            public void applyOption(int option) {
+                controller.start(PIPELINE_ID, option);
+            }
+        });
+
+        timer.scheduleAtFixedRate(new TimerTask() {
+            public void run() {
+                if (benchmarkReport == null && pipelineId == PIPELINE_ID &&
+                        controller.getState() == PipelineController.State.PLAYING) {
+                    governor.update();
+                }
             }
-        }.start();
+        }, QOS_INTERVAL_MS, QOS_INTERVAL_MS);
     }
 
     /**
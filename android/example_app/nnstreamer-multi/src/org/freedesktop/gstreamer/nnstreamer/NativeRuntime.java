@@ -0,0 +1,115 @@
+package org.freedesktop.gstreamer.nnstreamer;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import org.freedesktop.gstreamer.GStreamer;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Bootstrapper for the native libraries and GStreamer.
+ * Loads the libraries and initializes GStreamer in a background thread,
+ * so the activity can show the layout while the native runtime is being prepared.
+ * All tasks run in a single thread in order, a task submitted with runWhenReady() runs after GStreamer is initialized.
+ */
+public class NativeRuntime {
+    private static final String TAG = "NNStreamer";
+
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            return new Thread(r, "NativeRuntime");
+        }
+    });
+
+    private static long startTime = 0;
+    private static Future<Void> loaded = null;
+    private static Future<Void> ready = null;
+
+    private NativeRuntime() {
+    }
+
+    /**
+     * Start to load the native libraries.
+     *
+     * @param classInit The task to initialize the native class, called after the libraries are loaded.
+     * @param libraries The names of the libraries to be loaded in order.
+     */
+    public static synchronized void load(final Runnable classInit, final String... libraries) {
+        if (loaded != null) {
+            return;
+        }
+
+        startTime = SystemClock.elapsedRealtime();
+        loaded = executor.submit(new Callable<Void>() {
+            @Override
+            public Void call() {
+                for (String library : libraries) {
+                    System.loadLibrary(library);
+                }
+
+                if (classInit != null) {
+                    classInit.run();
+                }
+
+                Log.d(TAG, "Native libraries loaded in " + getElapsed() + " ms");
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Start to initialize GStreamer, after the libraries are loaded.
+     *
+     * @return The future completed when GStreamer is initialized.
+     */
+    public static synchronized Future<Void> init(Context context) {
+        if (loaded == null) {
+            throw new IllegalStateException("Native libraries are not loaded");
+        }
+
+        if (ready == null) {
+            final Context appContext = context.getApplicationContext();
+
+            ready = executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    /* Throws the exception if failed to load the libraries. */
+                    loaded.get();
+
+                    GStreamer.init(appContext);
+
+                    Log.d(TAG, "GStreamer initialized in " + getElapsed() + " ms");
+                    return null;
+                }
+            });
+        }
+
+        return ready;
+    }
+
+    /**
+     * Get the future completed when GStreamer is initialized, null if init() is not called.
+     */
+    public static synchronized Future<Void> getReady() {
+        return ready;
+    }
+
+    /**
+     * Run the task in the background thread after GStreamer is initialized (or failed).
+     * The task should check the result with getReady().
+     */
+    public static void runWhenReady(Runnable task) {
+        executor.execute(task);
+    }
+
+    private static long getElapsed() {
+        return SystemClock.elapsedRealtime() - startTime;
+    }
+}
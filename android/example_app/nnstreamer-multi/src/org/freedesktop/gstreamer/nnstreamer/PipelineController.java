@@ -0,0 +1,248 @@
+package org.freedesktop.gstreamer.nnstreamer;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * State machine for the pipeline lifecycle.
+ * All transitions (start, play, pause and stop) run in a background thread,
+ * and the caller waits for the result with the future instead of fixed delay.
+ */
+public class PipelineController {
+    private static final String TAG = "NNStreamer";
+    private static final long SHUTDOWN_TIMEOUT_MS = 1000;
+
+    /**
+     * State of the pipeline.
+     */
+    public enum State {
+        STOPPED,    /* no pipeline */
+        STARTING,   /* new pipeline is requested, native code is building or updating it */
+        PLAYING,    /* pipeline is initialized and set to PLAYING */
+        PAUSED      /* pipeline is set to PAUSED */
+    }
+
+    /**
+     * Native methods to control the pipeline.
+     */
+    public interface NativePipeline {
+        void start(int id, int option);
+        void stop();
+        void play();
+        void pause();
+    }
+
+    /**
+     * Callbacks for the application, called in the background thread.
+     */
+    public interface Listener {
+        void onPipelineReady(String title, String desc);
+        void onFirstFrame(long elapsed);
+    }
+
+    /**
+     * Future completed by the controller when the transition is done.
+     */
+    private static class Transition extends FutureTask<Long> {
+        Transition() {
+            super(new Callable<Long>() {
+                @Override
+                public Long call() {
+                    return 0L;
+                }
+            });
+        }
+
+        void complete(long elapsed) {
+            set(elapsed);
+        }
+    }
+
+    private final NativePipeline pipeline;
+    private final Listener listener;
+    private final ExecutorService executor;
+
+    private volatile State state = State.STOPPED;
+    private Transition pendingStart = null;
+    private long startTime = 0;
+
+    public PipelineController(NativePipeline pipeline, Listener listener) {
+        this.pipeline = pipeline;
+        this.listener = listener;
+        this.executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                return new Thread(r, "PipelineController");
+            }
+        });
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Check the new pipeline is requested and not initialized yet.
+     */
+    public boolean isStarting() {
+        return (state == State.STARTING);
+    }
+
+    /**
+     * Start the pipeline with given option.
+     * Native code updates the running pipeline if possible, or builds new pipeline.
+     *
+     * @return The future with the time (milliseconds) to the first frame rendered with new pipeline.
+     *         If the running pipeline is updated, the time to the first result of the added models
+     *         (completed right away if the models are removed only).
+     */
+    public Future<Long> start(final int id, final int option) {
+        final Transition transition = new Transition();
+
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (pendingStart != null) {
+                    /* previous request is replaced */
+                    pendingStart.cancel(false);
+                }
+
+                pendingStart = transition;
+                startTime = SystemClock.elapsedRealtime();
+                setState(State.STARTING);
+
+                pipeline.start(id, option);
+            }
+        });
+
+        return transition;
+    }
+
+    /**
+     * Set the pipeline to PLAYING state.
+     */
+    public Future<?> play() {
+        return executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                if (state == State.PAUSED) {
+                    pipeline.play();
+                    setState(State.PLAYING);
+                }
+            }
+        });
+    }
+
+    /**
+     * Set the pipeline to PAUSED state.
+     */
+    public Future<?> pause() {
+        return executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                pipeline.pause();
+
+                if (state != State.STOPPED) {
+                    setState(State.PAUSED);
+                }
+            }
+        });
+    }
+
+    /**
+     * Stop the pipeline.
+     */
+    public Future<?> stop() {
+        return executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                pipeline.stop();
+                cancelPendingStart();
+                setState(State.STOPPED);
+            }
+        });
+    }
+
+    /**
+     * Stop the pipeline and the background thread.
+     * This waits for the running transition, the native code can be released after this.
+     */
+    public void shutdown() {
+        stop();
+        executor.shutdown();
+
+        try {
+            if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                Log.w(TAG, "Timeout to stop the pipeline controller");
+            }
+        } catch (InterruptedException e) {
+            Log.e(TAG, "InterruptedException " + e.getMessage());
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Native code created (or updated) the pipeline and the main loop is running.
+     */
+    public void onInitialized(final String title, final String desc) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (state == State.STOPPED) {
+                    return;
+                }
+
+                /* pipeline is ready, set PLAYING state */
+                pipeline.play();
+                setState(State.PLAYING);
+
+                listener.onPipelineReady(title, desc);
+            }
+        });
+    }
+
+    /**
+     * Native code rendered the first frame after the pipeline is started,
+     * or the added models produced the first result after the pipeline is updated.
+     */
+    public void onFirstFrame() {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (pendingStart == null) {
+                    return;
+                }
+
+                long elapsed = SystemClock.elapsedRealtime() - startTime;
+
+                Log.i(TAG, "Time to first frame " + elapsed + " ms");
+                pendingStart.complete(elapsed);
+                pendingStart = null;
+
+                listener.onFirstFrame(elapsed);
+            }
+        });
+    }
+
+    private void cancelPendingStart() {
+        if (pendingStart != null) {
+            pendingStart.cancel(false);
+            pendingStart = null;
+        }
+    }
+
+    private void setState(State newState) {
+        if (state != newState) {
+            Log.d(TAG, "Pipeline state " + state + " > " + newState);
+            state = newState;
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package org.freedesktop.gstreamer.nnstreamer;
+
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Locale;
+
+/**
+ * Governor to keep the frame rate of the primary model under load.
+ * Checks the statistics of the running pipeline periodically. If the frame rate or inference latency misses the target,
+ * drops the optional models (pose first, then hand) from the option, and restores them when the pipeline has headroom.
+ */
+public class QosGovernor {
+    private static final String TAG = "NNStreamer";
+
+    private static final int MODEL_FACE = (1 << 1);
+    private static final int MODEL_HAND = (1 << 2);
+    private static final int MODEL_OBJ = (1 << 3);
+    private static final int MODEL_POSE = (1 << 4);
+
+    /* Optional models in order to be dropped */
+    private static final int[] DEGRADE_ORDER = { MODEL_POSE, MODEL_HAND };
+
+    /* Primary models in order of priority, the first selected one is guaranteed */
+    private static final int[] PRIMARY_ORDER = { MODEL_OBJ, MODEL_FACE };
+
+    private static final double TARGET_DISPLAY_FPS = 20.0;
+    private static final double TARGET_LATENCY_MS = 100.0;
+
+    /*
+     * Max ratio of the frames dropped in the queue of the primary model.
+     * The model may run with lower rate than camera (see nativeSetModelRate),
+     * so the governor checks the frames not processed in time instead of the frame rate of the model.
+     */
+    private static final double TARGET_PRIMARY_DROP = 0.2;
+
+    /* Restore the model if the pipeline has headroom with this margin */
+    private static final double RESTORE_MARGIN = 1.3;
+    /* Number of windows with headroom before restoring a model */
+    private static final int RESTORE_WINDOWS = 3;
+
+    /**
+     * Callbacks to read the statistics and update the pipeline.
+     */
+    public interface Callback {
+        String getStats();
+        void applyOption(int option);
+    }
+
+    private final Callback callback;
+    private final Deque<Integer> dropped = new ArrayDeque<>();
+    private int requested = 0;
+    private int headroomWindows = 0;
+    private boolean settling = true;
+
+    public QosGovernor(Callback callback) {
+        this.callback = callback;
+    }
+
+    /**
+     * Set the option selected by user.
+     * The models not selected anymore are removed from the dropped list.
+     *
+     * @return The option to launch the pipeline.
+     */
+    public synchronized int setRequestedOption(int option) {
+        requested = option;
+
+        for (Integer model : dropped.toArray(new Integer[0])) {
+            if ((option & model) == 0) {
+                dropped.remove(model);
+            }
+        }
+
+        restart();
+        return getOption();
+    }
+
+    /**
+     * Get the option without the dropped models.
+     */
+    public synchronized int getOption() {
+        int option = requested;
+
+        for (Integer model : dropped) {
+            option &= ~model;
+        }
+
+        return option;
+    }
+
+    /**
+     * Check the statistics since last update, and drop or restore a model if necessary.
+     * Call this periodically while the pipeline is playing.
+     */
+    public synchronized void update() {
+        String stats = callback.getStats();
+
+        if (settling) {
+            /* The statistics include the time to switch the pipeline, skip this window. */
+            settling = false;
+            return;
+        }
+
+        double displayFps;
+        double primaryDrop = -1;
+        double primaryLatency = 0;
+        String primaryName = null;
+
+        try {
+            JSONObject result = new JSONObject(stats);
+            JSONArray models = result.optJSONArray("models");
+            int primary = getPrimaryModel();
+
+            displayFps = result.getDouble("fps");
+
+            if (models != null && primary != 0) {
+                primaryName = getModelName(primary);
+
+                for (int i = 0; i < models.length(); i++) {
+                    JSONObject model = models.getJSONObject(i);
+
+                    if (model.getString("name").equals(primaryName)) {
+                        long received = model.getLong("received");
+
+                        primaryDrop = (received > 0) ? ((double) model.getLong("dropped") / received) : 0.0;
+                        primaryLatency = model.getDouble("latency_avg_ms");
+                    }
+                }
+            }
+        } catch (JSONException e) {
+            Log.e(TAG, "QoS: failed to parse statistics " + e.getMessage());
+            return;
+        }
+
+        String status = String.format(Locale.US, "display %.1f fps, %s drop %.2f latency %.1f ms", displayFps,
+                (primaryName != null) ? primaryName : "none", primaryDrop, primaryLatency);
+
+        boolean overloaded = (displayFps < TARGET_DISPLAY_FPS) ||
+                (primaryDrop >= 0 && (primaryDrop > TARGET_PRIMARY_DROP || primaryLatency > TARGET_LATENCY_MS));
+        boolean headroom = (displayFps >= TARGET_DISPLAY_FPS * RESTORE_MARGIN) &&
+                (primaryDrop < 0 || (primaryDrop * RESTORE_MARGIN <= TARGET_PRIMARY_DROP / 2 &&
+                    primaryLatency * RESTORE_MARGIN <= TARGET_LATENCY_MS));
+
+        if (overloaded) {
+            headroomWindows = 0;
+
+            int model = getNextModelToDrop();
+            if (model != 0) {
+                dropped.push(model);
+                Log.i(TAG, "QoS: drop " + getModelName(model) + " (" + status + ")");
+                apply();
+            } else {
+                Log.i(TAG, "QoS: overloaded, no optional model to drop (" + status + ")");
+            }
+        } else if (headroom && !dropped.isEmpty()) {
+            headroomWindows++;
+
+            if (headroomWindows >= RESTORE_WINDOWS) {
+                int model = dropped.pop();
+
+                headroomWindows = 0;
+                Log.i(TAG, "QoS: restore " + getModelName(model) + " (" + status + ")");
+                apply();
+            } else {
+                Log.d(TAG, "QoS: headroom " + headroomWindows + "/" + RESTORE_WINDOWS + " (" + status + ")");
+            }
+        } else {
+            headroomWindows = 0;
+            Log.d(TAG, "QoS: keep (" + status + ")");
+        }
+    }
+
+    /**
+     * Skip the next window, call this when the pipeline is (re)started.
+     */
+    public synchronized void restart() {
+        headroomWindows = 0;
+        settling = true;
+    }
+
+    private void apply() {
+        restart();
+        callback.applyOption(getOption());
+    }
+
+    private int getPrimaryModel() {
+        for (int model : PRIMARY_ORDER) {
+            if ((requested & model) != 0) {
+                return model;
+            }
+        }
+
+        return 0;
+    }
+
+    private int getNextModelToDrop() {
+        int option = getOption();
+
+        /* do not drop the last model */
+        if (getPrimaryModel() == 0 && Integer.bitCount(option & (MODEL_HAND | MODEL_POSE)) < 2) {
+            return 0;
+        }
+
+        for (int model : DEGRADE_ORDER) {
+            if ((option & model) != 0) {
+                return model;
+            }
+        }
+
+        return 0;
+    }
+
+    private static String getModelName(int model) {
+        switch (model) {
+        case MODEL_FACE:
+            return "face";
+        case MODEL_HAND:
+            return "hand";
+        case MODEL_OBJ:
+            return "object";
+        case MODEL_POSE:
+            return "pose";
+        default:
+            return "unknown";
+        }
+    }
+}
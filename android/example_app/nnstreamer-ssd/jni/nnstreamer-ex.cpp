@@ -18,6 +18,8 @@
 #include <cairo/cairo.h>
 
 #include "nnstreamer-jni.h"
+#include "nnstreamer-ex-cache.h"
+#include "nnstreamer-ex-tracker.h"
 
 #define EX_MODEL_PATH "/sdcard/nnstreamer/tflite_model"
 
@@ -47,6 +49,24 @@
  */
 #define MAX_OBJECT_DETECTION 5
 
+/**
+ * @brief Option to run the detector every Nth frame (lower 8 bits of the launch option).
+ * With the interval larger than 1, the boxes in the skipped frames are extrapolated by the tracker.
+ */
+#define DETECTION_INTERVAL_MASK 0xff
+
+/**
+ * @brief Params for the tracker.
+ */
+#define TRACKER_IOU_THRESHOLD 0.3f
+#define TRACKER_MAX_MISSED 2
+
+/**
+ * @brief Interval to print the detection ratio (frames).
+ * The application also reads the ratio with nns_ex_get_detection_ratio.
+ */
+#define TRACKER_LOG_INTERVAL 300
+
 /**
  * @brief Data structure for detected object.
  */
@@ -66,7 +86,7 @@ typedef struct
 typedef struct
 {
   gfloat box_priors[SSD_BOX_SIZE][SSD_DETECTION_MAX]; /**< box prior */
-  GSList *labels_obj;           /**< list of loaded labels (object detection) */
+  nns_ex_labels_s labels_obj;   /**< loaded labels (object detection) */
   gboolean is_initialized;
 } nns_ex_model_info_s;
 
@@ -74,26 +94,10 @@ static gint launch_option = 0;
 static nns_ex_model_info_s nns_ex_model_info;
 static GMutex res_mutex;
 static std::vector<ssd_object_s> detected_object;
-
-/**
- * @brief Read strings from file.
- */
-static gboolean
-nns_ex_read_lines (const gchar * file_name, GSList ** lines)
-{
-  std::ifstream file (file_name);
-  if (!file) {
-    nns_loge ("Failed to open file %s", file_name);
-    return FALSE;
-  }
-
-  std::string str;
-  while (std::getline (file, str)) {
-    *lines = g_slist_append (*lines, g_strdup (str.c_str ()));
-  }
-
-  return TRUE;
-}
+static nns_ex_tracker_s tracker;
+static guint detection_interval = 1;
+static guint frame_count = 0;
+static gint detection_requested = 0;
 
 /**
  * @brief Load box priors.
@@ -101,42 +105,13 @@ nns_ex_read_lines (const gchar * file_name, GSList ** lines)
 static gboolean
 nns_ex_load_box_priors (void)
 {
-  GSList *box_priors = NULL;
-  gchar *box_row;
-
-  if (!nns_ex_read_lines (EX_BOX_PRIORS, &box_priors)) {
+  if (!nns_ex_cache_load_box_priors (EX_BOX_PRIORS,
+          &nns_ex_model_info.box_priors[0][0], SSD_BOX_SIZE,
+          SSD_DETECTION_MAX)) {
     nns_loge ("Failed to load box prior");
     return FALSE;
   }
 
-  for (guint row = 0; row < SSD_BOX_SIZE; row++) {
-    gint column = 0;
-    gint i = 0, j = 0;
-    gchar buff[11];
-
-    memset (buff, 0, 11);
-    box_row = (gchar *) g_slist_nth_data (box_priors, row);
-
-    while ((box_row[i] != '\n') && (box_row[i] != '\0')) {
-      if (box_row[i] != ' ') {
-        buff[j] = box_row[i];
-        j++;
-      } else {
-        if (j != 0) {
-          nns_ex_model_info.box_priors[row][column++] =
-              (gfloat) g_ascii_strtod (buff, NULL);
-          memset (buff, 0, 11);
-        }
-        j = 0;
-      }
-      i++;
-    }
-
-    nns_ex_model_info.box_priors[row][column] =
-        (gfloat) g_ascii_strtod (buff, NULL);
-  }
-
-  g_slist_free_full (box_priors, g_free);
   return TRUE;
 }
 
@@ -146,7 +121,7 @@ nns_ex_load_box_priors (void)
 static gboolean
 nns_ex_load_labels (void)
 {
-  return nns_ex_read_lines (EX_OBJ_LABEL, &nns_ex_model_info.labels_obj);
+  return nns_ex_cache_load_labels (EX_OBJ_LABEL, &nns_ex_model_info.labels_obj);
 }
 
 /**
@@ -155,10 +130,7 @@ nns_ex_load_labels (void)
 static void
 nns_ex_free (void)
 {
-  if (nns_ex_model_info.labels_obj) {
-    g_slist_free_full (nns_ex_model_info.labels_obj, g_free);
-    nns_ex_model_info.labels_obj = NULL;
-  }
+  nns_ex_cache_free_labels (&nns_ex_model_info.labels_obj);
 
   g_mutex_clear (&res_mutex);
   detected_object.clear ();
@@ -186,11 +158,11 @@ nns_ex_init (void)
 static guint
 nns_ex_get_label_size (void)
 {
-  GSList *list = NULL;
+  nns_ex_labels_s *labels = NULL;
 
-  list = nns_ex_model_info.labels_obj;
+  labels = &nns_ex_model_info.labels_obj;
 
-  return g_slist_length (list);
+  return (labels != NULL) ? labels->count : 0;
 }
 
 /**
@@ -199,13 +171,13 @@ nns_ex_get_label_size (void)
 static gboolean
 nns_ex_get_label (const guint class_id, gchar ** label)
 {
-  GSList *list = NULL;
+  nns_ex_labels_s *labels = NULL;
 
   *label = NULL;
 
-  list = nns_ex_model_info.labels_obj;
+  labels = &nns_ex_model_info.labels_obj;
 
-  *label = (gchar *) g_slist_nth_data (list, class_id);
+  *label = (gchar *) nns_ex_cache_get_label (labels, class_id);
   return (*label != NULL);
 }
 
@@ -241,7 +213,7 @@ ssd_iou (ssd_object_s &A, ssd_object_s &B)
  * @brief NMS (non-maximum suppression)
  */
 static void
-ssd_nms (std::vector<ssd_object_s> &detected)
+ssd_nms (std::vector<ssd_object_s> &detected, const gint64 timestamp)
 {
   const gfloat threshold_iou = .5f;
   gsize boxes_size;
@@ -271,6 +243,27 @@ ssd_nms (std::vector<ssd_object_s> &detected)
     }
   }
 
+  if (detection_interval > 1) {
+    nns_ex_box_s boxes[NNS_EX_TRACKER_MAX];
+    guint count = 0;
+
+    for (i = 0; i < detected_object.size () && count < NNS_EX_TRACKER_MAX; i++) {
+      boxes[count].x = detected_object[i].x;
+      boxes[count].y = detected_object[i].y;
+      boxes[count].width = detected_object[i].width;
+      boxes[count].height = detected_object[i].height;
+      boxes[count].class_id = detected_object[i].class_id;
+      boxes[count].prob = detected_object[i].prob;
+      count++;
+    }
+
+    nns_ex_tracker_update (&tracker, boxes, count, timestamp);
+
+    /* run the detector on next frame to find the missed object */
+    if (nns_ex_tracker_is_lost (&tracker))
+      g_atomic_int_set (&detection_requested, 1);
+  }
+
   g_mutex_unlock (&res_mutex);
 }
 
@@ -278,7 +271,8 @@ ssd_nms (std::vector<ssd_object_s> &detected)
  * @brief Update detected objects.
  */
 static void
-ssd_update_detection (gfloat * detections, gfloat * boxes)
+ssd_update_detection (gfloat * detections, gfloat * boxes,
+    const gint64 timestamp)
 {
   const gfloat threshold_score = .5f;
   gfloat xcenter, ycenter, x, y, width, height;
@@ -335,20 +329,48 @@ ssd_update_detection (gfloat * detections, gfloat * boxes)
     }
   }
 
-  ssd_nms (detected);
+  ssd_nms (detected, timestamp);
 }
 
 /**
  * @brief Get detected objects.
  */
 static guint
-ssd_get_detected_objects (ssd_object_s * objects)
+ssd_get_detected_objects (ssd_object_s * objects, const gint64 timestamp)
 {
   guint index = 0;
   std::vector<ssd_object_s> detected;
   std::vector<ssd_object_s>::iterator iter;
 
   g_mutex_lock (&res_mutex);
+
+  if (detection_interval > 1) {
+    nns_ex_box_s boxes[MAX_OBJECT_DETECTION];
+    guint count;
+
+    /* extrapolated boxes in the frames without detection */
+    count = nns_ex_tracker_predict (&tracker, timestamp, boxes,
+        MAX_OBJECT_DETECTION);
+
+    if ((tracker.total_frames % TRACKER_LOG_INTERVAL) == 0) {
+      nns_logi ("Detection ratio %.2f (interval %u)",
+          nns_ex_tracker_get_detection_ratio (&tracker), detection_interval);
+    }
+
+    g_mutex_unlock (&res_mutex);
+
+    for (index = 0; index < count; index++) {
+      objects[index].x = (guint) MAX (0.f, boxes[index].x);
+      objects[index].y = (guint) MAX (0.f, boxes[index].y);
+      objects[index].width = (guint) boxes[index].width;
+      objects[index].height = (guint) boxes[index].height;
+      objects[index].class_id = boxes[index].class_id;
+      objects[index].prob = boxes[index].prob;
+    }
+
+    return count;
+  }
+
   detected = detected_object;
   g_mutex_unlock (&res_mutex);
 
@@ -412,6 +434,36 @@ ssd_draw_object (cairo_t * cr, ssd_object_s * objects, const gint size)
   }
 }
 
+/**
+ * @brief Get the timestamp of the frame (ns).
+ */
+static gint64
+nns_ex_get_timestamp (const GstClockTime pts)
+{
+  if (GST_CLOCK_TIME_IS_VALID (pts))
+    return (gint64) pts;
+
+  return g_get_monotonic_time () * 1000;
+}
+
+/**
+ * @brief Callback for the pad probe to skip the frames without detection.
+ */
+static GstPadProbeReturn
+nns_ex_skip_frame_cb (GstPad * pad, GstPadProbeInfo * info, gpointer user_data)
+{
+  if (detection_interval > 1) {
+    guint count = frame_count++;
+
+    if ((count % detection_interval) != 0 &&
+        !g_atomic_int_compare_and_exchange (&detection_requested, 1, 0)) {
+      return GST_PAD_PROBE_DROP;
+    }
+  }
+
+  return GST_PAD_PROBE_OK;
+}
+
 /**
  * @brief Callback for tensor sink signal.
  */
@@ -437,7 +489,8 @@ nns_ex_new_data_cb (GstElement * element, GstBuffer * buffer, gpointer user_data
   gst_memory_map (mem_detections, &info_detections, GST_MAP_READ);
   detections = (gfloat *) info_detections.data;
 
-  ssd_update_detection (detections, boxes);
+  ssd_update_detection (detections, boxes,
+      nns_ex_get_timestamp (GST_BUFFER_PTS (buffer)));
 
   gst_memory_unmap (mem_boxes, &info_boxes);
   gst_memory_unmap (mem_detections, &info_detections);
@@ -461,10 +514,29 @@ nns_ex_draw_overlay_cb (GstElement * overlay, cairo_t * cr, guint64 timestamp,
       CAIRO_FONT_WEIGHT_BOLD);
   cairo_set_font_size (cr, 18.0);
 
-  max_objects = ssd_get_detected_objects (objects);
+  max_objects = ssd_get_detected_objects (objects,
+      nns_ex_get_timestamp (timestamp));
   ssd_draw_object (cr, objects, max_objects);
 }
 
+/**
+ * @brief Get the ratio of the frames with detection to all frames.
+ * @return FALSE if the detector runs every frame.
+ */
+static gboolean
+nns_ex_get_detection_ratio (gfloat * ratio)
+{
+  gboolean tracking;
+
+  g_mutex_lock (&res_mutex);
+  tracking = (detection_interval > 1);
+  if (tracking)
+    *ratio = nns_ex_tracker_get_detection_ratio (&tracker);
+  g_mutex_unlock (&res_mutex);
+
+  return tracking;
+}
+
 /**
  * @brief Get model name.
  */
@@ -498,15 +570,24 @@ static gboolean
 nns_ex_launch_pipeline (GstElement ** pipeline, const gint option)
 {
   GstElement *element;
+  GstPad *pad;
   GError *error = NULL;
   gchar *str_pipeline;
 
   launch_option = option;
 
+  g_mutex_lock (&res_mutex);
+  detection_interval = MAX (1, option & DETECTION_INTERVAL_MASK);
+  frame_count = 0;
+  g_atomic_int_set (&detection_requested, 0);
+  nns_ex_tracker_init (&tracker, TRACKER_IOU_THRESHOLD, TRACKER_MAX_MISSED);
+  g_mutex_unlock (&res_mutex);
+  nns_logd ("Detection interval %u", detection_interval);
+
   str_pipeline = g_strdup_printf
       ("ahc2src ! videoconvert ! video/x-raw,format=RGB,width=640,height=480,framerate=30/1 ! tee name=traw "
       "traw. ! queue ! videoconvert ! cairooverlay name=res_cairooverlay ! glimagesink "
-      "traw. ! queue leaky=2 max-size-buffers=2 ! videoscale ! video/x-raw,format=RGB,width=%d,height=%d ! tensor_converter ! "
+      "traw. ! queue name=obj_queue leaky=2 max-size-buffers=2 ! videoscale ! video/x-raw,format=RGB,width=%d,height=%d ! tensor_converter ! "
       "tensor_transform mode=arithmetic option=typecast:float32,add:-127.5,div:127.5 ! "
       "tensor_filter framework=tensorflow-lite model=%s ! tensor_sink name=res_obj",
       SSD_MODEL_WIDTH, SSD_MODEL_HEIGHT, EX_OBJ_MODEL);
@@ -532,6 +613,14 @@ nns_ex_launch_pipeline (GstElement ** pipeline, const gint option)
   g_signal_connect (element, "new-data", G_CALLBACK (nns_ex_new_data_cb), NULL);
   gst_object_unref (element);
 
+  /* skip the frames, the tracker updates the boxes in these frames */
+  element = gst_bin_get_by_name (GST_BIN (*pipeline), "obj_queue");
+  pad = gst_element_get_static_pad (element, "sink");
+  gst_pad_add_probe (pad, GST_PAD_PROBE_TYPE_BUFFER, nns_ex_skip_frame_cb,
+      NULL, NULL);
+  gst_object_unref (pad);
+  gst_object_unref (element);
+
   /* cairooverlay draw */
   element = gst_bin_get_by_name (GST_BIN (*pipeline), "res_cairooverlay");
   g_signal_connect (element, "draw", G_CALLBACK (nns_ex_draw_overlay_cb), NULL);
@@ -577,7 +666,8 @@ static NNSPipelineInfo nns_ex_pipeline = {
   .get_name = nns_ex_get_name,
   .get_description = nns_ex_get_description,
   .prepare_pipeline = nns_ex_prepare_pipeline,
-  .launch_pipeline = nns_ex_launch_pipeline
+  .launch_pipeline = nns_ex_launch_pipeline,
+  .get_detection_ratio = nns_ex_get_detection_ratio
 };
 
 /**
@@ -687,6 +687,26 @@ gst_native_get_description (JNIEnv * env, jobject thiz, jint id, jint option)
   return result;
 }
 
+/**
+ * @brief Get the ratio of the frames with detection to all frames, -1 if the detector runs every frame.
+ */
+static jfloat
+gst_native_get_detection_ratio (JNIEnv * env, jobject thiz)
+{
+  CustomData *data = GET_CUSTOM_DATA (env, thiz, custom_data_field_id);
+  NNSPipelineInfo *info;
+  gfloat ratio;
+
+  if (!data)
+    return -1.f;
+
+  info = get_pipeline_info (data->pipeline_id);
+  if (info && info->get_detection_ratio && info->get_detection_ratio (&ratio))
+    return ratio;
+
+  return -1.f;
+}
+
 /**
  * @brief List of implemented native methods
  */
@@ -703,6 +723,7 @@ static JNINativeMethod native_methods[] = {
   {"nativeGetName", "(II)Ljava/lang/String;", (void *) gst_native_get_name},
   {"nativeGetDescription", "(II)Ljava/lang/String;",
       (void *) gst_native_get_description},
+  {"nativeGetDetectionRatio", "()F", (void *) gst_native_get_detection_ratio},
   {"nativeClassInit", "()Z", (void *) gst_native_class_init}
 };
 
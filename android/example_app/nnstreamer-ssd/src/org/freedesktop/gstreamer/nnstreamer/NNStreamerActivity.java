@@ -8,11 +8,13 @@ import android.content.pm.PackageManager;
 import android.os.Bundle;
 import android.os.CountDownTimer;
 import android.os.Environment;
+import android.os.Handler;
 import android.util.Log;
 import android.view.SurfaceHolder;
 import android.view.SurfaceView;
 import android.view.View;
 import android.widget.ImageButton;
+import android.widget.TextView;
 import android.widget.Toast;
 
 import android.support.v4.app.ActivityCompat;
@@ -30,6 +32,14 @@ public class NNStreamerActivity extends Activity implements
     private static final String TAG = "NNStreamer";
     private static final int PERMISSION_REQUEST_ALL = 3;
     private static final int PIPELINE_ID = 1;
+    /* Run the detector every Nth frame, the boxes in other frames are extrapolated by the tracker (1 to disable) */
+    private static final int DETECTION_INTERVAL = 2;
+    /* Intent extra to set the interval, e.g. adb shell am start -n <activity> --ei detection_interval 3 */
+    private static final String EXTRA_DETECTION_INTERVAL = "detection_interval";
+    private static final int MAX_DETECTION_INTERVAL = 0xff;
+    /* Tapping the detection overlay changes the interval in 1, 2 and 3 */
+    private static final int DETECTION_INTERVAL_STEPS = 3;
+    private static final long DETECTION_RATIO_INTERVAL = 1000;
     private static final String downloadPath = Environment.getExternalStorageDirectory().getPath() + "/nnstreamer/tflite_model";
 
     private native void nativeInit(int w, int h); /* Initialize native code, build pipeline, etc */
@@ -43,17 +53,28 @@ public class NNStreamerActivity extends Activity implements
     private native void nativeSurfaceFinalize();
     private native String nativeGetName(int id, int option);
     private native String nativeGetDescription(int id, int option);
+    private native float nativeGetDetectionRatio(); /* Ratio of the frames with detection, -1 if the detector runs every frame */
     private long native_custom_data;      /* Native code will use this to keep private data */
 
     private int pipelineId = 0;
     private CountDownTimer pipelineTimer = null;
     private boolean initialized = false;
+    private int detectionInterval = DETECTION_INTERVAL;
+    private final Handler ratioHandler = new Handler();
+    private final Runnable ratioUpdater = new Runnable() {
+        @Override
+        public void run() {
+            updateDetectionRatio();
+            ratioHandler.postDelayed(this, DETECTION_RATIO_INTERVAL);
+        }
+    };
 
     private DownloadModel downloadTask = null;
     private ArrayList<String> downloadList = new ArrayList<>();
 
     private ImageButton buttonPlay;
     private ImageButton buttonStop;
+    private TextView textRatio;
 
     @Override
     public void onCreate(Bundle savedInstanceState) {
@@ -84,6 +105,7 @@ public class NNStreamerActivity extends Activity implements
         super.onPause();
 
         stopPipelineTimer();
+        ratioHandler.removeCallbacks(ratioUpdater);
         nativePause();
     }
 
@@ -106,6 +128,7 @@ public class NNStreamerActivity extends Activity implements
         super.onDestroy();
 
         stopPipelineTimer();
+        ratioHandler.removeCallbacks(ratioUpdater);
         nativeFinalize();
     }
 
@@ -193,6 +216,12 @@ public class NNStreamerActivity extends Activity implements
             buttonPlay.setVisibility(View.VISIBLE);
             buttonStop.setVisibility(View.GONE);
             break;
+        case R.id.main_text_ratio:
+            /* Restart the pipeline with next interval */
+            detectionInterval = (detectionInterval % DETECTION_INTERVAL_STEPS) + 1;
+            Log.d(TAG, "Detection interval " + detectionInterval);
+            startPipeline(PIPELINE_ID);
+            break;
         default:
             break;
         }
@@ -260,6 +289,14 @@ public class NNStreamerActivity extends Activity implements
         buttonStop = (ImageButton) this.findViewById(R.id.main_button_stop);
         buttonStop.setOnClickListener(this);
 
+        textRatio = (TextView) this.findViewById(R.id.main_text_ratio);
+        textRatio.setOnClickListener(this);
+
+        /* The tracker fills the frames between the detections, the overlay or the intent extra changes the interval. */
+        detectionInterval = getIntent().getIntExtra(EXTRA_DETECTION_INTERVAL, DETECTION_INTERVAL);
+        detectionInterval = Math.max(1, Math.min(detectionInterval, MAX_DETECTION_INTERVAL));
+        Log.d(TAG, "Detection interval " + detectionInterval);
+
         /* Video surface for camera */
         SurfaceView sv = (SurfaceView) this.findViewById(R.id.main_surface_video);
         SurfaceHolder sh = sv.getHolder();
@@ -325,13 +362,41 @@ public class NNStreamerActivity extends Activity implements
                 pipelineTimer = null;
                 if (pipelineId == PIPELINE_ID) {
                     /* Set pipeline option here */
+                    option = detectionInterval;
                 }
 
                 nativeStart(pipelineId, option);
+
+                ratioHandler.removeCallbacks(ratioUpdater);
+                if (detectionInterval > 1) {
+                    ratioHandler.postDelayed(ratioUpdater, DETECTION_RATIO_INTERVAL);
+                } else {
+                    updateDetectionRatio();
+                }
             }
         }.start();
     }
 
+    /**
+     * Show the ratio of the frames with detection, the boxes in other frames are extrapolated by the tracker.
+     */
+    private void updateDetectionRatio() {
+        if (detectionInterval > 1) {
+            float ratio = nativeGetDetectionRatio();
+
+            if (ratio < 0) {
+                /* The pipeline is not started yet */
+                return;
+            }
+
+            textRatio.setText(getString(R.string.detection_ratio, ratio * 100, detectionInterval));
+        } else {
+            textRatio.setText(R.string.detection_every_frame);
+        }
+
+        textRatio.setVisibility(View.VISIBLE);
+    }
+
     /**
      * Check a model file exists in specific directory.
      */
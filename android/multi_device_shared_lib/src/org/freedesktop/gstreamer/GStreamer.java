@@ -1,99 +1,364 @@
 package org.freedesktop.gstreamer;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
 
 import android.content.Context;
+import android.content.pm.PackageManager;
+import android.content.res.AssetFileDescriptor;
 import android.content.res.AssetManager;
+import android.util.Log;
 
 public class GStreamer {
+    private static final String TAG = "GStreamer";
+
+    /* Increase this when the layout of the extracted files is changed. */
+    private static final int EXTRACTION_VERSION = 1;
+    private static final String MANIFEST_NAME = "gstreamer-assets.properties";
+    private static final String MANIFEST_VERSION = "version";
+    private static final int MAX_COPY_THREADS = 4;
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    private static final String CERTS_ASSET = "ssl/certs/ca-certificates.crt";
+
     private static native void nativeInit(Context context) throws Exception;
 
     public static void init(Context context) throws Exception {
-        copyCaCertificates(context);
-        copyFonts(context);
+        extractAssets(context);
         nativeInit(context);
     }
 
-    private static void copyFonts(Context context) {
-        AssetManager assetManager = context.getAssets();
+    /**
+     * Asset to be extracted into the files directory.
+     */
+    private static class AssetEntry {
+        final String assetPath;
+        final File outFile;
+
+        AssetEntry(String assetPath, File outFile) {
+            this.assetPath = assetPath;
+            this.outFile = outFile;
+        }
+    }
+
+    /**
+     * Copies the certificates and fonts, only if the files are changed since last extraction.
+     * The manifest in the files directory keeps the size and hash of the extracted files.
+     * If the application is not updated, the files are checked with the size in the manifest without reading the assets.
+     * @throws IOException if the certificates cannot be extracted, a missing font is logged only.
+     */
+    private static void extractAssets(Context context) throws IOException {
+        final AssetManager assetManager = context.getAssets();
         File filesDir = context.getFilesDir();
-        File fontsFCDir = new File (filesDir, "fontconfig");
-        File fontsDir = new File (fontsFCDir, "fonts");
-        File fontsCfg = new File (fontsFCDir, "fonts.conf");
+        File manifestFile = new File(filesDir, MANIFEST_NAME);
+        final Properties manifest = loadManifest(manifestFile);
+        final String version = getAssetsVersion(context);
+        final boolean sameVersion = version.equals(manifest.getProperty(MANIFEST_VERSION));
+        final Properties newManifest = new Properties();
+        List<AssetEntry> entries = listAssets(assetManager, filesDir);
+
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.max(1, Math.min(MAX_COPY_THREADS, Runtime.getRuntime().availableProcessors())));
+        List<Future<String>> results = new ArrayList<>();
+
+        for (final AssetEntry entry : entries) {
+            results.add(executor.submit(new Callable<String>() {
+                @Override
+                public String call() throws IOException {
+                    return extractAsset(assetManager, entry, manifest.getProperty(entry.assetPath), sameVersion);
+                }
+            }));
+        }
+
+        executor.shutdown();
+
+        boolean completed = true;
+        boolean certsExtracted = false;
+        for (int i = 0; i < entries.size(); i++) {
+            String assetPath = entries.get(i).assetPath;
+
+            try {
+                newManifest.setProperty(assetPath, results.get(i).get());
+
+                if (assetPath.equals(CERTS_ASSET)) {
+                    certsExtracted = true;
+                }
+            } catch (InterruptedException | ExecutionException e) {
+                Log.e(TAG, "Failed to extract " + assetPath + ": " + e.getMessage());
+                completed = false;
+            }
+        }
+
+        /* Do not keep the version if any file is not extracted, so all files are checked again in next launch. */
+        if (completed) {
+            newManifest.setProperty(MANIFEST_VERSION, version);
+        }
+
+        if (!newManifest.equals(manifest)) {
+            saveManifest(manifestFile, newManifest);
+        }
+
+        if (!certsExtracted) {
+            throw new IOException("Failed to extract the certificates");
+        }
+    }
+
+    private static List<AssetEntry> listAssets(AssetManager assetManager, File filesDir) throws IOException {
+        List<AssetEntry> entries = new ArrayList<>();
+        File certsDir = new File(new File(filesDir, "ssl"), "certs");
+        File fontsFCDir = new File(filesDir, "fontconfig");
+        File fontsDir = new File(fontsFCDir, "fonts");
 
+        certsDir.mkdirs();
         fontsDir.mkdirs();
 
+        /* The certificates file */
+        entries.add(new AssetEntry(CERTS_ASSET, new File(certsDir, "ca-certificates.crt")));
+        /* The fontconfig file */
+        entries.add(new AssetEntry("fontconfig/fonts.conf", new File(fontsFCDir, "fonts.conf")));
+        /* The fonts */
+        for (String filename : assetManager.list("fontconfig/fonts/truetype")) {
+            entries.add(new AssetEntry("fontconfig/fonts/truetype/" + filename, new File(fontsDir, filename)));
+        }
+
+        return entries;
+    }
+
+    /**
+     * Extracts the asset if it is changed.
+     * @return The manifest entry of the extracted file ("size:hash")
+     */
+    private static String extractAsset(AssetManager assetManager, AssetEntry entry,
+            String extracted, boolean sameVersion) throws IOException {
+        /* Same application, check the size only. */
+        if (sameVersion && extracted != null &&
+                entry.outFile.exists() && entry.outFile.length() == getManifestSize(extracted)) {
+            return extracted;
+        }
+
+        /* Application is updated, compare the size and hash of the asset with the extracted file. */
+        if (extracted != null && entry.outFile.exists() &&
+                entry.outFile.length() == getManifestSize(extracted)) {
+            String current = hashAsset(assetManager, entry.assetPath);
+
+            if (current.equals(extracted)) {
+                return current;
+            }
+        }
+
+        /* New or changed file, the hash is computed while copying. */
+        return copyFile(assetManager, entry.assetPath, entry.outFile);
+    }
+
+    private static String hashAsset(AssetManager assetManager, String assetPath) throws IOException {
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
+        long size = 0;
+        int read;
+
+        InputStream in = assetManager.open(assetPath);
         try {
-            /* Copy the config file */
-            copyFile (assetManager, "fontconfig/fonts.conf", fontsCfg);
-            /* Copy the fonts */
-            for(String filename : assetManager.list("fontconfig/fonts/truetype")) {
-                File font = new File(fontsDir, filename);
-                copyFile (assetManager, "fontconfig/fonts/truetype/" + filename, font);
+            while ((read = in.read(buffer)) != -1) {
+                crc.update(buffer, 0, read);
+                size += read;
             }
-        } catch (IOException e) {
-            e.printStackTrace();
+        } finally {
+            in.close();
         }
+
+        return size + ":" + Long.toHexString(crc.getValue());
     }
 
-    private static void copyCaCertificates(Context context) {
-        AssetManager assetManager = context.getAssets();
-        File filesDir = context.getFilesDir();
-        File sslDir = new File (filesDir, "ssl");
-        File certsDir = new File (sslDir, "certs");
-        File certs = new File (certsDir, "ca-certificates.crt");
+    private static long getManifestSize(String extracted) {
+        int index = extracted.indexOf(':');
 
-        certsDir.mkdirs();
+        try {
+            return Long.parseLong((index < 0) ? extracted : extracted.substring(0, index));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static String getAssetsVersion(Context context) {
+        long updated = 0;
 
         try {
-            /* Copy the certificates file */
-            copyFile (assetManager, "ssl/certs/ca-certificates.crt", certs);
-        } catch (IOException e) {
+            updated = context.getPackageManager().getPackageInfo(context.getPackageName(), 0).lastUpdateTime;
+        } catch (PackageManager.NameNotFoundException e) {
             e.printStackTrace();
         }
+
+        return EXTRACTION_VERSION + ":" + updated;
     }
 
-    private static void copyFile(AssetManager assetManager, String assetPath, File outFile) throws IOException {
-        InputStream in = null;
-        OutputStream out = null;
-        IOException exception = null;
+    private static Properties loadManifest(File manifestFile) {
+        Properties manifest = new Properties();
 
-        if (outFile.exists())
-            outFile.delete();
+        if (manifestFile.exists()) {
+            InputStream in = null;
+
+            try {
+                in = new FileInputStream(manifestFile);
+                manifest.load(in);
+            } catch (IOException e) {
+                manifest.clear();
+            } finally {
+                if (in != null)
+                    try {
+                        in.close();
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
+            }
+        }
+
+        return manifest;
+    }
+
+    private static void saveManifest(File manifestFile, Properties manifest) {
+        File tmpFile = new File(manifestFile.getPath() + ".tmp");
+        OutputStream out = null;
 
         try {
-            in = assetManager.open(assetPath);
-            out = new FileOutputStream(outFile);
+            out = new FileOutputStream(tmpFile);
+            manifest.store(out, null);
+            out.close();
+            out = null;
 
-            byte[] buffer = new byte[1024];
-            int read;
-            while ((read = in.read(buffer)) != -1) {
-                out.write(buffer, 0, read);
+            if (!tmpFile.renameTo(manifestFile)) {
+                Log.e(TAG, "Failed to save " + manifestFile);
             }
-            out.flush();
         } catch (IOException e) {
-            exception = e;
+            e.printStackTrace();
         } finally {
-            if (in != null)
+            if (out != null)
                 try {
-                    in.close();
+                    out.close();
                 } catch (IOException e) {
-                    if (exception == null)
-                        exception = e;
+                    e.printStackTrace();
                 }
+        }
+    }
+
+    /**
+     * Copies the asset, and computes the hash of the copied data.
+     * The temporary file is removed if the copy fails.
+     * @return The manifest entry of the extracted file ("size:hash")
+     */
+    private static String copyFile(AssetManager assetManager, String assetPath, File outFile) throws IOException {
+        File tmpFile = new File(outFile.getPath() + ".tmp");
+        FileOutputStream out = null;
+        ByteBuffer buffer = ByteBuffer.allocate(COPY_BUFFER_SIZE);
+        CRC32 crc = new CRC32();
+        long size = 0;
+        boolean copied = false;
+
+        try {
+            out = new FileOutputStream(tmpFile);
+
+            FileChannel outChannel = out.getChannel();
+            AssetFileDescriptor afd = null;
+
+            try {
+                afd = assetManager.openFd(assetPath);
+            } catch (FileNotFoundException e) {
+                /* compressed asset, cannot open the file descriptor */
+            }
+
+            if (afd != null) {
+                /* Uncompressed asset, read the region of the apk directly. */
+                FileInputStream in = afd.createInputStream();
+
+                try {
+                    FileChannel inChannel = in.getChannel();
+                    long start = afd.getStartOffset();
+                    long length = afd.getLength();
+
+                    while (size < length) {
+                        buffer.clear();
+                        if (length - size < buffer.capacity())
+                            buffer.limit((int) (length - size));
+
+                        int read = inChannel.read(buffer, start + size);
+
+                        if (read <= 0)
+                            throw new IOException("Unexpected end of " + assetPath);
+                        size += copyBuffer(buffer, crc, outChannel);
+                    }
+                } finally {
+                    in.close();
+                    afd.close();
+                }
+            } else {
+                ReadableByteChannel inChannel = Channels.newChannel(assetManager.open(assetPath));
+
+                try {
+                    buffer.clear();
+                    while (inChannel.read(buffer) != -1) {
+                        size += copyBuffer(buffer, crc, outChannel);
+                        buffer.clear();
+                    }
+                } finally {
+                    inChannel.close();
+                }
+            }
+
+            out.close();
+            out = null;
+
+            if (outFile.exists())
+                outFile.delete();
+
+            if (!tmpFile.renameTo(outFile))
+                throw new IOException("Failed to rename " + tmpFile);
+
+            copied = true;
+        } finally {
             if (out != null)
                 try {
                     out.close();
                 } catch (IOException e) {
-                    if (exception == null)
-                        exception = e;
+                    e.printStackTrace();
                 }
-            if (exception != null)
-                throw exception;
+
+            if (!copied && tmpFile.exists())
+                tmpFile.delete();
+        }
+
+        return size + ":" + Long.toHexString(crc.getValue());
+    }
+
+    /**
+     * Writes the data in the buffer, and updates the hash.
+     * @return The number of bytes written
+     */
+    private static int copyBuffer(ByteBuffer buffer, CRC32 crc, FileChannel outChannel) throws IOException {
+        buffer.flip();
+
+        int length = buffer.remaining();
+
+        crc.update(buffer.array(), buffer.arrayOffset(), length);
+        while (buffer.hasRemaining()) {
+            outChannel.write(buffer);
         }
+
+        return length;
     }
 }
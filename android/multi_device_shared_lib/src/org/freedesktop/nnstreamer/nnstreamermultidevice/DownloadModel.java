@@ -9,33 +9,102 @@ import android.content.Intent;
 import android.net.Uri;
 import android.os.AsyncTask;
 import android.os.PowerManager;
+import android.os.SystemClock;
 import android.util.Log;
 
-import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.util.ArrayList;
-
+import java.util.Locale;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Task to download the model files.
+ * The files are downloaded in parallel, and the progress shows the bytes of all files.
+ * If a file fails, the other downloads are stopped and the task fails.
+ * The partial files are kept, and the next download continues them with the range request.
+ * The response is copied into the preallocated file with NIO channels and a large buffer for each thread.
+ */
 public class DownloadModel extends AsyncTask<ArrayList<String>, String, Boolean> {
     private static final String TAG = "NNStreamer";
+    private static final String DEFAULT_BASE_URL = "http://nnsuite.mooo.com/warehouse/nnmodels/";
+    private static final String PART_SUFFIX = ".part";
+    private static final String STATE_SUFFIX = ".part.state";
+    private static final int HTTP_RANGE_NOT_SATISFIABLE = 416;
+    private static final int DEFAULT_PARALLEL_DOWNLOADS = 4;
+    private static final int CONNECT_TIMEOUT_MS = 3000;
+    private static final int READ_TIMEOUT_MS = 10000;
+    private static final long PROGRESS_INTERVAL_MS = 200;
+    private static final int TRANSFER_BUFFER_SIZE = 256 * 1024;
+
+    /* The buffer of the download thread, reused for the files downloaded in the thread */
+    private static final ThreadLocal<ByteBuffer> transferBuffer = new ThreadLocal<ByteBuffer>() {
+        @Override
+        protected ByteBuffer initialValue() {
+            return ByteBuffer.allocateDirect(TRANSFER_BUFFER_SIZE);
+        }
+    };
 
     private Activity activity;
     private String downloadPath;
+    private int parallelDownloads;
+    private String baseUrl = DEFAULT_BASE_URL;
     private PowerManager.WakeLock wakeLock;
     private ProgressDialog progressBar;
     private boolean isProgress;
 
+    private int fileCount = 0;
+    private volatile boolean aborted = false;
+    private final AtomicInteger completedFiles = new AtomicInteger();
+    private final AtomicLong downloadedBytes = new AtomicLong();
+    private final AtomicLong totalBytes = new AtomicLong();
+    private final AtomicInteger sizedFiles = new AtomicInteger();
+    private final AtomicLong receivedBytes = new AtomicLong();
+    private long startTime = 0;
+    private final AtomicLong progressTime = new AtomicLong();
+
     public DownloadModel(Activity a, String path) {
+        this(a, path, DEFAULT_PARALLEL_DOWNLOADS);
+    }
+
+    /**
+     * @param parallel The max number of the files downloaded at the same time.
+     */
+    public DownloadModel(Activity a, String path, int parallel) {
         activity = a;
         downloadPath = path;
+        parallelDownloads = Math.max(1, parallel);
         isProgress = true;
     }
 
+    /**
+     * Set the URL of the directory with the model files, e.g., a local HTTP server for testing.
+     * Call this before executing the task.
+     */
+    public void setBaseUrl(String url) {
+        baseUrl = url.endsWith("/") ? url : (url + "/");
+    }
+
     public boolean isProgress() {
         return isProgress;
     }
@@ -53,6 +122,7 @@ public class DownloadModel extends AsyncTask<ArrayList<String>, String, Boolean>
 
         progressBar.setProgressStyle(ProgressDialog.STYLE_HORIZONTAL);
         progressBar.setMessage(activity.getText(R.string.download));
+        progressBar.setProgressNumberFormat("%1d/%2d KB");
         progressBar.setIndeterminate(true);
         progressBar.setCancelable(false);
         progressBar.setCanceledOnTouchOutside(false);
@@ -63,37 +133,109 @@ public class DownloadModel extends AsyncTask<ArrayList<String>, String, Boolean>
     @Override
     protected Boolean doInBackground(ArrayList<String>... arrayLists) {
         final ArrayList<String> downloadList = arrayLists[0];
-        boolean failed = false;
 
         File downloadDirectory = new File(downloadPath);
         if (!downloadDirectory.exists()) {
             downloadDirectory.mkdirs();
         }
 
-        progressBar.setMax(downloadList.size());
-        progressBar.setIndeterminate(false);
+        fileCount = downloadList.size();
+        startTime = SystemClock.elapsedRealtime();
+        updateProgress(true);
 
-        for (int i = 0; i < downloadList.size(); i++) {
-            String fileName = downloadList.get(i);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelDownloads, fileCount)));
+        CompletionService<Boolean> downloads = new ExecutorCompletionService<>(executor);
+
+        for (final String fileName : downloadList) {
+            downloads.submit(new Callable<Boolean>() {
+                @Override
+                public Boolean call() {
+                    return downloadFile(fileName);
+                }
+            });
+        }
 
-            publishProgress(fileName, Integer.toString(i));
+        try {
+            /* check the results in order of completion, stop at the first failure */
+            for (int i = 0; i < fileCount && !aborted; i++) {
+                if (!downloads.take().get()) {
+                    aborted = true;
+                }
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            Log.e(TAG, "Failed to download, " + e.getMessage());
+            aborted = true;
+        } finally {
+            /*
+             * The downloads in progress check the flag and stop, the queued downloads return at once.
+             * The threads are not interrupted, the interrupt closes the file channel and the offset cannot be saved.
+             */
+            executor.shutdown();
+        }
 
-            if (!downloadFile(fileName)) {
-                failed = true;
-                break;
+        try {
+            if (!executor.awaitTermination(READ_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                Log.w(TAG, "Timeout to stop the downloads");
             }
+        } catch (InterruptedException e) {
+            Log.e(TAG, "InterruptedException " + e.getMessage());
         }
 
+        long elapsed = SystemClock.elapsedRealtime() - startTime;
+        Log.i(TAG, "Downloaded " + completedFiles.get() + "/" + fileCount + " files, " +
+                (receivedBytes.get() / 1024) + " KB in " + elapsed + " ms (" + formatRate(receivedBytes.get(), elapsed) + ")");
+
         wakeLock.release();
-        return !failed;
+        return !aborted;
     }
 
     @Override
     protected void onProgressUpdate(String... progress) {
         super.onProgressUpdate(progress);
 
-        progressBar.setMessage(activity.getText(R.string.download) + " " + progress[0]);
-        progressBar.setProgress(Integer.parseInt(progress[1]));
+        int downloaded = Integer.parseInt(progress[1]);
+        int total = Integer.parseInt(progress[2]);
+
+        progressBar.setMessage(activity.getText(R.string.download) + " " + progress[0] + "/" + fileCount +
+                " (" + progress[3] + ")");
+
+        /* the total is published once the size of all files is known, so the max is not changed */
+        if (total > 0) {
+            progressBar.setIndeterminate(false);
+            progressBar.setMax(total);
+            progressBar.setProgress(Math.min(downloaded, total));
+        }
+    }
+
+    /**
+     * Publish the number of the completed files, the bytes downloaded (KB), the total (KB) and the throughput.
+     * The total is 0 until the size of all files is known, the progress is indeterminate until then.
+     * Called in the download threads, publishes once in the interval unless forced.
+     */
+    private void updateProgress(boolean force) {
+        long now = SystemClock.elapsedRealtime();
+        long last = progressTime.get();
+
+        if (!force && (now - last < PROGRESS_INTERVAL_MS || !progressTime.compareAndSet(last, now))) {
+            return;
+        }
+
+        /* the total is added before the file is counted, so it is complete if all files are counted */
+        long total = (sizedFiles.get() == fileCount) ? totalBytes.get() : 0;
+
+        publishProgress(Integer.toString(completedFiles.get()),
+                Long.toString(downloadedBytes.get() / 1024), Long.toString(total / 1024),
+                formatRate(receivedBytes.get(), now - startTime));
+    }
+
+    /**
+     * Get the text of the throughput, the bytes received from the server (except the partial files) in the time.
+     */
+    private static String formatRate(long bytes, long elapsedMs) {
+        double rate = (elapsedMs > 0) ? (bytes * 1000.0 / elapsedMs / 1024.0) : 0.0;
+
+        return (rate >= 1024.0) ? String.format(Locale.US, "%.1f MB/s", rate / 1024.0) :
+                String.format(Locale.US, "%.0f KB/s", rate);
     }
 
     @Override
@@ -128,91 +270,367 @@ public class DownloadModel extends AsyncTask<ArrayList<String>, String, Boolean>
         builder.show();
     }
 
+    /**
+     * State of the partial file, kept in the sidecar file to resume the download.
+     * The partial file is continued only if the file on the server has same ETag or length.
+     * The partial file is preallocated, the offset is the bytes written when the transfer is stopped.
+     */
+    private static class PartialState {
+        private static final String KEY_ETAG = "etag";
+        private static final String KEY_LENGTH = "length";
+        private static final String KEY_OFFSET = "offset";
+
+        String etag = null;
+        long length = -1;
+        long offset = -1;
+
+        /**
+         * Check the state can validate the file on the server.
+         */
+        boolean isValid() {
+            return (etag != null || length > 0);
+        }
+
+        /**
+         * Load the state from the sidecar file.
+         * @return The state of the partial file, null if the state is not found.
+         */
+        static PartialState load(File stateFile) {
+            if (!stateFile.exists()) {
+                return null;
+            }
+
+            Properties properties = new Properties();
+            InputStream in = null;
+
+            try {
+                in = new FileInputStream(stateFile);
+                properties.load(in);
+            } catch (IOException e) {
+                return null;
+            } finally {
+                if (in != null)
+                    try {
+                        in.close();
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
+            }
+
+            PartialState state = new PartialState();
+
+            state.etag = properties.getProperty(KEY_ETAG);
+            state.length = parseLong(properties.getProperty(KEY_LENGTH));
+            state.offset = parseLong(properties.getProperty(KEY_OFFSET));
+            return state.isValid() ? state : null;
+        }
+
+        /**
+         * Save the state into the sidecar file, the file is replaced with renaming.
+         */
+        void save(File stateFile) throws IOException {
+            File tmpFile = new File(stateFile.getPath() + ".tmp");
+            Properties properties = new Properties();
+            OutputStream out = new FileOutputStream(tmpFile);
+
+            if (etag != null) {
+                properties.setProperty(KEY_ETAG, etag);
+            }
+            properties.setProperty(KEY_LENGTH, Long.toString(length));
+            if (offset >= 0) {
+                properties.setProperty(KEY_OFFSET, Long.toString(offset));
+            }
+
+            try {
+                properties.store(out, null);
+            } finally {
+                out.close();
+            }
+
+            if (!tmpFile.renameTo(stateFile)) {
+                throw new IOException("Failed to save " + stateFile);
+            }
+        }
+    }
+
+    /**
+     * Parse the number in the header, -1 if it is not given.
+     */
+    private static long parseLong(String value) {
+        if (value == null) {
+            return -1;
+        }
+
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Check the partial content continues the partial file.
+     * Content-Range should start from the offset, and the file on the server should not be changed.
+     */
+    private static boolean checkRange(HttpURLConnection connection, long offset, PartialState state) {
+        String range = connection.getHeaderField("Content-Range");
+        String etag = connection.getHeaderField("ETag");
+
+        if (range == null || !range.startsWith("bytes ")) {
+            return false;
+        }
+
+        /* bytes start-end/length */
+        int dash = range.indexOf('-');
+        int slash = range.indexOf('/');
+
+        if (dash < 0 || slash < dash) {
+            return false;
+        }
+
+        long start = parseLong(range.substring(6, dash));
+        long length = parseLong(range.substring(slash + 1));
+
+        if (start != offset) {
+            return false;
+        }
+
+        if (state.length > 0 && length > 0 && state.length != length) {
+            return false;
+        }
+
+        if (state.etag != null && etag != null && !state.etag.equals(etag)) {
+            return false;
+        }
+
+        if (state.length <= 0) {
+            state.length = length;
+        }
+
+        return true;
+    }
+
+    /**
+     * Download the file into the partial file, and rename it when the download is done.
+     * If the download fails, the partial file and its state are kept, so the next download continues it.
+     */
     private boolean downloadFile(String fileName) {
-        final String downUrl = "http://nnsuite.mooo.com/warehouse/nnmodels/";
+        File targetFile = new File(downloadPath, fileName);
+        File partFile = new File(downloadPath, fileName + PART_SUFFIX);
+        File stateFile = new File(downloadPath, fileName + STATE_SUFFIX);
 
         HttpURLConnection connection = null;
-        InputStream input = null;
-        OutputStream output = null;
-        File downloadFile = null;
-        boolean failed = false;
+        boolean done = false;
+
+        if (isCancelled() || aborted) {
+            return false;
+        }
 
         try {
-            String fileUrl = downUrl + fileName;
-            URL url = new URL(fileUrl);
+            PartialState state = PartialState.load(stateFile);
+            long offset = 0;
+
+            /*
+             * Without the offset, the transfer was not stopped properly and the partial file is invalid.
+             * The file may be longer than the offset if it was not truncated, the transfer truncates it.
+             */
+            if (state != null && state.offset >= 0 && partFile.exists() && partFile.length() >= state.offset) {
+                offset = state.offset;
+            } else {
+                state = new PartialState();
+            }
 
-            Log.i(TAG, "Start downloading file " + fileName);
+            URL url = new URL(baseUrl + fileName);
 
-            connection = (HttpURLConnection) url.openConnection();
-            connection.setConnectTimeout(3000);
-            connection.setReadTimeout(3000);
+            Log.i(TAG, "Start downloading file " + fileName + ((offset > 0) ? (" from " + offset) : ""));
 
-            if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
-                failed = true;
-                return false;
+            connection = (HttpURLConnection) url.openConnection();
+            connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+            connection.setReadTimeout(READ_TIMEOUT_MS);
+
+            if (offset > 0) {
+                /* the server sends whole file if it is changed */
+                connection.setRequestProperty("Range", "bytes=" + offset + "-");
+                if (state.etag != null) {
+                    connection.setRequestProperty("If-Range", state.etag);
+                }
             }
 
-            input = new BufferedInputStream(connection.getInputStream(), 8192);
+            int code = connection.getResponseCode();
 
-            downloadFile = new File(downloadPath, fileName);
-            if (downloadFile.exists()) {
-                Log.d(TAG, "File exists, delete this file " + fileName);
-                downloadFile.delete();
-                downloadFile = new File(downloadPath, fileName);
+            if (offset > 0 && code == HttpURLConnection.HTTP_PARTIAL) {
+                if (!checkRange(connection, offset, state)) {
+                    Log.w(TAG, "Unexpected range, discard the partial file " + fileName);
+                    discard(partFile, stateFile);
+                    return false;
+                }
+            } else if (offset > 0 && code == HTTP_RANGE_NOT_SATISFIABLE && offset == state.length) {
+                /* the partial file is complete */
+                Log.d(TAG, "Partial file is complete " + fileName);
+            } else if (code == HttpURLConnection.HTTP_OK) {
+                if (offset > 0) {
+                    Log.d(TAG, "File is changed or range is not supported, restart " + fileName);
+                    offset = 0;
+                }
+
+                state = new PartialState();
+                state.etag = connection.getHeaderField("ETag");
+                state.length = parseLong(connection.getHeaderField("Content-Length"));
+
+                /* without the state, the partial file is discarded in next download */
+                stateFile.delete();
+                if (state.isValid()) {
+                    state.save(stateFile);
+                }
+            } else {
+                Log.e(TAG, "Unexpected response " + code + " for " + fileName);
+                if (code == HTTP_RANGE_NOT_SATISFIABLE) {
+                    discard(partFile, stateFile);
+                }
+                return false;
             }
 
-            output = new FileOutputStream(downloadFile);
+            downloadedBytes.addAndGet(offset);
+            if (state.length > 0) {
+                totalBytes.addAndGet(state.length);
+                sizedFiles.incrementAndGet();
+            }
 
-            byte[] data = new byte[1024];
-            int len;
+            if (offset < state.length || state.length < 0) {
+                long received = receivedBytes.get();
+                long start = SystemClock.elapsedRealtime();
 
-            while ((len = input.read(data)) > 0) {
-                if (isCancelled()) {
+                if (!transfer(connection, partFile, stateFile, state, offset)) {
                     Log.i(TAG, "Download canceled " + fileName);
-                    failed = true;
                     return false;
                 }
 
-                output.write(data, 0, len);
+                /* approximate throughput of the file, the other downloads share the link */
+                long elapsed = SystemClock.elapsedRealtime() - start;
+                Log.d(TAG, "Downloaded " + fileName + " in " + elapsed + " ms (" +
+                        formatRate(receivedBytes.get() - received, elapsed) + " overall)");
+            }
+
+            if (state.length >= 0 && partFile.length() != state.length) {
+                throw new IOException("Unexpected length " + partFile.length() + "/" + state.length);
             }
+
+            /* replace the file at once, the application never reads the partial file */
+            if (!partFile.renameTo(targetFile)) {
+                throw new IOException("Failed to rename " + partFile);
+            }
+
+            stateFile.delete();
+            done = true;
+
+            completedFiles.incrementAndGet();
+            updateProgress(true);
+
+            Intent intent = new Intent(Intent.ACTION_MEDIA_SCANNER_SCAN_FILE);
+            intent.setData(Uri.fromFile(targetFile));
+            activity.sendBroadcast(intent);
         } catch (Exception e) {
             e.printStackTrace();
             Log.e(TAG, "Failed to download, " + e.getMessage());
-            failed = true;
-            return false;
         } finally {
-            try {
-                if (failed) {
-                    Log.i(TAG, "Failed to download file " + fileName);
-                }
+            if (!done) {
+                Log.i(TAG, "Failed to download file " + fileName);
+            }
 
-                if (input != null) {
-                    input.close();
-                }
+            if (connection != null) {
+                connection.disconnect();
+            }
+        }
 
-                if (output != null) {
-                    output.flush();
-                    output.close();
+        return done;
+    }
+
+    /**
+     * Copy the response into the partial file from the offset.
+     * The file is preallocated with the length of the file, and truncated to the written bytes when the transfer stops.
+     * The state keeps the offset only while the transfer is stopped, so the file is discarded if the transfer is killed.
+     *
+     * @return True if the response is copied, false if the download is canceled.
+     */
+    private boolean transfer(HttpURLConnection connection, File partFile, File stateFile,
+            PartialState state, long offset) throws IOException {
+        ByteBuffer buffer = transferBuffer.get();
+        ReadableByteChannel input = Channels.newChannel(connection.getInputStream());
+        RandomAccessFile output = new RandomAccessFile(partFile, "rw");
+        FileChannel channel = output.getChannel();
+        long position = offset;
+        boolean done = false;
+
+        try {
+            if (state.isValid()) {
+                state.offset = -1;
+                state.save(stateFile);
+            }
+
+            channel.truncate(offset);
+            if (state.length > offset) {
+                output.setLength(state.length);
+            }
+
+            while (!done) {
+                if (isCancelled() || aborted) {
+                    return false;
                 }
 
-                if (downloadFile != null) {
-                    if (failed) {
-                        downloadFile.delete();
-                    } else {
-                        Intent intent = new Intent(Intent.ACTION_MEDIA_SCANNER_SCAN_FILE);
-                        intent.setData(Uri.fromFile(downloadFile));
-                        activity.sendBroadcast(intent);
+                /* fill the buffer, and write it at once */
+                buffer.clear();
+                while (buffer.hasRemaining()) {
+                    if (input.read(buffer) < 0) {
+                        done = true;
+                        break;
                     }
                 }
 
-                if (connection != null) {
-                    connection.disconnect();
+                buffer.flip();
+                int size = buffer.remaining();
+
+                while (buffer.hasRemaining()) {
+                    position += channel.write(buffer, position);
                 }
+
+                downloadedBytes.addAndGet(size);
+                receivedBytes.addAndGet(size);
+                updateProgress(false);
+            }
+        } finally {
+            /* remove the preallocated space not written, the offset is saved even if this fails */
+            try {
+                channel.truncate(position);
+            } catch (IOException e) {
+                Log.w(TAG, "Failed to truncate " + partFile + ", " + e.getMessage());
+            }
+
+            try {
+                output.close();
+            } catch (IOException e) {
+                Log.w(TAG, "Failed to close " + partFile + ", " + e.getMessage());
+            }
+
+            try {
+                input.close();
             } catch (IOException e) {
                 e.printStackTrace();
             }
+
+            if (state.isValid()) {
+                state.offset = position;
+                state.save(stateFile);
+            }
         }
 
-        return !failed;
+        return true;
+    }
+
+    /**
+     * Remove the partial file and its state, to download the file from the beginning.
+     */
+    private static void discard(File partFile, File stateFile) {
+        partFile.delete();
+        stateFile.delete();
     }
 }